@@ -27,8 +27,13 @@ package com.mattunderscore.executors;
 
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * A base implementation for a {@link Future}.
@@ -37,13 +42,22 @@ import java.util.concurrent.TimeoutException;
  * the result. It ensures that completed tasks cannot be cancelled. It makes sure that cancelled
  * tasks are treated as done. It helps with the setting of the result. It ensures that
  * {@link #get()} and {@link #get(long, TimeUnit)} throw the correct exceptions. Hooks are provided
- * to access the result, block until the result is set to determine if the task is done and to
- * perform the cancellation.
+ * to access the result, to determine if a result is available and to perform the cancellation.
+ * <P>
+ * The future is done when it moves from pending to one of the completed, failed or cancelled
+ * states. The state is a single word changed by compare and set so completing and cancelling the
+ * future cannot both succeed. Cancelling claims the future before the task is cancelled and returns
+ * it to pending if the task cannot be cancelled, a result set meanwhile waits for the outcome. A
+ * completed result is written during a short completing state before the final state is
+ * published. Threads waiting for a result are parked on a stack of waiters and unparked when the
+ * future is done or the subclass signals that a result is available.
  * <P>
  * This is also a {@link ITaskWrapper} because the task, executor and the future are tightly
  * coupled. The task must be executed and the result passed to the future, cancellation is passed
  * from the future to the executor and the task. After the executor runs the task it must set the
  * {@link Future} result.
+ * <P>
+ * Listeners are run when the future becomes done, after a result is set or the task is cancelled.
  * 
  * @author Matt Champion
  * @param <V>
@@ -52,48 +66,78 @@ import java.util.concurrent.TimeoutException;
  */
 /* package */ abstract class BaseFuture<V> implements ISettableFuture<V>
 {
+    private static final int PENDING = 0;
+    private static final int CANCELLING = 1;
+    private static final int COMPLETING = 2;
+    private static final int COMPLETED = 3;
+    private static final int FAILED = 4;
+    private static final int CANCELLED = 5;
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<BaseFuture> STATE = AtomicIntegerFieldUpdater
+            .newUpdater(BaseFuture.class, "state");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<BaseFuture, WaitNode> WAITERS =
+            AtomicReferenceFieldUpdater.newUpdater(BaseFuture.class, WaitNode.class, "waiters");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<BaseFuture, ListenerList> LISTENERS =
+            AtomicReferenceFieldUpdater.newUpdater(BaseFuture.class, ListenerList.class,
+                    "listeners");
+
+    private volatile int state = PENDING;
+    /**
+     * The result the future completed with. Published by the write to {@link #state}.
+     */
+    private TaskExecutionResult<V> outcome;
+    private volatile WaitNode waiters;
     /**
-     * Has the cancelled task been cancelled.
+     * Created when the first listener is added.
      */
-    private volatile boolean cancelled = false;
+    private volatile ListenerList listeners;
 
     @Override
     public boolean cancel(boolean mayInterruptIfRunning)
     {
-        if (isDone())
+        if (!STATE.compareAndSet(this, PENDING, CANCELLING))
         {
             return false;
         }
-        else
+        boolean cancelled = false;
+        try
         {
             cancelled = processCancellation(mayInterruptIfRunning);
-            return cancelled;
         }
+        finally
+        {
+            if (!cancelled)
+            {
+                state = PENDING;
+            }
+        }
+        if (!cancelled)
+        {
+            return false;
+        }
+        finishCancellation();
+        return true;
     }
 
     @Override
     public boolean isCancelled()
     {
-        return cancelled;
+        return state == CANCELLED;
     }
 
     @Override
     public boolean isDone()
     {
-        if (cancelled)
-        {
-            return true;
-        }
-        else
-        {
-            return taskDone();
-        }
+        return state > COMPLETING;
     }
 
     @Override
     public V get() throws InterruptedException, ExecutionException, CancellationException
     {
-        await();
+        awaitReady(0, false, 0L);
         checkCancellationException();
         TaskExecutionResult<V> result = getResult();
         checkExecutionException(result);
@@ -104,7 +148,7 @@ import java.util.concurrent.TimeoutException;
     public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException,
             TimeoutException, CancellationException
     {
-        if (!await(timeout, unit))
+        if (!awaitReady(0, true, System.nanoTime() + unit.toNanos(timeout)))
         {
             throw new TimeoutException();
         }
@@ -122,7 +166,7 @@ import java.util.concurrent.TimeoutException;
      */
     protected void checkCancellationException() throws CancellationException
     {
-        if (cancelled)
+        if (state == CANCELLED)
         {
             throw new CancellationException();
         }
@@ -156,6 +200,151 @@ import java.util.concurrent.TimeoutException;
         processResult(new TaskExecutionResult<V>(result));
     }
 
+    @Override
+    public boolean setCancelled()
+    {
+        if (!STATE.compareAndSet(this, PENDING, CANCELLING))
+        {
+            return false;
+        }
+        finishCancellation();
+        return true;
+    }
+
+    @Override
+    public void addListener(Runnable listener, Executor executor)
+    {
+        ListenerList list = listeners;
+        if (list == null)
+        {
+            LISTENERS.compareAndSet(this, null, new ListenerList());
+            list = listeners;
+        }
+        list.add(listener, executor);
+        if (isDone())
+        {
+            list.run();
+        }
+    }
+
+    /**
+     * Complete the future with a result. The future will be done and threads waiting on it will be
+     * woken.
+     *
+     * @param result
+     *            The final result
+     * @return False if the future was already done
+     * @since 0.1.2
+     */
+    protected final boolean complete(final TaskExecutionResult<V> result)
+    {
+        while (!STATE.compareAndSet(this, PENDING, COMPLETING))
+        {
+            if (state != CANCELLING)
+            {
+                return false;
+            }
+            // Wait to see if the cancellation succeeds
+            Thread.yield();
+        }
+        outcome = result;
+        state = result.exception == null ? COMPLETED : FAILED;
+        signalWaiters();
+        runListeners();
+        return true;
+    }
+
+    /**
+     * Wake the threads waiting on the future so that they check if a result is available.
+     *
+     * @since 0.1.2
+     */
+    protected final void signalWaiters()
+    {
+        WaitNode node = WAITERS.getAndSet(this, null);
+        while (node != null)
+        {
+            final Thread thread = node.thread;
+            if (thread != null)
+            {
+                node.thread = null;
+                LockSupport.unpark(thread);
+            }
+            node = node.next;
+        }
+    }
+
+    /**
+     * Park the current thread until the future is done or {@link #isReady(int)} is true for the
+     * index.
+     *
+     * @param index
+     *            The index passed to {@link #isReady(int)}
+     * @param timed
+     *            If the deadline should be used
+     * @param deadline
+     *            The value of {@link System#nanoTime()} to wait until
+     * @return False if the deadline was reached
+     * @throws InterruptedException
+     *             The thread was Interrupted while waiting
+     * @since 0.1.2
+     */
+    protected final boolean awaitReady(final int index, final boolean timed, final long deadline)
+            throws InterruptedException
+    {
+        WaitNode node = null;
+        while (true)
+        {
+            final int s = state;
+            if (s > COMPLETING || isReady(index))
+            {
+                if (node != null)
+                {
+                    removeWaiter(node);
+                }
+                return true;
+            }
+            else if (s == COMPLETING || s == CANCELLING)
+            {
+                Thread.yield();
+            }
+            else if (Thread.interrupted())
+            {
+                if (node != null)
+                {
+                    removeWaiter(node);
+                }
+                throw new InterruptedException();
+            }
+            else if (node == null || node.thread == null)
+            {
+                // Not queued or popped by a signal
+                node = new WaitNode();
+                WaitNode head;
+                do
+                {
+                    head = waiters;
+                    node.next = head;
+                }
+                while (!WAITERS.compareAndSet(this, head, node));
+            }
+            else if (timed)
+            {
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0L)
+                {
+                    removeWaiter(node);
+                    return false;
+                }
+                LockSupport.parkNanos(this, remaining);
+            }
+            else
+            {
+                LockSupport.park(this);
+            }
+        }
+    }
+
     /**
      * Process the result being set.
      * 
@@ -165,7 +354,8 @@ import java.util.concurrent.TimeoutException;
     protected abstract void processResult(TaskExecutionResult<V> result);
 
     /**
-     * Process cancellation of the task.
+     * Process cancellation of the task. The future is cancelled if this returns true and it has not
+     * completed in the meantime.
      * 
      * @param mayInterruptIfRunning
      *            If the thread should be interrupted if it is running
@@ -174,38 +364,95 @@ import java.util.concurrent.TimeoutException;
     protected abstract boolean processCancellation(boolean mayInterruptIfRunning);
 
     /**
-     * Indicate if the task has been executed.
-     * 
-     * @return True if the task has executed
+     * Called after the future has been cancelled, before the waiting threads are woken.
+     *
+     * @since 0.1.2
      */
-    protected abstract boolean taskDone();
+    protected void onCancelled()
+    {
+    }
 
     /**
-     * Blocks the thread until the result is set or the task is cancelled.
-     * 
-     * @throws InterruptedException
-     *             The thread was Interrupted while waiting
+     * Indicate if a result is available before the future is done.
+     *
+     * @param index
+     *            The index of the result waited for
+     * @return True if the result is available
+     * @since 0.1.2
      */
-    protected abstract void await() throws InterruptedException;
+    protected abstract boolean isReady(int index);
 
     /**
-     * Blocks the thread until the result is set or the task is cancelled. Takes a timeout as the
-     * maximum amount of time it will block.
+     * Return the result of the task execution. Assumes that it is set. By default this is the
+     * result the future completed with.
      * 
-     * @param timeout
-     *            Duration of the timeout
-     * @param unit
-     *            Unit of the timeout
-     * @return True if the timeout was not reached
-     * @throws InterruptedException
-     *             The thread was Interrupted while waiting
+     * @return The result
+     */
+    protected TaskExecutionResult<V> getResult()
+    {
+        return outcome;
+    }
+
+    /**
+     * Move from cancelling to cancelled. The state is only changed from cancelling by the thread
+     * that claimed the cancellation.
+     */
+    private void finishCancellation()
+    {
+        onCancelled();
+        state = CANCELLED;
+        signalWaiters();
+        runListeners();
+    }
+
+    private void runListeners()
+    {
+        final ListenerList list = listeners;
+        if (list != null)
+        {
+            list.run();
+        }
+    }
+
+    /**
+     * Unlink a node that is no longer waiting, along with any other nodes that are not waiting.
      */
-    protected abstract boolean await(long timeout, TimeUnit unit) throws InterruptedException;
+    private void removeWaiter(final WaitNode node)
+    {
+        node.thread = null;
+        retry: while (true)
+        {
+            for (WaitNode pred = null, q = waiters, s; q != null; q = s)
+            {
+                s = q.next;
+                if (q.thread != null)
+                {
+                    pred = q;
+                }
+                else if (pred != null)
+                {
+                    pred.next = s;
+                    if (pred.thread == null)
+                    {
+                        // The predecessor was removed, check again
+                        continue retry;
+                    }
+                }
+                else if (!WAITERS.compareAndSet(this, q, s))
+                {
+                    continue retry;
+                }
+            }
+            return;
+        }
+    }
 
     /**
-     * Return the result of the task execution. Assumes that it is set.
-     * 
-     * @return The result
+     * A thread waiting on the future.
      */
-    protected abstract TaskExecutionResult<V> getResult();
+    private static final class WaitNode
+    {
+        private volatile Thread thread = Thread.currentThread();
+        private volatile WaitNode next;
+    }
 }
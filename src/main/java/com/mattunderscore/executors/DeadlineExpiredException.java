@@ -0,0 +1,59 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.executors;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The exception of a task that was not started before its deadline. The task is not executed.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+public final class DeadlineExpiredException extends TimeoutException
+{
+    private static final long serialVersionUID = 1L;
+
+    private final long lateness;
+
+    /**
+     * @param lateness
+     *            The time in nanoseconds between the deadline and the task being expired
+     */
+    public DeadlineExpiredException(final long lateness)
+    {
+        super("The deadline of the task passed " + lateness + "ns before it could be executed");
+        this.lateness = lateness;
+    }
+
+    /**
+     * @return The time in nanoseconds between the deadline and the task being expired
+     */
+    public long getLateness()
+    {
+        return lateness;
+    }
+}
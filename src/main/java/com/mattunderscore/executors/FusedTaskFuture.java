@@ -0,0 +1,136 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.executors;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * A {@link Future} for a task that is executed once that is also the {@link ITaskWrapper} of the
+ * task.
+ * <P>
+ * Combining the future and the task wrapper means a single object is created for each task
+ * submitted. The {@link Runnable} or {@link Callable} is executed directly and the result completes
+ * the future. The {@link ITaskResultProcessor} is passed the future as the task so a single
+ * processor can be shared by all the futures of an executor. The processor is responsible for
+ * setting the result.
+ *
+ * @author Matt Champion
+ * @param <V>
+ *            Type of object returned by the {@link #get()} method
+ * @since 0.1.2
+ */
+@ThreadSafe
+public final class FusedTaskFuture<V> extends BaseFuture<V> implements ITaskWrapper
+{
+    private final Callable<V> callable;
+    private final Runnable runnable;
+    private final ITaskResultProcessor<V> processor;
+    private final ITaskCanceller canceller;
+
+    /**
+     * Create the future for a {@link Callable} task.
+     * @param task The task
+     * @param processor How to handle the result
+     * @param canceller Cancels the task
+     */
+    public FusedTaskFuture(final Callable<V> task, final ITaskResultProcessor<V> processor,
+            final ITaskCanceller canceller)
+    {
+        this.callable = task;
+        this.runnable = null;
+        this.processor = processor;
+        this.canceller = canceller;
+    }
+
+    /**
+     * Create the future for a {@link Runnable} task. The result will be null.
+     * @param task The task
+     * @param processor How to handle the result
+     * @param canceller Cancels the task
+     */
+    public FusedTaskFuture(final Runnable task, final ITaskResultProcessor<V> processor,
+            final ITaskCanceller canceller)
+    {
+        this.callable = null;
+        this.runnable = task;
+        this.processor = processor;
+        this.canceller = canceller;
+    }
+
+    @Override
+    public void execute()
+    {
+        final V value;
+        try
+        {
+            if (callable != null)
+            {
+                value = callable.call();
+            }
+            else
+            {
+                runnable.run();
+                value = null;
+            }
+        }
+        catch (Throwable t)
+        {
+            processor.onThrowable(this, t);
+            return;
+        }
+        processor.onResult(this, value);
+    }
+
+    @Override
+    protected void processResult(final TaskExecutionResult<V> result)
+    {
+        complete(result);
+    }
+
+    @Override
+    protected boolean processCancellation(final boolean mayInterruptIfRunning)
+    {
+        return canceller.cancelTask(this, mayInterruptIfRunning);
+    }
+
+    @Override
+    protected boolean isReady(final int index)
+    {
+        // Only ready when done
+        return false;
+    }
+
+    /**
+     * The future is its own task.
+     */
+    @Override
+    public void setTask(final ITaskWrapper wrapper)
+    {
+    }
+}
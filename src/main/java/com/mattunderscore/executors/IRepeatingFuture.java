@@ -37,12 +37,16 @@ import java.util.concurrent.TimeoutException;
  * A computation task has been scheduled to repeat a fixed number of times. This future allows the
  * result of each repetition to be retrieved and the progress thought repetitions is be monitored.
  * The {@link #get()} methods inherited from {@link Future} refer to the most recent execution.
+ * <P>
+ * The future may retain only the results of the most recent executions so that a task repeated
+ * many times uses a fixed amount of memory. The result of the most recent execution is always
+ * available from {@link #get()}.
  * 
  * @author Matt Champion
  * @param <V> The type of object returned by the task
  * @since 0.1.0
  */
-public interface IRepeatingFuture<V> extends Future<V>
+public interface IRepeatingFuture<V> extends IListenableFuture<V>
 {
     /**
      * Waits if necessary for the ith computation to complete, and then retrieves its result.
@@ -58,7 +62,8 @@ public interface IRepeatingFuture<V> extends Future<V>
      *             Thrown if the task was cancelled before reaching the ith execution
      * @throws IndexOutOfBoundsException
      *             Thrown if the ith value is greater than the number of executions or it is less
-     *             than 0.
+     *             than 0. A {@link ResultEvictedException} is thrown if the ith result is no
+     *             longer retained.
      */
     public V getResult(int i) throws InterruptedException, ExecutionException,
             CancellationException, IndexOutOfBoundsException;
@@ -83,7 +88,8 @@ public interface IRepeatingFuture<V> extends Future<V>
      *             Thrown if the ith execution does not happen within the timeout period
      * @throws IndexOutOfBoundsException
      *             Thrown if the ith value is greater than the number of executions or it is less
-     *             than 0.
+     *             than 0. A {@link ResultEvictedException} is thrown if the ith result is no
+     *             longer retained.
      */
     public V getResult(int i, long timeout, TimeUnit unit) throws InterruptedException,
             ExecutionException, CancellationException, TimeoutException, IndexOutOfBoundsException;
@@ -102,4 +108,12 @@ public interface IRepeatingFuture<V> extends Future<V>
      * @return Number of times the task has executed.
      */
     public int getCompletedExecutions();
+
+    /**
+     * Get the number of results that are retained and available from {@link #getResult(int)}.
+     *
+     * @return The number of the most recent results retained
+     * @since 0.1.2
+     */
+    public int getRetainedResults();
 }
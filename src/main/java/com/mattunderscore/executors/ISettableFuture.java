@@ -26,7 +26,6 @@ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
 package com.mattunderscore.executors;
 
 import java.util.concurrent.Callable;
-import java.util.concurrent.Future;
 
 /**
  * Interface that allows the result of a future to be set.
@@ -39,7 +38,7 @@ import java.util.concurrent.Future;
  *            The type of object returned by the task
  * @since 0.1.0
  */
-public interface ISettableFuture<V> extends Future<V>
+public interface ISettableFuture<V> extends IListenableFuture<V>
 {
     /**
      * Set the result of the task execution.
@@ -57,6 +56,15 @@ public interface ISettableFuture<V> extends Future<V>
      */
     public void setException(Throwable result);
 
+    /**
+     * Cancel the future without cancelling the task. This is used when the executor will not
+     * execute the task again, for example after it has been shut down.
+     *
+     * @return True if the future was cancelled, false if it was already done
+     * @since 0.1.2
+     */
+    public boolean setCancelled();
+
     /**
      * Set the task
      * @param wrapper TaskWrapper for task of the future
@@ -0,0 +1,62 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.executors;
+
+/**
+ * Receives items from an {@link IPublisher}. Items are only passed to the subscriber after they have
+ * been requested from the {@link ISubscription}.
+ * <P>
+ * This follows the Reactive Streams Subscriber.
+ *
+ * @author Matt Champion
+ * @param <T> The type of the items
+ * @since 0.1.2
+ */
+public interface ISubscriber<T>
+{
+    /**
+     * Called once when subscribed, before any other method.
+     * @param subscription The subscription to request items from
+     */
+    void onSubscribe(ISubscription subscription);
+
+    /**
+     * Called with each item requested.
+     * @param item The item
+     */
+    void onNext(T item);
+
+    /**
+     * Called if the publisher fails. No other methods will be called after this.
+     * @param t The cause of the failure
+     */
+    void onError(Throwable t);
+
+    /**
+     * Called when the publisher has no more items. No other methods will be called after this.
+     */
+    void onComplete();
+}
@@ -0,0 +1,103 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.executors;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * The listeners of an {@link IListenableFuture}.
+ * <P>
+ * Listeners are removed from the list as they are run so each is run once however many times
+ * {@link #run()} is called. The future should call {@link #run()} after it becomes done and after a
+ * listener is added to it when it is done.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+@ThreadSafe
+/* package */final class ListenerList
+{
+    private final Queue<Listener> listeners = new ConcurrentLinkedQueue<Listener>();
+
+    /**
+     * Add a listener to the list.
+     *
+     * @param listener
+     *            The listener to run
+     * @param executor
+     *            The executor to run the listener with
+     */
+    public void add(final Runnable listener, final Executor executor)
+    {
+        if (listener == null || executor == null)
+        {
+            throw new NullPointerException();
+        }
+        listeners.add(new Listener(listener, executor));
+    }
+
+    /**
+     * Run the listeners in the list. Any exception thrown while passing a listener to its executor
+     * is passed to the uncaught exception handler of the current thread.
+     */
+    public void run()
+    {
+        Listener listener;
+        while ((listener = listeners.poll()) != null)
+        {
+            try
+            {
+                listener.executor.execute(listener.listener);
+            }
+            catch (RuntimeException e)
+            {
+                final Thread currentThread = Thread.currentThread();
+                final Thread.UncaughtExceptionHandler handler = currentThread
+                        .getUncaughtExceptionHandler();
+                if (handler != null)
+                {
+                    handler.uncaughtException(currentThread, e);
+                }
+            }
+        }
+    }
+
+    private static final class Listener
+    {
+        private final Runnable listener;
+        private final Executor executor;
+
+        public Listener(final Runnable listener, final Executor executor)
+        {
+            this.listener = listener;
+            this.executor = executor;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.executors;
+
+import java.util.concurrent.Callable;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Factory for task wrappers that recycles the wrappers of tasks whose result is discarded.
+ * <P>
+ * Wrappers created without a result processor are returned to a pool once executed and reused for
+ * later tasks. Nothing outside the executor holds on to these wrappers so they can be safely
+ * reused. Wrappers created with a result processor are not pooled, the processor may hold a
+ * reference to them. The pool holds a fixed number of wrappers, wrappers released when it is full
+ * are discarded.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+@ThreadSafe
+public final class PooledTaskWrapperFactory implements ITaskWrapperFactory
+{
+    @GuardedBy("this")
+    private final PooledTaskWrapper[] pool;
+    @GuardedBy("this")
+    private int size = 0;
+
+    /**
+     * Create the factory.
+     * @param capacity The maximum number of wrappers to keep for reuse
+     */
+    public PooledTaskWrapperFactory(final int capacity)
+    {
+        pool = new PooledTaskWrapper[capacity];
+    }
+
+    @Override
+    public <V> ITaskWrapper newWrapper(final Callable<V> task)
+    {
+        final PooledTaskWrapper wrapper = acquire();
+        wrapper.callable = task;
+        return wrapper;
+    }
+
+    @Override
+    public ITaskWrapper newWrapper(final Runnable task)
+    {
+        final PooledTaskWrapper wrapper = acquire();
+        wrapper.runnable = task;
+        return wrapper;
+    }
+
+    @Override
+    public <V> ITaskWrapper newWrapper(final Callable<V> task, final ITaskResultProcessor<V> processor)
+    {
+        return new TaskWrapper<V>(task, processor);
+    }
+
+    @Override
+    public ITaskWrapper newWrapper(final Runnable task, final ITaskResultProcessor<Void> processor)
+    {
+        return new TaskWrapper<Void>(new RunnableWrapper(task), processor);
+    }
+
+    private synchronized PooledTaskWrapper acquire()
+    {
+        if (size == 0)
+        {
+            return new PooledTaskWrapper(this);
+        }
+        size--;
+        final PooledTaskWrapper wrapper = pool[size];
+        pool[size] = null;
+        return wrapper;
+    }
+
+    /* package */synchronized void release(final PooledTaskWrapper wrapper)
+    {
+        wrapper.callable = null;
+        wrapper.runnable = null;
+        if (size < pool.length)
+        {
+            pool[size] = wrapper;
+            size++;
+        }
+    }
+
+    /**
+     * A reusable task wrapper that discards the result and passes any throwable to the uncaught
+     * exception handler. The task is set by the factory and the wrapper returns itself to the
+     * factory after execution.
+     *
+     * @author Matt Champion
+     * @since 0.1.2
+     */
+    /* package */static final class PooledTaskWrapper implements ITaskWrapper
+    {
+        private final PooledTaskWrapperFactory factory;
+        // The tasks are published to the executing thread by the task queue
+        private Callable<?> callable;
+        private Runnable runnable;
+
+        private PooledTaskWrapper(final PooledTaskWrapperFactory factory)
+        {
+            this.factory = factory;
+        }
+
+        @Override
+        public void execute()
+        {
+            try
+            {
+                if (callable != null)
+                {
+                    callable.call();
+                }
+                else
+                {
+                    runnable.run();
+                }
+            }
+            catch (Throwable t)
+            {
+                UncaughtExceptionResult.VOID_RESULT_PROCESSOR.onThrowable(this, t);
+            }
+            finally
+            {
+                factory.release(this);
+            }
+        }
+    }
+}
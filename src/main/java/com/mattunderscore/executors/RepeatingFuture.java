@@ -25,14 +25,15 @@ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
 
 package com.mattunderscore.executors;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.concurrent.CancellationException;
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import net.jcip.annotations.ThreadSafe;
 
 /**
  * A base implementation for a {@link Future} of a task that is executed repeatedly but a limited
@@ -41,20 +42,43 @@ import java.util.concurrent.TimeoutException;
  * The {@link #get()} and {@link #get(long, TimeUnit)} methods return the result of the most recent
  * execution and only block if the task has not yet run. This implementation does not support
  * changing the number of times to repeat the task.
+ * <P>
+ * The results are stored in fixed size chunks that are only created when a result is stored in
+ * them, so memory is proportional to the number of results produced rather than the number of
+ * repetitions. The results are published by a single volatile count of completed executions.
+ * Reading a result does not lock, threads waiting for a result are parked until the count passes
+ * the index they are waiting for or the future is done. The final result completes the future.
+ * <P>
+ * If fewer results are retained than the number of repetitions the results are stored in a ring
+ * buffer instead. Each entry records the execution it is for so that a reader can tell when a
+ * result has been overwritten.
  * 
  * @author Matt Champion
  * @param <V>
  *            The type of object returned by {@link #get()}
  * @since 0.1.0
  */
+@ThreadSafe
 public final class RepeatingFuture<V> extends BaseFuture<V> implements IRepeatingFuture<V>
 {
-    private final List<TaskExecutionResult<V>> results = new ArrayList<TaskExecutionResult<V>>();
+    private static final int CHUNK_SHIFT = 8;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
     private final int repetitions;
-    private final CountDownLatch[] latches;
+    private final int retainedResults;
     private final ITaskCanceller canceller;
-    private ITaskWrapper task;
-    private int cancellationPoint = -1;
+    /**
+     * Only used if fewer results are retained than the number of repetitions.
+     */
+    private final AtomicReferenceArray<Entry<V>> ring;
+    /**
+     * Only written by the thread setting the results, published by {@link #completed}.
+     */
+    private volatile Object[][] chunks = new Object[1][];
+    private volatile int completed = 0;
+    private volatile int cancellationPoint = -1;
+    private volatile ITaskWrapper task;
 
     /**
      * Constructor for the future. This should be called by the subclass
@@ -64,12 +88,38 @@ public final class RepeatingFuture<V> extends BaseFuture<V> implements IRepeatin
      */
     public RepeatingFuture(final ITaskCanceller canceller, final int repetitions)
     {
+        this(canceller, repetitions, repetitions);
+    }
+
+    /**
+     * Constructor for a future that only retains the most recent results.
+     *
+     * @param repetitions
+     *            The number of times it is to repeat
+     * @param retainedResults
+     *            The number of results to retain
+     * @throws IllegalArgumentException
+     *             If the number of results to retain is negative
+     * @since 0.1.2
+     */
+    public RepeatingFuture(final ITaskCanceller canceller, final int repetitions,
+            final int retainedResults)
+    {
+        if (retainedResults < 0)
+        {
+            throw new IllegalArgumentException("The number of retained results cannot be negative");
+        }
         this.canceller = canceller;
         this.repetitions = repetitions;
-        latches = new CountDownLatch[repetitions];
-        for (int i = 0; i < repetitions; i++)
+        this.retainedResults = Math.min(retainedResults, repetitions);
+        if (this.retainedResults < repetitions)
+        {
+            // The most recent result is always kept for get()
+            ring = new AtomicReferenceArray<Entry<V>>(Math.max(this.retainedResults, 1));
+        }
+        else
         {
-            latches[i] = new CountDownLatch(1);
+            ring = null;
         }
     }
 
@@ -77,25 +127,23 @@ public final class RepeatingFuture<V> extends BaseFuture<V> implements IRepeatin
     public V getResult(int index) throws InterruptedException, ExecutionException,
             CancellationException, IndexOutOfBoundsException
     {
-        latches[index].await();
-        checkCancellationException();
-        TaskExecutionResult<V> result = getStoredResult(index);
-        checkExecutionException(result);
-        return result.result;
+        checkIndex(index);
+        checkEvicted(index);
+        awaitReady(index, false, 0L);
+        return report(index);
     }
 
     @Override
     public V getResult(int index, long timeout, TimeUnit unit) throws InterruptedException,
             ExecutionException, CancellationException, TimeoutException, IndexOutOfBoundsException
     {
-        if (!latches[index].await(timeout, unit))
+        checkIndex(index);
+        checkEvicted(index);
+        if (!awaitReady(index, true, System.nanoTime() + unit.toNanos(timeout)))
         {
             throw new TimeoutException();
         }
-        checkCancellationException();
-        TaskExecutionResult<V> result = getStoredResult(index);
-        checkExecutionException(result);
-        return result.result;
+        return report(index);
     }
 
     @Override
@@ -107,12 +155,19 @@ public final class RepeatingFuture<V> extends BaseFuture<V> implements IRepeatin
     @Override
     public int getCompletedExecutions()
     {
-        return results.size();
+        return completed;
+    }
+
+    @Override
+    public int getRetainedResults()
+    {
+        return retainedResults;
     }
 
     protected void checkCancellationException(int index) throws CancellationException
     {
-        if (index > cancellationPoint)
+        final int point = cancellationPoint;
+        if (point >= 0 && index >= point)
         {
             throw new CancellationException();
         }
@@ -121,48 +176,77 @@ public final class RepeatingFuture<V> extends BaseFuture<V> implements IRepeatin
     @Override
     protected void processResult(TaskExecutionResult<V> result)
     {
-        int index = results.size();
-        results.add(result);
-        latches[index].countDown();
+        final int index = completed;
+        if (index >= repetitions || isCancelled())
+        {
+            return;
+        }
+        if (ring != null)
+        {
+            ring.set(index % ring.length(), new Entry<V>(index, result));
+        }
+        else
+        {
+            store(index, result);
+        }
+        completed = index + 1;
+        if (index + 1 == repetitions)
+        {
+            complete(result);
+        }
+        else
+        {
+            signalWaiters();
+        }
     }
 
-    @Override
-    protected boolean processCancellation(boolean mayInterruptIfRunning)
+    /**
+     * Store a result in the chunks, creating the chunk if needed.
+     */
+    private void store(final int index, final TaskExecutionResult<V> result)
     {
-        final boolean cancelled = canceller.cancelTask(task, mayInterruptIfRunning);
-        if (cancelled)
+        final int chunkIndex = index >>> CHUNK_SHIFT;
+        Object[][] currentChunks = chunks;
+        if (chunkIndex >= currentChunks.length)
         {
-            cancellationPoint = results.size();
-            for (int i = cancellationPoint; i < latches.length; i++)
-            {
-                latches[i].countDown();
-            }
+            currentChunks = Arrays.copyOf(currentChunks, currentChunks.length * 2);
         }
-        return cancelled;
+        if (currentChunks[chunkIndex] == null)
+        {
+            currentChunks[chunkIndex] = new Object[Math.min(CHUNK_SIZE, repetitions
+                    - (chunkIndex << CHUNK_SHIFT))];
+        }
+        currentChunks[chunkIndex][index & CHUNK_MASK] = result;
+        chunks = currentChunks;
     }
 
     @Override
-    protected boolean taskDone()
+    protected boolean processCancellation(boolean mayInterruptIfRunning)
     {
-        return repetitions == results.size();
+        return canceller.cancelTask(task, mayInterruptIfRunning);
     }
 
     @Override
-    protected void await() throws InterruptedException
+    protected void onCancelled()
     {
-        latches[0].await();
+        cancellationPoint = completed;
     }
 
     @Override
-    protected boolean await(long timeout, TimeUnit unit) throws InterruptedException
+    protected boolean isReady(int index)
     {
-        return latches[0].await(timeout, unit);
+        return index < completed;
     }
 
     @Override
     protected TaskExecutionResult<V> getResult()
     {
-        return getStoredResult(results.size()-1);
+        final int index = completed - 1;
+        if (ring != null)
+        {
+            return ring.get(index % ring.length()).result;
+        }
+        return getStoredResult(index);
     }
 
     /**
@@ -172,9 +256,23 @@ public final class RepeatingFuture<V> extends BaseFuture<V> implements IRepeatin
      *            The result to get
      * @return The result
      */
+    @SuppressWarnings("unchecked")
     protected TaskExecutionResult<V> getStoredResult(final int index)
     {
-        return results.get(index);
+        if (index < 0 || index >= completed)
+        {
+            throw new IndexOutOfBoundsException();
+        }
+        if (ring != null)
+        {
+            final Entry<V> entry = ring.get(index % ring.length());
+            if (retainedResults == 0 || entry.index != index)
+            {
+                throw new ResultEvictedException(index, retainedResults);
+            }
+            return entry.result;
+        }
+        return (TaskExecutionResult<V>) chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
     }
 
     @Override
@@ -182,4 +280,48 @@ public final class RepeatingFuture<V> extends BaseFuture<V> implements IRepeatin
     {
         this.task = wrapper;
     }
+
+    private void checkIndex(final int index) throws IndexOutOfBoundsException
+    {
+        if (index < 0 || index >= repetitions)
+        {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    private void checkEvicted(final int index) throws ResultEvictedException
+    {
+        if (ring != null && index < completed - retainedResults)
+        {
+            throw new ResultEvictedException(index, retainedResults);
+        }
+    }
+
+    private V report(final int index) throws ExecutionException, CancellationException
+    {
+        if (index >= completed)
+        {
+            // Woken by cancellation
+            throw new CancellationException();
+        }
+        checkCancellationException();
+        final TaskExecutionResult<V> result = getStoredResult(index);
+        checkExecutionException(result);
+        return result.result;
+    }
+
+    /**
+     * A result in the ring buffer and the execution it is for.
+     */
+    private static final class Entry<V>
+    {
+        private final int index;
+        private final TaskExecutionResult<V> result;
+
+        public Entry(final int index, final TaskExecutionResult<V> result)
+        {
+            this.index = index;
+            this.result = result;
+        }
+    }
 }
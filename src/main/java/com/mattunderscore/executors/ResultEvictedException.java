@@ -0,0 +1,71 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.executors;
+
+/**
+ * Thrown when the result of an execution is requested from an {@link IRepeatingFuture} that no
+ * longer retains it.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+public final class ResultEvictedException extends IndexOutOfBoundsException
+{
+    private static final long serialVersionUID = 1L;
+
+    private final int index;
+    private final int retainedResults;
+
+    /**
+     * @param index
+     *            The execution requested
+     * @param retainedResults
+     *            The number of results that are retained
+     */
+    public ResultEvictedException(final int index, final int retainedResults)
+    {
+        super("The result of execution " + index + " has been evicted, only the last "
+                + retainedResults + " results are retained");
+        this.index = index;
+        this.retainedResults = retainedResults;
+    }
+
+    /**
+     * @return The execution requested
+     */
+    public int getIndex()
+    {
+        return index;
+    }
+
+    /**
+     * @return The number of results that are retained
+     */
+    public int getRetainedResults()
+    {
+        return retainedResults;
+    }
+}
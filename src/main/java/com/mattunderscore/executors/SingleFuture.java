@@ -25,82 +25,43 @@ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
 
 package com.mattunderscore.executors;
 
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
 
 /**
  * A base implementation for a {@link Future} of a task that is executed once.
  * <P>
- * It stores a single result and uses a single latch to block the result.
+ * The single result completes the future.
  * @author Matt Champion
  * @param <V> Type of object returned by the {@link #get()} method
  * @since 0.1.0
  */
 public final class SingleFuture<V> extends BaseFuture<V>
 {
-    /**
-     * Has the task completed
-     */
-    private volatile boolean done = false;
-    /**
-     * The result of the execution
-     */
-    private volatile TaskExecutionResult<V> result;
-    /**
-     * Latch to block access to the result
-     */
-    private final CountDownLatch latch;
     private final ITaskCanceller canceller;
-    private ITaskWrapper task;
+    private volatile ITaskWrapper task;
 
     public SingleFuture(final ITaskCanceller canceller)
     {
-        latch = new CountDownLatch(1);
         this.canceller = canceller;
     }
     
     @Override
     protected void processResult(TaskExecutionResult<V> result)
     {
-        this.result = result;
-        done = true;
-        latch.countDown();
+        complete(result);
     }
 
     @Override
     protected boolean processCancellation(boolean mayInterruptIfRunning)
     {
-        final boolean cancelled = canceller.cancelTask(task, mayInterruptIfRunning);
-        if (cancelled)
-        {
-            latch.countDown();
-        }
-        return cancelled;
+        return canceller.cancelTask(task, mayInterruptIfRunning);
     }
 
     @Override
-    protected boolean taskDone()
+    protected boolean isReady(int index)
     {
-        return done;
-    }
-
-    @Override
-    protected void await() throws InterruptedException
-    {
-        latch.await();
-    }
-
-    @Override
-    protected boolean await(long timeout, TimeUnit unit) throws InterruptedException
-    {
-        return latch.await(timeout, unit);
-    }
-
-    @Override
-    protected TaskExecutionResult<V> getResult()
-    {
-        return result;
+        // Only ready when done
+        return false;
     }
 
     @Override
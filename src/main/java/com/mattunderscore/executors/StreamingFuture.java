@@ -0,0 +1,75 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.executors;
+
+import java.util.concurrent.Future;
+
+/**
+ * A {@link Future} for a task that is executed an unlimited number of times and whose results are
+ * passed to an {@link IResultConsumer}.
+ * <P>
+ * The results are not stored by the future. The future completes when the stream of results ends,
+ * either because the task was cancelled or because the consumer threw an exception. The
+ * {@link #get()} methods block until then and throw the exception thrown by the consumer.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+public final class StreamingFuture extends BaseFuture<Void>
+{
+    private final ITaskCanceller canceller;
+    private volatile ITaskWrapper task;
+
+    public StreamingFuture(final ITaskCanceller canceller)
+    {
+        this.canceller = canceller;
+    }
+
+    @Override
+    protected void processResult(TaskExecutionResult<Void> result)
+    {
+        complete(result);
+    }
+
+    @Override
+    protected boolean processCancellation(boolean mayInterruptIfRunning)
+    {
+        return canceller.cancelTask(task, mayInterruptIfRunning);
+    }
+
+    @Override
+    protected boolean isReady(int index)
+    {
+        // Only ready when done
+        return false;
+    }
+
+    @Override
+    public void setTask(ITaskWrapper wrapper)
+    {
+        this.task = wrapper;
+    }
+}
@@ -26,9 +26,7 @@ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
 package com.mattunderscore.executors;
 
 import java.util.concurrent.Callable;
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
 import java.lang.Runnable;
 
 /**
@@ -45,9 +43,8 @@ import java.lang.Runnable;
 public final class UnboundedFuture extends BaseFuture<Void>
 {
     private final ITaskCanceller canceller;
-    private CountDownLatch latch = new CountDownLatch(1);
     private volatile TaskExecutionResult<Void> result;
-    private ITaskWrapper task;
+    private volatile ITaskWrapper task;
 
     public UnboundedFuture(final ITaskCanceller canceller)
     {
@@ -58,34 +55,20 @@ public final class UnboundedFuture extends BaseFuture<Void>
     protected void processResult(TaskExecutionResult<Void> result)
     {
         this.result = result;
-        latch.countDown();
+        signalWaiters();
     }
 
     @Override
     protected boolean processCancellation(boolean mayInterruptIfRunning)
     {
-        final boolean cancelled = canceller.cancelTask(task, mayInterruptIfRunning);
-        latch.countDown();
-        return cancelled;
+        return canceller.cancelTask(task, mayInterruptIfRunning);
     }
 
     @Override
-    protected boolean taskDone()
+    protected boolean isReady(int index)
     {
-        // Only done if cancelled
-        return false;
-    }
-
-    @Override
-    protected void await() throws InterruptedException
-    {
-        latch.await();
-    }
-
-    @Override
-    protected boolean await(long timeout, TimeUnit unit) throws InterruptedException
-    {
-        return latch.await(timeout, unit);
+        // Only done if cancelled, ready once it has run
+        return result != null;
     }
 
     @Override
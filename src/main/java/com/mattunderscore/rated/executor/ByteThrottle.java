@@ -0,0 +1,146 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Pays for bytes transferred by throttled streams and channels with permits from a
+ * {@link IRateLimiter}.
+ * <P>
+ * Each transfer is limited to a chunk of bytes. The bytes of a chunk are paid for with a single
+ * weighted acquire once they have been transferred, so large buffers are paced a chunk at a time
+ * without the cost of acquiring a permit for each byte. A smaller chunk gives smoother transfers,
+ * a larger chunk fewer acquires.
+ * <P>
+ * A permit pays for a fixed number of bytes, one for a throttle created with a limiter. A
+ * throttle created for a rate in bytes per unit of time has its own limiter. The permits of that
+ * limiter pay for enough bytes that the time between permits is at least {@link #MIN_INTERVAL}
+ * nanoseconds, so high rates are not distorted by rounding the time per byte to whole
+ * nanoseconds. The bytes that do not fill a permit are paid for by a later transfer.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+@ThreadSafe
+/* package */final class ByteThrottle
+{
+    /**
+     * The shortest time in nanoseconds between the permits of a throttle created for a rate.
+     */
+    /* package */static final long MIN_INTERVAL = 1000L;
+
+    private final IRateLimiter limiter;
+    private final int chunkSize;
+    private final long bytesPerPermit;
+    @GuardedBy("this")
+    private long unpaid = 0L;
+
+    /* package */ByteThrottle(final IRateLimiter limiter, final int chunkSize)
+    {
+        this(limiter, chunkSize, 1L);
+    }
+
+    private ByteThrottle(final IRateLimiter limiter, final int chunkSize,
+            final long bytesPerPermit)
+    {
+        if (chunkSize < 1)
+        {
+            throw new IllegalArgumentException("The chunk size must be at least one byte");
+        }
+        this.limiter = limiter;
+        this.chunkSize = chunkSize;
+        this.bytesPerPermit = bytesPerPermit;
+    }
+
+    /**
+     * Create a throttle with its own limiter for a rate in bytes per unit of time.
+     * @param bytes The number of bytes that may be transferred in each unit of time
+     * @param unit The unit of time
+     * @param chunkSize The maximum number of bytes transferred before waiting for permits
+     * @return The throttle
+     * @throws IllegalArgumentException If the number of bytes or the chunk size is less than one
+     */
+    /* package */static ByteThrottle forRate(final long bytes, final TimeUnit unit,
+            final int chunkSize)
+    {
+        if (bytes < 1L)
+        {
+            throw new IllegalArgumentException("At least one byte must be allowed");
+        }
+        final double nanosPerByte = (double) unit.toNanos(1L) / bytes;
+        final long bytesPerPermit = (long) Math.ceil(MIN_INTERVAL / nanosPerByte);
+        final long interval = Math.round(nanosPerByte * bytesPerPermit);
+        return new ByteThrottle(new RateLimiter(interval, TimeUnit.NANOSECONDS, Jitter.none()),
+                chunkSize, bytesPerPermit);
+    }
+
+    /**
+     * @param length The number of bytes requested
+     * @return The number of bytes to transfer
+     */
+    /* package */int chunk(final int length)
+    {
+        return length < chunkSize ? length : chunkSize;
+    }
+
+    /**
+     * Wait for the permits of bytes that have been transferred.
+     * @param bytes The number of bytes
+     * @throws InterruptedIOException If interrupted while waiting
+     */
+    /* package */void pay(final int bytes) throws InterruptedIOException
+    {
+        if (bytes <= 0)
+        {
+            return;
+        }
+        final int permits;
+        synchronized (this)
+        {
+            unpaid += bytes;
+            permits = (int) (unpaid / bytesPerPermit);
+            unpaid -= permits * bytesPerPermit;
+        }
+        if (permits == 0)
+        {
+            return;
+        }
+        try
+        {
+            limiter.acquire(permits);
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while throttled");
+        }
+    }
+}
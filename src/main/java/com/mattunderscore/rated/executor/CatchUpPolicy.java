@@ -0,0 +1,117 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import net.jcip.annotations.Immutable;
+
+/**
+ * The policy followed by a rated executor after it falls behind its schedule.
+ * <P>
+ * An executor falls behind when a task takes longer than the period of the executor or the
+ * executing thread is paused. Each execution has a target time, when an execution starts late the
+ * policy decides the target time of the next execution. Catching up fully keeps the long term rate
+ * but runs tasks back to back until the schedule is recovered. Resetting never runs tasks closer
+ * together than the period but loses the executions missed. A bounded burst allows a limited
+ * number of missed executions to be recovered.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+@Immutable
+public final class CatchUpPolicy
+{
+    private static final CatchUpPolicy CATCH_UP = new CatchUpPolicy(-1);
+    private static final CatchUpPolicy RESET = new CatchUpPolicy(0);
+
+    /**
+     * The maximum number of missed executions to recover, negative if unbounded.
+     */
+    private final int maxBurst;
+
+    private CatchUpPolicy(final int maxBurst)
+    {
+        this.maxBurst = maxBurst;
+    }
+
+    /**
+     * Run every missed execution as soon as possible.
+     *
+     * @return The policy
+     */
+    public static CatchUpPolicy catchUp()
+    {
+        return CATCH_UP;
+    }
+
+    /**
+     * Run no more than a limited number of missed executions as soon as possible. Further missed
+     * executions are skipped.
+     *
+     * @param maxBurst
+     *            The maximum number of missed executions to recover
+     * @return The policy
+     */
+    public static CatchUpPolicy boundedBurst(final int maxBurst)
+    {
+        if (maxBurst < 0)
+        {
+            throw new IllegalArgumentException("The maximum burst cannot be negative");
+        }
+        return new CatchUpPolicy(maxBurst);
+    }
+
+    /**
+     * Skip every missed execution, the schedule restarts from the late execution.
+     *
+     * @return The policy
+     */
+    public static CatchUpPolicy reset()
+    {
+        return RESET;
+    }
+
+    /**
+     * Calculate the target time of the next execution.
+     *
+     * @param lastTarget
+     *            The target time of the last execution in nanoseconds
+     * @param lastStart
+     *            The time the last execution actually started in nanoseconds
+     * @param period
+     *            The period of the executor in nanoseconds
+     * @return The target time of the next execution in nanoseconds
+     */
+    /* package */long nextTarget(final long lastTarget, final long lastStart, final long period)
+    {
+        final long next = lastTarget + period;
+        if (maxBurst < 0)
+        {
+            return next;
+        }
+        final long earliest = lastStart + period - (maxBurst * period);
+        return next - earliest < 0 ? earliest : next;
+    }
+}
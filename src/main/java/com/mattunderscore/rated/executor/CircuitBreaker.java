@@ -0,0 +1,140 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import java.util.concurrent.TimeUnit;
+
+import net.jcip.annotations.Immutable;
+
+/**
+ * The circuit breaker of a rated executor.
+ * <P>
+ * The breaker counts the outcomes of the most recent executions. When the window of outcomes is
+ * full and the rate of failures reaches a threshold the breaker opens. While open no tasks are
+ * executed, so no executions are spent on an upstream that is failing. Queued tasks are held
+ * until the breaker closes or, if failing fast, fail with a
+ * {@link com.mattunderscore.executors.CircuitOpenException}. After the open duration the breaker
+ * is half open, the next execution is a probe. If the probe succeeds the breaker closes, if it
+ * fails the breaker opens again. Every task executed reports its outcome, including tasks passed
+ * to {@code execute} that return no future.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+@Immutable
+public final class CircuitBreaker
+{
+    private final int failureThreshold;
+    private final int window;
+    private final long openDuration;
+    private final boolean failFast;
+
+    private CircuitBreaker(final int failureThreshold, final int window,
+            final long openDuration, final boolean failFast)
+    {
+        this.failureThreshold = failureThreshold;
+        this.window = window;
+        this.openDuration = openDuration;
+        this.failFast = failFast;
+    }
+
+    /**
+     * Open when the rate of failures of the most recent executions reaches a threshold. Queued
+     * tasks are held while the breaker is open.
+     *
+     * @param threshold
+     *            The rate of failures, greater than zero and no more than one
+     * @param window
+     *            The number of recent executions the rate is measured over
+     * @param openDuration
+     *            The time the breaker stays open before probing
+     * @param unit
+     *            The time unit of the open duration
+     * @return The circuit breaker
+     */
+    public static CircuitBreaker failureRate(final double threshold, final int window,
+            final long openDuration, final TimeUnit unit)
+    {
+        if (!(threshold > 0.0 && threshold <= 1.0))
+        {
+            throw new IllegalArgumentException(
+                    "The threshold must be greater than zero and no more than one");
+        }
+        if (window < 1)
+        {
+            throw new IllegalArgumentException("The window must contain at least one execution");
+        }
+        if (openDuration < 0L)
+        {
+            throw new IllegalArgumentException("The open duration cannot be negative");
+        }
+        final int failureThreshold = (int) Math.ceil(threshold * window);
+        return new CircuitBreaker(failureThreshold, window, unit.toNanos(openDuration), false);
+    }
+
+    /**
+     * Fail queued tasks with a {@link com.mattunderscore.executors.CircuitOpenException} while the
+     * breaker is open instead of holding them.
+     *
+     * @return A circuit breaker that fails fast
+     */
+    public CircuitBreaker failFast()
+    {
+        return new CircuitBreaker(failureThreshold, window, openDuration, true);
+    }
+
+    /**
+     * @return The number of failures in the window that opens the breaker
+     */
+    /* package */int getFailureThreshold()
+    {
+        return failureThreshold;
+    }
+
+    /**
+     * @return The number of outcomes in the window
+     */
+    /* package */int getWindow()
+    {
+        return window;
+    }
+
+    /**
+     * @return The time in nanoseconds the breaker stays open
+     */
+    /* package */long getOpenDuration()
+    {
+        return openDuration;
+    }
+
+    /**
+     * @return True if queued tasks fail while the breaker is open
+     */
+    /* package */boolean isFailFast()
+    {
+        return failFast;
+    }
+}
@@ -0,0 +1,176 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * The state of the {@link CircuitBreaker} of a single executor.
+ * <P>
+ * The outcomes of the window are held in a ring buffer. The executor polls the state before
+ * taking each task from the queue. The executions of an executor are serial so the outcome of a
+ * probe is known before the next poll, the half open breaker does not need to track it.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+@ThreadSafe
+/* package */final class CircuitBreakerState
+{
+    /**
+     * What the executor may do with the next task.
+     */
+    /* package */static enum Permit
+    {
+        /** Execute the next task */
+        EXECUTE,
+        /** Leave the tasks on the queue */
+        HOLD,
+        /** Fail the queued tasks */
+        FAIL
+    }
+
+    private final CircuitBreaker breaker;
+    @GuardedBy("this")
+    private final boolean[] failed;
+    @GuardedBy("this")
+    private int next = 0;
+    @GuardedBy("this")
+    private int outcomes = 0;
+    @GuardedBy("this")
+    private int failures = 0;
+    @GuardedBy("this")
+    private boolean open = false;
+    @GuardedBy("this")
+    private long openUntil;
+
+    /* package */CircuitBreakerState(final CircuitBreaker breaker)
+    {
+        this.breaker = breaker;
+        this.failed = new boolean[breaker.getWindow()];
+    }
+
+    /**
+     * @param now
+     *            The current System.nanoTime
+     * @return What the executor may do with the next task
+     */
+    /* package */synchronized Permit permit(final long now)
+    {
+        if (!open || now - openUntil >= 0L)
+        {
+            return Permit.EXECUTE;
+        }
+        return breaker.isFailFast() ? Permit.FAIL : Permit.HOLD;
+    }
+
+    /**
+     * Record a successful execution.
+     *
+     * @param now
+     *            The current System.nanoTime
+     */
+    /* package */synchronized void onSuccess(final long now)
+    {
+        if (open)
+        {
+            if (now - openUntil >= 0L)
+            {
+                // The probe succeeded
+                open = false;
+                next = 0;
+                outcomes = 0;
+                failures = 0;
+            }
+        }
+        else
+        {
+            record(false, now);
+        }
+    }
+
+    /**
+     * Record a failed execution.
+     *
+     * @param now
+     *            The current System.nanoTime
+     */
+    /* package */synchronized void onFailure(final long now)
+    {
+        if (open)
+        {
+            if (now - openUntil >= 0L)
+            {
+                // The probe failed
+                openUntil = now + breaker.getOpenDuration();
+            }
+        }
+        else
+        {
+            record(true, now);
+        }
+    }
+
+    /**
+     * @return True if the breaker is open or half open
+     */
+    /* package */synchronized boolean isOpen()
+    {
+        return open;
+    }
+
+    /**
+     * Add an outcome to the window and open the breaker if the window is full and the failures
+     * reach the threshold.
+     */
+    @GuardedBy("this")
+    private void record(final boolean failure, final long now)
+    {
+        if (outcomes == failed.length)
+        {
+            if (failed[next])
+            {
+                failures--;
+            }
+        }
+        else
+        {
+            outcomes++;
+        }
+        failed[next] = failure;
+        if (failure)
+        {
+            failures++;
+        }
+        next = (next + 1) % failed.length;
+        if (outcomes == failed.length && failures >= breaker.getFailureThreshold())
+        {
+            open = true;
+            openUntil = now + breaker.getOpenDuration();
+        }
+    }
+}
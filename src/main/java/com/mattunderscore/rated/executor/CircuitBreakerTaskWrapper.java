@@ -0,0 +1,107 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import com.mattunderscore.executors.CircuitOpenException;
+import com.mattunderscore.executors.ITaskResultProcessor;
+import com.mattunderscore.executors.ITaskWrapper;
+
+/**
+ * Task wrapper for the tasks of an executor with a circuit breaker.
+ * <P>
+ * The wrapper is also the result processor of the task it wraps. The outcome of each execution is
+ * recorded with the {@link CircuitBreakerState} of the executor before it is passed to the
+ * processor of the task, with this wrapper in place of the wrapped task so that repeating tasks
+ * are submitted again with this wrapper. If the breaker fails fast the {@link TaskQueue} fails the
+ * wrapper without executing it. Tasks failed by the open breaker were not executed and are not
+ * recorded.
+ *
+ * @author Matt Champion
+ * @param <V> The type of the result of the task
+ * @since 0.1.2
+ */
+/* package */final class CircuitBreakerTaskWrapper<V> implements ITaskWrapper,
+        ITaskResultProcessor<V>
+{
+    private final ITaskResultProcessor<V> processor;
+    private final CircuitBreakerState breaker;
+    // Set once before the wrapper is submitted
+    private ITaskWrapper wrapper;
+
+    /**
+     * @param processor The processor of the task
+     * @param breaker The state of the circuit breaker of the executor
+     */
+    public CircuitBreakerTaskWrapper(final ITaskResultProcessor<V> processor,
+            final CircuitBreakerState breaker)
+    {
+        this.processor = processor;
+        this.breaker = breaker;
+    }
+
+    /**
+     * Set the wrapped task. Its result processor must be this wrapper.
+     *
+     * @param wrapper The wrapper of the task
+     */
+    /* package */void setWrapper(final ITaskWrapper wrapper)
+    {
+        this.wrapper = wrapper;
+    }
+
+    @Override
+    public void execute()
+    {
+        wrapper.execute();
+    }
+
+    /**
+     * Complete the task with an exception without executing it.
+     *
+     * @param t The exception
+     */
+    public void fail(final Throwable t)
+    {
+        processor.onThrowable(this, t);
+    }
+
+    @Override
+    public void onThrowable(final ITaskWrapper task, final Throwable t)
+    {
+        if (!(t instanceof CircuitOpenException))
+        {
+            breaker.onFailure(System.nanoTime());
+        }
+        processor.onThrowable(this, t);
+    }
+
+    @Override
+    public void onResult(final ITaskWrapper task, final V result)
+    {
+        breaker.onSuccess(System.nanoTime());
+        processor.onResult(this, result);
+    }
+}
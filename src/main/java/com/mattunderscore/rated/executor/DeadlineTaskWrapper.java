@@ -0,0 +1,136 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import java.util.Comparator;
+
+import net.jcip.annotations.GuardedBy;
+
+import com.mattunderscore.executors.DeadlineExpiredException;
+import com.mattunderscore.executors.ISettableFuture;
+import com.mattunderscore.executors.ITaskWrapper;
+
+/**
+ * Task wrapper for a task that must start before a deadline.
+ * <P>
+ * The {@link TaskQueue} expires the task instead of returning it once the deadline has passed.
+ * The future is completed with a {@link DeadlineExpiredException} and the task does not take an
+ * execution.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+/* package */final class DeadlineTaskWrapper implements ITaskWrapper
+{
+    /**
+     * Orders wrappers by deadline, wrappers with the same deadline are in the order they were
+     * added to the queue.
+     */
+    public static final Comparator<DeadlineTaskWrapper> EARLIEST_DEADLINE_FIRST = new Comparator<DeadlineTaskWrapper>()
+    {
+        @Override
+        public int compare(final DeadlineTaskWrapper first, final DeadlineTaskWrapper second)
+        {
+            final long difference = first.deadline - second.deadline;
+            if (difference != 0L)
+            {
+                return difference < 0L ? -1 : 1;
+            }
+            return first.sequence < second.sequence ? -1
+                    : first.sequence == second.sequence ? 0 : 1;
+        }
+    };
+
+    private final ITaskWrapper wrapper;
+    private final ISettableFuture<?> future;
+    private final IInternalExecutor executor;
+    private final long deadline;
+    @GuardedBy("TaskQueue")
+    private long sequence;
+
+    /**
+     * @param wrapper The wrapper of the task
+     * @param future The future of the task
+     * @param executor The executor to stop if the task expires
+     * @param deadline The System.nanoTime the task must start before
+     */
+    public DeadlineTaskWrapper(final ITaskWrapper wrapper, final ISettableFuture<?> future,
+            final IInternalExecutor executor, final long deadline)
+    {
+        this.wrapper = wrapper;
+        this.future = future;
+        this.executor = executor;
+        this.deadline = deadline;
+    }
+
+    @Override
+    public void execute()
+    {
+        wrapper.execute();
+    }
+
+    /**
+     * Complete the task with an exception without executing it, if it is wrapped for a circuit
+     * breaker.
+     *
+     * @param t The exception
+     */
+    public void fail(final Throwable t)
+    {
+        if (wrapper instanceof CircuitBreakerTaskWrapper)
+        {
+            ((CircuitBreakerTaskWrapper<?>) wrapper).fail(t);
+        }
+    }
+
+    /**
+     * Expire the task if its deadline has passed.
+     *
+     * @param now
+     *            The current System.nanoTime
+     * @return True if the task was expired and must not be executed
+     */
+    public boolean expireIfDue(final long now)
+    {
+        final long lateness = now - deadline;
+        if (lateness < 0L)
+        {
+            return false;
+        }
+        future.setException(new DeadlineExpiredException(lateness));
+        // The expired task may have been the only thing keeping the executor running
+        executor.requestStop();
+        return true;
+    }
+
+    /**
+     * Set the position of the wrapper in the order of addition to the queue.
+     */
+    /* package */void setSequence(final long sequence)
+    {
+        this.sequence = sequence;
+    }
+}
@@ -0,0 +1,190 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * {@link IReservation} implementation for a {@link RatedExecutor}.
+ * <P>
+ * Each slot is a {@link PermitTaskWrapper} on the queue of the executor. The slots are added to
+ * the queue together and take the places of tasks, so reserved slots and tasks share the rate of
+ * the executor. The time of a slot is estimated when it is reserved and fixed once the executor
+ * reaches it. Waiting for a slot waits for its permit to be granted, a task bound to a slot is
+ * handed to its service when the permit is granted. Releasing a slot removes its permit from the
+ * queue so the tasks behind it move up.
+ * <P>
+ * The state of each slot is changed once, from reserved to used or released, by compare and set.
+ * The slots of an executor that is shut down with {@link RatedExecutor#shutdownNow()} are
+ * rejected, waiting for one throws a {@link java.util.concurrent.RejectedExecutionException} and a
+ * bound task is cancelled.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+@ThreadSafe
+/* package */final class ExecutorReservation implements IReservation
+{
+    private static final int RESERVED = 0;
+    private static final int USED = 1;
+    private static final int RELEASED = 2;
+
+    private final RatedExecutor executor;
+    private final PermitTaskWrapper[] permits;
+    private final long firstSlot;
+    private final long period;
+    private final AtomicIntegerArray states;
+
+    /**
+     * @param executor The executor the slots are queued on
+     * @param permits The permits of the slots, in queue order
+     * @param firstSlot The estimated System.nanoTime of the first slot
+     * @param period The period in nanoseconds between the estimated times of the slots
+     */
+    public ExecutorReservation(final RatedExecutor executor, final PermitTaskWrapper[] permits,
+            final long firstSlot, final long period)
+    {
+        this.executor = executor;
+        this.permits = permits;
+        this.firstSlot = firstSlot;
+        this.period = period;
+        this.states = new AtomicIntegerArray(permits.length);
+    }
+
+    @Override
+    public int size()
+    {
+        return permits.length;
+    }
+
+    @Override
+    public long getDelay(final int slot, final TimeUnit unit)
+    {
+        final PermitTaskWrapper permit = permits[slot];
+        final long time = permit.isGranted() ? permit.getGrantTime() : firstSlot + slot * period;
+        return unit.convert(time - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void await(final int slot) throws InterruptedException
+    {
+        use(slot);
+        permits[slot].await();
+    }
+
+    @Override
+    public ScheduledFuture<?> bind(final int slot, final Runnable task,
+            final ScheduledExecutorService service)
+    {
+        return bind(slot, Executors.callable(task), service);
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> bind(final int slot, final Callable<V> task,
+            final ScheduledExecutorService service)
+    {
+        use(slot);
+        final SlotFuture<V> future = new SlotFuture<V>(task, slot);
+        permits[slot].bind(future, service);
+        return future;
+    }
+
+    @Override
+    public boolean release(final int slot)
+    {
+        if (states.compareAndSet(slot, RESERVED, RELEASED))
+        {
+            final PermitTaskWrapper permit = permits[slot];
+            if (permit.withdraw())
+            {
+                executor.cancelTask(permit, false);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public int releaseAll()
+    {
+        int released = 0;
+        for (int i = 0; i < permits.length; i++)
+        {
+            if (release(i))
+            {
+                released++;
+            }
+        }
+        return released;
+    }
+
+    private void use(final int slot)
+    {
+        if (!states.compareAndSet(slot, RESERVED, USED))
+        {
+            throw new IllegalStateException("Slot " + slot + " has already been used or released");
+        }
+    }
+
+    /**
+     * The future of a task bound to a slot. Its delay is the delay of the slot.
+     *
+     * @author Matt Champion
+     */
+    private final class SlotFuture<V> extends FutureTask<V> implements ScheduledFuture<V>
+    {
+        private final int slot;
+
+        public SlotFuture(final Callable<V> task, final int slot)
+        {
+            super(task);
+            this.slot = slot;
+        }
+
+        @Override
+        public long getDelay(final TimeUnit unit)
+        {
+            return ExecutorReservation.this.getDelay(slot, unit);
+        }
+
+        @Override
+        public int compareTo(final Delayed other)
+        {
+            final long difference = getDelay(TimeUnit.NANOSECONDS)
+                    - other.getDelay(TimeUnit.NANOSECONDS);
+            return difference < 0L ? -1 : (difference > 0L ? 1 : 0);
+        }
+    }
+}
@@ -25,6 +25,10 @@ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
 
 package com.mattunderscore.rated.executor;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 import com.mattunderscore.executors.ITaskWrapper;
 
 /**
@@ -32,6 +36,9 @@ import com.mattunderscore.executors.ITaskWrapper;
  * <P>
  * It is not responsible for constructing futures, cancelling tasks or determining when to put
  * tasks on the queue. It is solely responsible for the timing of the execution of tasks.
+ * <P>
+ * Once shut down the internal executor executes the tasks left on the queue and then terminates,
+ * releasing any thread it holds.
  * 
  * @author Matt Champion
  * @since 0.1.1
@@ -43,8 +50,19 @@ import com.mattunderscore.executors.ITaskWrapper;
      * 
      * @param wrapper
      *            The task to execute
+     * @return False if the executor has been shut down and the task was not accepted
+     */
+    public boolean submit(ITaskWrapper wrapper);
+
+    /**
+     * Submit a collection of tasks to the internal executor. The tasks are added to the queue in a
+     * single operation.
+     *
+     * @param wrappers
+     *            The tasks to execute
+     * @return False if the executor has been shut down and the tasks were not accepted
      */
-    public void submit(ITaskWrapper wrapper);
+    public boolean submitAll(Collection<? extends ITaskWrapper> wrappers);
 
     /**
      * Stop the internal executor if it has no tasks to execute within its period. Any activity
@@ -64,4 +82,56 @@ import com.mattunderscore.executors.ITaskWrapper;
      * @return True if the thread was interrupted
      */
     public boolean interrupt();
+
+    /**
+     * Project when a task added to the back of the queue now would start. Each queued task is
+     * expected to take one execution at the rate.
+     * @return The projected start as a System.nanoTime
+     */
+    public long estimatedStartTime();
+
+    /**
+     * @return The period in nanoseconds each queued task is expected to take
+     */
+    public long getPeriod();
+
+    /**
+     * Stop executing tasks until a time. The queued tasks are not polled until the executor
+     * resumes, then it starts again at the rate without executing the missed executions. If
+     * already paused until a later time the later time is kept.
+     * @param time The System.nanoTime to resume at
+     */
+    public void pauseUntil(long time);
+
+    /**
+     * Resume executing tasks after a pause.
+     */
+    public void resume();
+
+    /**
+     * Stop accepting tasks. The tasks already queued are executed at the rate, the executor
+     * terminates once the queue is empty.
+     */
+    public void shutdown();
+
+    /**
+     * Stop accepting tasks and remove the queued tasks. The executor terminates once the
+     * executing task, if any, has completed.
+     * @return The tasks that were queued
+     */
+    public List<ITaskWrapper> shutdownNow();
+
+    /**
+     * @return True if the executor has terminated
+     */
+    public boolean isTerminated();
+
+    /**
+     * Wait for the executor to terminate after being shut down.
+     * @param timeout The maximum time to wait
+     * @param unit The unit of the timeout
+     * @return True if the executor terminated, false if the timeout elapsed
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException;
 }
\ No newline at end of file
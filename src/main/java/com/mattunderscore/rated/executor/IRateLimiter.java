@@ -0,0 +1,115 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Interface for rate limiters, it grants permits no faster than a fixed rate.
+ * <P>
+ * A caller that holds a permit can run its work on its own thread. There is no hand off to an
+ * executor thread, no queue and no future. Permits are granted in the order they are requested
+ * and are spaced at least a period apart. A limiter that has been idle grants a permit
+ * immediately.
+ * <P>
+ * Slots for permits can be reserved ahead at known times. Slots that are released are returned to
+ * the limiter and can be taken by callers acquiring a permit.
+ * <P>
+ * A rated executor is also a limiter, its permits and slots take places on its queue and share its
+ * rate with its tasks. A limiter created on its own has its own budget of permits, it is not
+ * shared with any rated executor. Work paced by such a limiter and tasks submitted to an executor
+ * with the same rate together run at twice the rate. Share a single limiter or executor to give
+ * callers a common budget.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+public interface IRateLimiter
+{
+    /**
+     * Acquire a permit if one is available now.
+     *
+     * @return True if a permit was acquired
+     * @since 0.1.2
+     */
+    public boolean tryAcquire();
+
+    /**
+     * Acquire a permit, waiting until one is available.
+     *
+     * @throws InterruptedException
+     *             If interrupted while waiting, the permit is not returned
+     * @since 0.1.2
+     */
+    public void acquire() throws InterruptedException;
+
+    /**
+     * Acquire a permit if one is available within a timeout, waiting until it is available.
+     * <P>
+     * If no permit is available within the timeout this returns false immediately instead of
+     * waiting for the timeout to pass.
+     *
+     * @param timeout
+     *            The maximum time to wait
+     * @param unit
+     *            The unit of the timeout
+     * @return True if a permit was acquired
+     * @throws InterruptedException
+     *             If interrupted while waiting, the permit is not returned
+     * @since 0.1.2
+     */
+    public boolean acquire(long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * Acquire a number of permits together, waiting until the first is available.
+     * <P>
+     * The caller is granted the permits at the time of the first. The rest take the slots after
+     * it, so the next caller waits for all of them to pass. Weighted work, such as a number of
+     * bytes, can be paid for with one call without waiting for every permit.
+     *
+     * @param permits
+     *            The number of permits
+     * @throws InterruptedException
+     *             If interrupted while waiting, the permits are not returned
+     * @throws IllegalArgumentException
+     *             If the number of permits is less than one
+     * @since 0.1.2
+     */
+    public void acquire(int permits) throws InterruptedException;
+
+    /**
+     * Reserve the next slots for permits. The slots are consecutive permits, the first is the next
+     * permit that would have been granted.
+     *
+     * @param slots
+     *            The number of slots to reserve
+     * @return The reservation
+     * @throws IllegalArgumentException
+     *             If the number of slots is less than one
+     * @since 0.1.2
+     */
+    public IReservation reserve(int slots);
+}
@@ -25,10 +25,16 @@ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
 
 package com.mattunderscore.rated.executor;
 
+import java.util.Date;
 import java.util.concurrent.Callable;
-import java.util.concurrent.Future;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
+import com.mattunderscore.executors.IListenableFuture;
+import com.mattunderscore.executors.IPublisher;
 import com.mattunderscore.executors.IRepeatingFuture;
+import com.mattunderscore.executors.IResultConsumer;
 import com.mattunderscore.executors.IUniversalExecutor;
 
 /**
@@ -44,11 +50,20 @@ import com.mattunderscore.executors.IUniversalExecutor;
  * rate of the executor. If two repeating tasks are submitted to the executor each task will execute
  * at an interval twice the executor rate and their execution will be separated from each other by
  * an interval equal to the rate of the executor.
+ * <P>
+ * Rated executors are {@link ExecutorService}s. After shutdown no new tasks are accepted, the
+ * queued tasks are executed at the rate and then the executor terminates. Tasks scheduled for
+ * repeated execution are not queued again after shutdown, their futures are cancelled.
+ * {@link #shutdownNow()} removes the queued tasks and returns them. The collections of tasks passed
+ * to {@link #invokeAll(java.util.Collection)} are queued in a single operation.
+ * <P>
+ * Rated executors are {@link IRateLimiter}s. Permits and reserved slots take places on the queue
+ * like tasks, so they share the rate of the executor with its tasks.
  * 
  * @author Matt Champion
  * @since 0.0.1
  */
-public interface IRatedExecutor extends IUniversalExecutor
+public interface IRatedExecutor extends IUniversalExecutor, ExecutorService, IRateLimiter
 {
     /**
      * Submit a task to be executed once.
@@ -61,7 +76,7 @@ public interface IRatedExecutor extends IUniversalExecutor
      * @return Future that allows the task to be cancelled and monitored
      * @since 0.0.1
      */
-    public Future<?> submit(Runnable task);
+    public IListenableFuture<?> submit(Runnable task);
 
     /**
      * Submit a task to be executed once.
@@ -74,7 +89,273 @@ public interface IRatedExecutor extends IUniversalExecutor
      * @return Future that allows the task to be cancelled and monitored
      * @since 0.0.2
      */
-    public <V> Future<V> submit(Callable<V> task);
+    public <V> IListenableFuture<V> submit(Callable<V> task);
+
+    /**
+     * Submit a task to be executed once.
+     * <P>
+     * This task will be executed as soon as possible without exceeding the rate limit. A future
+     * will be returned to allow the task to be cancelled and monitored.
+     *
+     * @param task
+     *            Task to execute
+     * @param result
+     *            The result of the future when the task completes
+     * @return Future that allows the task to be cancelled and monitored
+     * @since 0.1.2
+     */
+    public <V> IListenableFuture<V> submit(Runnable task, V result);
+
+    /**
+     * Submit a task to be executed once if it can be started before a deadline.
+     * <P>
+     * If the deadline passes while the task is queued the task is not executed and does not take
+     * an execution from the rate. The future fails with a
+     * {@link com.mattunderscore.executors.DeadlineExpiredException}.
+     *
+     * @param task
+     *            Task to execute
+     * @param timeout
+     *            The time from now that the task must start within
+     * @param unit
+     *            The unit of the timeout
+     * @return Future that allows the task to be cancelled and monitored
+     * @since 0.1.2
+     */
+    public IListenableFuture<?> submit(Runnable task, long timeout, TimeUnit unit);
+
+    /**
+     * Submit a task to be executed once if it can be started before a deadline.
+     * <P>
+     * If the deadline passes while the task is queued the task is not executed and does not take
+     * an execution from the rate. The future fails with a
+     * {@link com.mattunderscore.executors.DeadlineExpiredException}.
+     *
+     * @param task
+     *            Task to execute
+     * @param timeout
+     *            The time from now that the task must start within
+     * @param unit
+     *            The unit of the timeout
+     * @return Future that allows the task to be cancelled and monitored
+     * @since 0.1.2
+     */
+    public <V> IListenableFuture<V> submit(Callable<V> task, long timeout, TimeUnit unit);
+
+    /**
+     * Submit a task to be executed once, retrying it if it throws an exception.
+     * <P>
+     * Retries are executed ahead of the queued tasks once their backoff has passed, see
+     * {@link RetryPolicy}. The future completes with the result of the first successful attempt
+     * or the exception of the last attempt.
+     *
+     * @param task
+     *            Task to execute
+     * @param policy
+     *            The retry policy
+     * @return Future that allows the task to be cancelled and monitored
+     * @since 0.1.2
+     */
+    public IListenableFuture<?> submit(Runnable task, RetryPolicy policy);
+
+    /**
+     * Submit a task to be executed once, retrying it if it throws an exception.
+     * <P>
+     * Retries are executed ahead of the queued tasks once their backoff has passed, see
+     * {@link RetryPolicy}. The future completes with the result of the first successful attempt
+     * or the exception of the last attempt.
+     *
+     * @param task
+     *            Task to execute
+     * @param policy
+     *            The retry policy
+     * @return Future that allows the task to be cancelled and monitored
+     * @since 0.1.2
+     */
+    public <V> IListenableFuture<V> submit(Callable<V> task, RetryPolicy policy);
+
+    /**
+     * Pause the executor until it is resumed.
+     * <P>
+     * No queued tasks are executed while paused, tasks can still be submitted. When resumed the
+     * executor starts again at its rate, the executions missed during the pause are not caught
+     * up. A task executing when the executor is paused completes. A shut down executor does not
+     * terminate until it is resumed unless its queue is empty.
+     *
+     * @since 0.1.2
+     */
+    public void pause();
+
+    /**
+     * Pause the executor for a time, for example the delay of a Retry-After response. If already
+     * paused until a later time the later time is kept, see {@link #pause()}.
+     *
+     * @param delay
+     *            The time to pause for
+     * @param unit
+     *            The unit of the delay
+     * @since 0.1.2
+     */
+    public void pauseFor(long delay, TimeUnit unit);
+
+    /**
+     * Pause the executor until a time on the wall clock, for example the date of a Retry-After
+     * response. If already paused until a later time the later time is kept, see {@link #pause()}.
+     *
+     * @param time
+     *            The time to resume at
+     * @since 0.1.2
+     */
+    public void pauseUntil(Date time);
+
+    /**
+     * Resume the executor after a pause. The next execution is at the earliest time allowed by the
+     * rate.
+     *
+     * @since 0.1.2
+     */
+    public void resume();
+
+    /**
+     * Estimate how long a task submitted now would wait before starting.
+     * <P>
+     * The estimate assumes each queued task takes one execution at the rate. Tasks that run for
+     * longer than the rate or tasks submitted ahead of it will make the wait longer.
+     *
+     * @param unit
+     *            The unit of the estimate
+     * @return The estimated wait
+     * @since 0.1.2
+     */
+    public long estimatedWait(TimeUnit unit);
+
+    /**
+     * Submit a task to be executed once if it is expected to start within a maximum wait.
+     * <P>
+     * If the estimated wait is longer than the maximum wait the task is rejected without being
+     * queued. Otherwise the task is submitted with the maximum wait as its deadline, see
+     * {@link #submit(Runnable, long, TimeUnit)}.
+     *
+     * @param task
+     *            Task to execute
+     * @param maxWait
+     *            The maximum time the task may wait to start
+     * @param unit
+     *            The unit of the maximum wait
+     * @return Future that allows the task to be cancelled and monitored or null if the task was
+     *         rejected
+     * @since 0.1.2
+     */
+    public IListenableFuture<?> trySubmit(Runnable task, long maxWait, TimeUnit unit);
+
+    /**
+     * Submit a task to be executed once if it is expected to start within a maximum wait.
+     * <P>
+     * If the estimated wait is longer than the maximum wait the task is rejected without being
+     * queued. Otherwise the task is submitted with the maximum wait as its deadline, see
+     * {@link #submit(Callable, long, TimeUnit)}.
+     *
+     * @param task
+     *            Task to execute
+     * @param maxWait
+     *            The maximum time the task may wait to start
+     * @param unit
+     *            The unit of the maximum wait
+     * @return Future that allows the task to be cancelled and monitored or null if the task was
+     *         rejected
+     * @since 0.1.2
+     */
+    public <V> IListenableFuture<V> trySubmit(Callable<V> task, long maxWait, TimeUnit unit);
+
+    /**
+     * Acquire a permit if the executor would start a task now.
+     * <P>
+     * A permit takes a place on the queue like a task and is granted when the executor reaches it.
+     * The caller then runs its work on its own thread, permits and tasks share the rate of the
+     * executor. Whether a permit is available is decided from the estimated wait, as for
+     * {@link #trySubmit(Callable, long, TimeUnit)}. The caller only waits for the executor to
+     * grant the permit.
+     *
+     * @return True if a permit was acquired
+     * @throws RejectedExecutionException
+     *             If the executor has been shut down or the permit was removed from the queue
+     *             before it was granted
+     * @since 0.1.2
+     */
+    public boolean tryAcquire();
+
+    /**
+     * Acquire a permit, waiting until the executor grants it. Permits and tasks share the rate of
+     * the executor.
+     *
+     * @throws InterruptedException
+     *             If interrupted while waiting, a permit that has not been granted is removed
+     *             from the queue
+     * @throws RejectedExecutionException
+     *             If the executor has been shut down or the permit was removed from the queue
+     *             before it was granted
+     * @since 0.1.2
+     */
+    public void acquire() throws InterruptedException;
+
+    /**
+     * Acquire a permit if it is expected to be granted within a timeout, waiting until the
+     * executor grants it.
+     * <P>
+     * If the estimated wait is longer than the timeout this returns false without queuing a
+     * permit. Otherwise the caller waits for the permit to be granted.
+     *
+     * @param timeout
+     *            The maximum time to wait
+     * @param unit
+     *            The unit of the timeout
+     * @return True if a permit was acquired
+     * @throws InterruptedException
+     *             If interrupted while waiting, a permit that has not been granted is removed
+     *             from the queue
+     * @throws RejectedExecutionException
+     *             If the executor has been shut down or the permit was removed from the queue
+     *             before it was granted
+     * @since 0.1.2
+     */
+    public boolean acquire(long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * Acquire a number of permits together, waiting until the first is granted.
+     * <P>
+     * The permits are queued together. The caller is granted them at the time of the first, the
+     * rest take the places after it on the queue.
+     *
+     * @param permits
+     *            The number of permits
+     * @throws InterruptedException
+     *             If interrupted while waiting, the permits after the first are not returned
+     * @throws RejectedExecutionException
+     *             If the executor has been shut down or the permit was removed from the queue
+     *             before it was granted
+     * @throws IllegalArgumentException
+     *             If the number of permits is less than one
+     * @since 0.1.2
+     */
+    public void acquire(int permits) throws InterruptedException;
+
+    /**
+     * Reserve the next places on the queue as slots for permits.
+     * <P>
+     * The slots are queued together and take the places of tasks. Their times are estimated from
+     * the rate when reserved and are fixed once the executor reaches them. A released slot is
+     * removed from the queue, the tasks behind it move up.
+     *
+     * @param slots
+     *            The number of slots to reserve
+     * @return The reservation
+     * @throws RejectedExecutionException
+     *             If the executor has been shut down
+     * @throws IllegalArgumentException
+     *             If the number of slots is less than one
+     * @since 0.1.2
+     */
+    public IReservation reserve(int slots);
 
     /**
      * Submit a task to be executed repeatedly.
@@ -88,7 +369,41 @@ public interface IRatedExecutor extends IUniversalExecutor
      * @return Future that allows the task to be cancelled and monitored
      * @since 0.0.1
      */
-    public Future<?> schedule(Runnable task);
+    public IListenableFuture<?> schedule(Runnable task);
+
+    /**
+     * Submit a task to be executed repeatedly, passing each result to a consumer.
+     * <P>
+     * This task will be executed as soon as possible without exceeding the rate limit. It will be
+     * repeated until it is cancelled or the consumer throws an exception. The results are not
+     * stored, each is passed to the consumer on the executing thread before the next execution
+     * can start. The future completes when the task stops repeating.
+     *
+     * @param task
+     *            Task to execute
+     * @param consumer
+     *            Receives the result of each execution
+     * @return Future that allows the task to be cancelled and monitored
+     * @since 0.1.2
+     */
+    public <V> IListenableFuture<?> schedule(Callable<V> task, IResultConsumer<? super V> consumer);
+
+    /**
+     * Schedule a task to be executed repeatedly, publishing each result to a subscriber.
+     * <P>
+     * The task is only executed while the subscriber has outstanding demand. Each result is passed
+     * to the subscriber on the executing thread before the next execution can start. When the
+     * demand runs out the task leaves the queue until more is requested, so no executions are
+     * spent and no results are buffered. A single subscriber is supported. The stream fails if the
+     * task throws an exception and the task is removed from the queue if the subscription is
+     * cancelled.
+     *
+     * @param task
+     *            Task to execute
+     * @return Publisher of the result of each execution
+     * @since 0.1.2
+     */
+    public <V> IPublisher<V> schedule(Callable<V> task);
 
     /**
      * Submit a task to be executed repeatedly.
@@ -119,4 +434,36 @@ public interface IRatedExecutor extends IUniversalExecutor
      * @since 0.1.0
      */
     public <V> IRepeatingFuture<V> schedule(Callable<V> task, int repetitions);
+
+    /**
+     * Submit a task to be executed repeatedly, retaining only the results of the most recent
+     * executions.
+     * <P>
+     * This behaves like {@link #schedule(Runnable, int)} but the future will only keep the results
+     * of the last retainedResults executions. Memory used by the future does not grow with the
+     * number of repetitions.
+     *
+     * @param task Task to execute
+     * @param repetitions The number of times the task will be executed
+     * @param retainedResults The number of results to retain, may be 0
+     * @return Future that allows the task to be cancelled and monitored
+     * @since 0.1.2
+     */
+    public IRepeatingFuture<?> schedule(Runnable task, int repetitions, int retainedResults);
+
+    /**
+     * Submit a task to be executed repeatedly, retaining only the results of the most recent
+     * executions.
+     * <P>
+     * This behaves like {@link #schedule(Callable, int)} but the future will only keep the results
+     * of the last retainedResults executions. Memory used by the future does not grow with the
+     * number of repetitions.
+     *
+     * @param task Task to execute
+     * @param repetitions The number of times the task will be executed
+     * @param retainedResults The number of results to retain, may be 0
+     * @return Future that allows the task to be cancelled and monitored
+     * @since 0.1.2
+     */
+    public <V> IRepeatingFuture<V> schedule(Callable<V> task, int repetitions, int retainedResults);
 }
@@ -0,0 +1,78 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import java.util.concurrent.TimeUnit;
+
+import com.mattunderscore.executors.IUniversalExecutor;
+
+/**
+ * A group of rated executors that share a fixed pool of threads.
+ * <P>
+ * Each executor created by the group keeps its own rate and its own queue of tasks. The threads of
+ * the group are shared between them so the number of threads does not grow with the number of
+ * executors and threads are not created or destroyed when an executor becomes idle or busy. A task
+ * that takes a long time to execute will occupy one of the shared threads and may delay the tasks
+ * of other executors if all the threads are in use.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+public interface IRatedExecutorGroup
+{
+    /**
+     * Create a new rated executor that uses the threads of this group.
+     *
+     * @param rate
+     *            The rate of the executor
+     * @param unit
+     *            The time unit of the rate
+     * @return The executor
+     * @since 0.1.2
+     */
+    public IRatedExecutor ratedExecutor(long rate, TimeUnit unit);
+
+    /**
+     * Create a new rated executor that uses the threads of this group and returns no futures.
+     *
+     * @param rate
+     *            The rate of the executor
+     * @param unit
+     *            The time unit of the rate
+     * @return The executor
+     * @since 0.1.2
+     */
+    public IUniversalExecutor simpleRatedExecutor(long rate, TimeUnit unit);
+
+    /**
+     * Stop the threads of the group. Tasks that have not yet been executed by any of the executors
+     * of the group will not be executed. The executors of the group reject tasks submitted after
+     * the group has been shut down.
+     *
+     * @since 0.1.2
+     */
+    public void shutdown();
+}
@@ -0,0 +1,127 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A number of permit slots reserved from an {@link IRateLimiter} at known times.
+ * <P>
+ * Each slot can be used once, either by waiting for it or by binding a task to it, or released.
+ * A released slot is returned to the limiter and can be taken by the next caller to acquire a
+ * permit. The slots of a rated executor are places on its queue, their times are estimated until
+ * the executor reaches them and a released slot lets the tasks behind it move up.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+public interface IReservation
+{
+    /**
+     * @return The number of slots reserved
+     * @since 0.1.2
+     */
+    public int size();
+
+    /**
+     * The time until a slot. The delay is negative once the time of the slot has passed.
+     *
+     * @param slot
+     *            The index of the slot
+     * @param unit
+     *            The unit of the delay
+     * @return The time until the slot
+     * @since 0.1.2
+     */
+    public long getDelay(int slot, TimeUnit unit);
+
+    /**
+     * Use a slot by waiting for its time.
+     *
+     * @param slot
+     *            The index of the slot
+     * @throws IllegalStateException
+     *             If the slot has already been used or released
+     * @throws InterruptedException
+     *             If interrupted while waiting, the slot is not returned
+     * @since 0.1.2
+     */
+    public void await(int slot) throws InterruptedException;
+
+    /**
+     * Use a slot by scheduling a task for its time.
+     *
+     * @param slot
+     *            The index of the slot
+     * @param task
+     *            The task to execute
+     * @param service
+     *            The service to execute the task on
+     * @return The future of the task
+     * @throws IllegalStateException
+     *             If the slot has already been used or released
+     * @since 0.1.2
+     */
+    public ScheduledFuture<?> bind(int slot, Runnable task, ScheduledExecutorService service);
+
+    /**
+     * Use a slot by scheduling a task for its time.
+     *
+     * @param slot
+     *            The index of the slot
+     * @param task
+     *            The task to execute
+     * @param service
+     *            The service to execute the task on
+     * @return The future of the task
+     * @throws IllegalStateException
+     *             If the slot has already been used or released
+     * @since 0.1.2
+     */
+    public <V> ScheduledFuture<V> bind(int slot, Callable<V> task,
+            ScheduledExecutorService service);
+
+    /**
+     * Return a slot to the limiter.
+     *
+     * @param slot
+     *            The index of the slot
+     * @return False if the slot has already been used or released
+     * @since 0.1.2
+     */
+    public boolean release(int slot);
+
+    /**
+     * Return all the slots that have not been used or released to the limiter.
+     *
+     * @return The number of slots released
+     * @since 0.1.2
+     */
+    public int releaseAll();
+}
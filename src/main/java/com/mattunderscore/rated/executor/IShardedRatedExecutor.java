@@ -0,0 +1,141 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.mattunderscore.executors.IUniversalExecutor;
+
+/**
+ * A rated executor that splits its rate across a number of lanes.
+ * <P>
+ * Each lane has its own queue and thread and executes tasks at the rate of the executor multiplied
+ * by the number of lanes, so together the lanes keep to the rate of the executor. This avoids a
+ * single thread and queue limiting the throughput of executors with very short periods. The first
+ * executions of the lanes are staggered across the period of a lane, but a lane that restarts
+ * after running out of tasks is not spaced relative to the other lanes.
+ * <P>
+ * Tasks submitted with a key are pinned to the lane chosen by the key and are executed in the order
+ * they were submitted. Tasks submitted without a key are dealt to the lanes in turn, a lane that
+ * has no tasks of its own steals them from the other lanes so a busy or blocked lane does not hold
+ * them up and idle lanes do not waste their executions.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+public interface IShardedRatedExecutor extends IUniversalExecutor
+{
+    /**
+     * Execute a task on the next lane, it may be stolen by another lane.
+     *
+     * @param task
+     *            The task
+     * @throws RejectedExecutionException
+     *             If the executor has been shut down
+     * @since 0.1.2
+     */
+    @Override
+    public void execute(Runnable task);
+
+    /**
+     * Execute a task on the next lane, it may be stolen by another lane. The result is discarded.
+     *
+     * @param task
+     *            The task
+     * @throws RejectedExecutionException
+     *             If the executor has been shut down
+     * @since 0.1.2
+     */
+    @Override
+    public <V> void execute(Callable<V> task);
+
+    /**
+     * Execute a task on the lane chosen by a key. Tasks with equal keys are executed in the order
+     * they were submitted.
+     *
+     * @param key
+     *            The key
+     * @param task
+     *            The task
+     * @throws RejectedExecutionException
+     *             If the executor has been shut down
+     * @since 0.1.2
+     */
+    public void execute(Object key, Runnable task);
+
+    /**
+     * Execute a task on the lane chosen by a key. Tasks with equal keys are executed in the order
+     * they were submitted. The result is discarded.
+     *
+     * @param key
+     *            The key
+     * @param task
+     *            The task
+     * @throws RejectedExecutionException
+     *             If the executor has been shut down
+     * @since 0.1.2
+     */
+    public <V> void execute(Object key, Callable<V> task);
+
+    /**
+     * The number of lanes of the executor.
+     *
+     * @return The number of lanes
+     * @since 0.1.2
+     */
+    public int lanes();
+
+    /**
+     * Stop accepting tasks. The tasks already submitted are executed.
+     *
+     * @since 0.1.2
+     */
+    public void shutdown();
+
+    /**
+     * If every lane has terminated after being shut down.
+     *
+     * @return True if the executor has terminated
+     * @since 0.1.2
+     */
+    public boolean isTerminated();
+
+    /**
+     * Wait for the executor to terminate after being shut down.
+     *
+     * @param timeout
+     *            The maximum time to wait
+     * @param unit
+     *            The time unit of the timeout
+     * @return True if the executor terminated, false if the timeout passed
+     * @throws InterruptedException
+     *             If interrupted while waiting
+     * @since 0.1.2
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException;
+}
@@ -0,0 +1,106 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import net.jcip.annotations.Immutable;
+
+/**
+ * Random delays added to the schedule of a rated executor.
+ * <P>
+ * Executors started at the same moment, for example by replicas of the same service, execute tasks
+ * at the same moments. Adding a random delay to the time of each execution spreads the executions
+ * of different executors apart. The delay is never negative and is added on top of a target time
+ * calculated without jitter, so delays do not build up. To keep executions at least a period
+ * apart the targets are the period plus the maximum delay apart. With a uniform jitter the
+ * average interval between executions is the period plus the maximum delay and the shortest is
+ * the period. The maximum delay must be shorter than the period.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+@Immutable
+public final class Jitter
+{
+    private static final Jitter NONE = new Jitter(0L);
+
+    private final long maxDelay;
+
+    private Jitter(final long maxDelay)
+    {
+        this.maxDelay = maxDelay;
+    }
+
+    /**
+     * No random delay.
+     *
+     * @return The jitter
+     */
+    public static Jitter none()
+    {
+        return NONE;
+    }
+
+    /**
+     * A random delay distributed uniformly between zero and a maximum.
+     *
+     * @param maxDelay
+     *            The maximum delay
+     * @param unit
+     *            The time unit of the maximum delay
+     * @return The jitter
+     */
+    public static Jitter uniform(final long maxDelay, final TimeUnit unit)
+    {
+        if (maxDelay < 0L)
+        {
+            throw new IllegalArgumentException("The maximum delay cannot be negative");
+        }
+        return new Jitter(unit.toNanos(maxDelay));
+    }
+
+    /**
+     * @return A random delay in nanoseconds
+     */
+    /* package */long delay()
+    {
+        if (maxDelay == 0L)
+        {
+            return 0L;
+        }
+        return ThreadLocalRandom.current().nextLong(maxDelay);
+    }
+
+    /**
+     * @return The maximum delay in nanoseconds
+     */
+    /* package */long maxDelay()
+    {
+        return maxDelay;
+    }
+}
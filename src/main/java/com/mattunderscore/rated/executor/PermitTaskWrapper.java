@@ -0,0 +1,203 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import net.jcip.annotations.ThreadSafe;
+
+import com.mattunderscore.executors.ITaskWrapper;
+
+/**
+ * Task wrapper for a permit acquired from a rated executor.
+ * <P>
+ * The permit takes a place on the queue like any other task, so permits and tasks share the rate
+ * of the executor. Executing the wrapper grants the permit and unparks the waiting thread, which
+ * then runs its work itself. A task bound to the permit is handed to its service instead. A permit
+ * removed from the queue without being executed, by {@link RatedExecutor#shutdownNow()} or a
+ * circuit breaker that fails fast, is rejected and a bound task is cancelled. The state of the
+ * permit is changed once, from waiting to granted, withdrawn or rejected, by compare and set.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+@ThreadSafe
+/* package */final class PermitTaskWrapper implements ITaskWrapper
+{
+    private static final int WAITING = 0;
+    private static final int GRANTED = 1;
+    private static final int WITHDRAWN = 2;
+    private static final int REJECTED = 3;
+
+    private final AtomicInteger state = new AtomicInteger(WAITING);
+    private final AtomicReference<RunnableFuture<?>> bound =
+            new AtomicReference<RunnableFuture<?>>();
+    private volatile Thread waiter;
+    private volatile ScheduledExecutorService service;
+    private volatile long grantTime;
+
+    @Override
+    public void execute()
+    {
+        if (state.compareAndSet(WAITING, GRANTED))
+        {
+            grantTime = System.nanoTime();
+            final Thread current = waiter;
+            if (current != null)
+            {
+                LockSupport.unpark(current);
+            }
+            handOff();
+        }
+    }
+
+    /**
+     * Reject the permit because it was removed from the queue without being executed.
+     */
+    public void reject()
+    {
+        if (state.compareAndSet(WAITING, REJECTED))
+        {
+            final Thread current = waiter;
+            if (current != null)
+            {
+                LockSupport.unpark(current);
+            }
+            final RunnableFuture<?> task = bound.getAndSet(null);
+            if (task != null)
+            {
+                task.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Withdraw the permit before it is granted. The caller is responsible for removing it from the
+     * queue.
+     *
+     * @return False if the permit has already been granted or rejected
+     */
+    public boolean withdraw()
+    {
+        return state.compareAndSet(WAITING, WITHDRAWN);
+    }
+
+    /**
+     * @return True if the permit has been granted
+     */
+    public boolean isGranted()
+    {
+        return state.get() == GRANTED;
+    }
+
+    /**
+     * @return The System.nanoTime the permit was granted at, only set once granted
+     */
+    public long getGrantTime()
+    {
+        return grantTime;
+    }
+
+    /**
+     * Park the calling thread until the permit is granted. Only one thread may wait for a permit.
+     *
+     * @throws InterruptedException
+     *             If interrupted while waiting
+     * @throws RejectedExecutionException
+     *             If the permit was rejected
+     */
+    public void await() throws InterruptedException
+    {
+        // The state is checked after setting the waiter so a grant is never missed
+        waiter = Thread.currentThread();
+        while (true)
+        {
+            final int current = state.get();
+            if (current == GRANTED)
+            {
+                return;
+            }
+            else if (current != WAITING)
+            {
+                throw new RejectedExecutionException("The permit was not granted");
+            }
+            else if (Thread.interrupted())
+            {
+                throw new InterruptedException();
+            }
+            LockSupport.park(this);
+        }
+    }
+
+    /**
+     * Bind a task to the permit. It is executed by the service when the permit is granted, or at
+     * once if it has already been granted.
+     *
+     * @param task
+     *            The task to execute
+     * @param taskService
+     *            The service to execute the task on
+     */
+    public void bind(final RunnableFuture<?> task, final ScheduledExecutorService taskService)
+    {
+        service = taskService;
+        bound.set(task);
+        // The state is checked after binding so the task is handed off by one of the two threads
+        final int current = state.get();
+        if (current == GRANTED)
+        {
+            handOff();
+        }
+        else if (current != WAITING && bound.compareAndSet(task, null))
+        {
+            task.cancel(false);
+        }
+    }
+
+    /**
+     * Hand a bound task to its service. The task is taken so it is only handed off once.
+     */
+    private void handOff()
+    {
+        final RunnableFuture<?> task = bound.getAndSet(null);
+        if (task != null)
+        {
+            try
+            {
+                service.execute(task);
+            }
+            catch (final RejectedExecutionException e)
+            {
+                task.cancel(false);
+            }
+        }
+    }
+}
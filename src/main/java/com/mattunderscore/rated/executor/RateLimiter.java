@@ -0,0 +1,236 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * {@link IRateLimiter} implementation that reserves the time of each permit.
+ * <P>
+ * The time of the next free permit is held in an {@link AtomicLong}. Acquiring a permit moves the
+ * next free permit a period past the time of the acquired one. The caller then parks until the
+ * time of its permit, plus the random delay of the {@link Jitter}. No lock is taken. As with the
+ * internal executors a permit is not earlier than a period after the previous one and is granted
+ * immediately if that time has passed. Acquiring a number of permits together moves the next free
+ * permit that many periods. The delay is not added to the next free permit so delays do not build
+ * up, instead each period is lengthened by the maximum delay.
+ * <P>
+ * Reserving slots moves the next free permit past all of them with one compare and set. Released
+ * slots are held in a sorted set, a caller acquiring a permit takes a released slot if it is
+ * earlier than the next free permit. A released slot can be taken until a period after its time,
+ * the same allowance the default {@link CatchUpPolicy} gives a late execution. The set is only
+ * searched when it is not empty.
+ * <P>
+ * The clock of the next free permit belongs to the limiter. It follows the same spacing rules as
+ * the internal executors but does not share their pacing state, so the permits of a limiter are
+ * not taken from the budget of any executor.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+@ThreadSafe
+/* package */final class RateLimiter implements IRateLimiter
+{
+    private final long rateInNanos;
+    // The interval between permits before the jitter is added
+    private final long intervalInNanos;
+    private final Jitter jitter;
+    private final AtomicLong nextPermit;
+    private final ConcurrentSkipListSet<Long> released = new ConcurrentSkipListSet<Long>();
+
+    /* package */RateLimiter(final long rate, final TimeUnit unit, final Jitter jitter)
+    {
+        this.rateInNanos = unit.toNanos(rate);
+        this.intervalInNanos = rateInNanos + jitter.maxDelay();
+        this.jitter = jitter;
+        this.nextPermit = new AtomicLong(System.nanoTime() - rateInNanos);
+    }
+
+    @Override
+    public boolean tryAcquire()
+    {
+        return reserve(0L, 1) >= 0L;
+    }
+
+    @Override
+    public void acquire() throws InterruptedException
+    {
+        sleepFor(reserve(Long.MAX_VALUE, 1));
+    }
+
+    @Override
+    public void acquire(final int permits) throws InterruptedException
+    {
+        if (permits < 1)
+        {
+            throw new IllegalArgumentException("At least one permit must be acquired");
+        }
+        sleepFor(reserve(Long.MAX_VALUE, permits));
+    }
+
+    @Override
+    public boolean acquire(final long timeout, final TimeUnit unit) throws InterruptedException
+    {
+        final long wait = reserve(unit.toNanos(timeout), 1);
+        if (wait < 0L)
+        {
+            return false;
+        }
+        sleepFor(wait);
+        return true;
+    }
+
+    @Override
+    public IReservation reserve(final int slots)
+    {
+        if (slots < 1)
+        {
+            throw new IllegalArgumentException("At least one slot must be reserved");
+        }
+        final long[] times = new long[slots];
+        while (true)
+        {
+            final long now = System.nanoTime();
+            final long next = nextPermit.get();
+            long time = next - now > 0 ? next : now;
+            for (int i = 0; i < slots; i++)
+            {
+                times[i] = time + jitter.delay();
+                time = time + intervalInNanos;
+            }
+            if (nextPermit.compareAndSet(next, time))
+            {
+                return new SlotReservation(this, times);
+            }
+        }
+    }
+
+    /**
+     * Return a reserved slot to the limiter.
+     * @param time The System.nanoTime of the slot
+     */
+    /* package */void release(final long time)
+    {
+        if (System.nanoTime() - time < rateInNanos)
+        {
+            released.add(time);
+        }
+    }
+
+    /**
+     * Reserve the next permits if they are available within a maximum wait. The permits after the
+     * first take the following periods.
+     * @param maxWait The maximum wait in nanoseconds
+     * @param permits The number of permits
+     * @return The wait in nanoseconds until the permit or -1 if it is not available in time
+     */
+    private long reserve(final long maxWait, final int permits)
+    {
+        while (true)
+        {
+            final long now = System.nanoTime();
+            final long next = nextPermit.get();
+            final long permit = next - now > 0 ? next : now;
+            if (permits == 1 && !released.isEmpty())
+            {
+                final long wait = takeReleased(now, permit, maxWait);
+                if (wait >= 0L)
+                {
+                    return wait;
+                }
+            }
+            if (permit - now > maxWait)
+            {
+                return -1L;
+            }
+            if (nextPermit.compareAndSet(next, permit + permits * intervalInNanos))
+            {
+                return permit + jitter.delay() - now;
+            }
+        }
+    }
+
+    /**
+     * Take the earliest released slot if it is before the next permit and within the maximum
+     * wait. Released slots more than a period in the past are discarded.
+     * @return The wait in nanoseconds until the slot or -1 if no slot was taken
+     */
+    private long takeReleased(final long now, final long permit, final long maxWait)
+    {
+        for (final Long slot : released)
+        {
+            final long time = slot.longValue();
+            if (now - time >= rateInNanos)
+            {
+                released.remove(slot);
+            }
+            else if (time - permit >= 0L || time - now > maxWait)
+            {
+                return -1L;
+            }
+            else if (released.remove(slot))
+            {
+                return time - now > 0L ? time - now : 0L;
+            }
+        }
+        return -1L;
+    }
+
+    /**
+     * Park until a wait has passed.
+     * @param wait The wait in nanoseconds
+     * @throws InterruptedException If interrupted while parked
+     */
+    /* package */static void sleepFor(final long wait) throws InterruptedException
+    {
+        if (wait <= 0L)
+        {
+            return;
+        }
+        final long targetTime = System.nanoTime() + wait;
+        while (true)
+        {
+            if (Thread.interrupted())
+            {
+                throw new InterruptedException();
+            }
+            final long sleepFor = targetTime - System.nanoTime();
+            if (sleepFor > 0L)
+            {
+                LockSupport.parkNanos(sleepFor);
+            }
+            else
+            {
+                return;
+            }
+        }
+    }
+}
@@ -25,17 +25,37 @@ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
 
 package com.mattunderscore.rated.executor;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import com.mattunderscore.executors.FusedTaskFuture;
+import com.mattunderscore.executors.IListenableFuture;
+import com.mattunderscore.executors.IPublisher;
 import com.mattunderscore.executors.IRepeatingFuture;
+import com.mattunderscore.executors.IResultConsumer;
 import com.mattunderscore.executors.ISettableFuture;
 import com.mattunderscore.executors.ITaskCanceller;
+import com.mattunderscore.executors.ITaskResultProcessor;
 import com.mattunderscore.executors.ITaskWrapper;
 import com.mattunderscore.executors.ITaskWrapperFactory;
 import com.mattunderscore.executors.RepeatingFuture;
+import com.mattunderscore.executors.RunnableWrapper;
+import com.mattunderscore.executors.StreamingFuture;
 import com.mattunderscore.executors.SingleFuture;
 import com.mattunderscore.executors.UnboundedFuture;
+import com.mattunderscore.executors.UncaughtExceptionResult;
 
 /**
  * A rated executor, it will execute tasks at a fixed rate.
@@ -47,24 +67,62 @@ import com.mattunderscore.executors.UnboundedFuture;
  * at an interval twice the executor rate and their execution will be separated from each other by
  * an interval equal to the rate of the executor. This executor is single threaded, if a task takes
  * longer than the executor rate it will delay scheduled tasks.
+ * <P>
+ * If fused the futures returned for tasks submitted to be executed once are also the task
+ * wrappers. This reduces the number of objects created for each task.
+ * <P>
+ * The lifecycle of the executor is that of its {@link TaskQueue} and {@link IInternalExecutor}.
+ * Shutting down the queue stops it accepting tasks, tasks rejected by the queue are rejected by the
+ * executor. The tasks of {@link #invokeAll(Collection)} are added to the queue together, taking
+ * the queue lock and starting the internal executor once for the whole collection.
+ * <P>
+ * If the executor has a circuit breaker tasks are wrapped to record the outcome of each execution
+ * with it. The futures of an executor with a circuit breaker are not fused.
+ * <P>
+ * Permits and reserved slots are queued as {@link PermitTaskWrapper}s, each takes the place of a
+ * task. They are not wrapped for the circuit breaker and are not returned by
+ * {@link #shutdownNow()}, the threads waiting for them are woken instead.
  * 
  * @author Matt Champion
  * @since 0.0.1
  */
-/* package */final class RatedExecutor implements IRatedExecutor, ITaskCanceller
+/* package */final class RatedExecutor extends AbstractExecutorService implements IRatedExecutor,
+        ITaskCanceller
 {
+    // A pause without an end, long enough to never pass
+    private static final long INDEFINITELY = Long.MAX_VALUE / 4L;
+
     private final IInternalExecutor executor;
     private final TaskQueue taskQueue;
     private final ITaskWrapperFactory wrapperFactory;
+    private final boolean fused;
+    private final ITaskResultProcessor<?> fusedProcessor;
+    private final CircuitBreakerState circuitBreaker;
 
     /**
      * Create a new RatedExecutor that will execute tasks at a fixed rate.
      */
     public RatedExecutor(final TaskQueue taskQueue, final IInternalExecutor executor, final ITaskWrapperFactory wrapperFactory)
+    {
+        this(taskQueue, executor, wrapperFactory, false, null);
+    }
+
+    /**
+     * Create a new RatedExecutor that will execute tasks at a fixed rate.
+     * @param fused If the futures of submitted tasks should also be their task wrappers
+     * @param circuitBreaker The circuit breaker state shared with the queue or null
+     */
+    public RatedExecutor(final TaskQueue taskQueue, final IInternalExecutor executor,
+            final ITaskWrapperFactory wrapperFactory, final boolean fused,
+            final CircuitBreakerState circuitBreaker)
     {
         this.taskQueue = taskQueue;
         this.executor = executor;
         this.wrapperFactory = wrapperFactory;
+        // A fused future is its own task wrapper, it cannot be wrapped for the circuit breaker
+        this.fused = fused && circuitBreaker == null;
+        this.circuitBreaker = circuitBreaker;
+        this.fusedProcessor = new FusedTaskResultProcessor<Object>(executor);
     }
 
     /**
@@ -73,29 +131,39 @@ import com.mattunderscore.executors.UnboundedFuture;
     @Override
     public void execute(final Runnable task)
     {
-        final ITaskWrapper thing = wrapperFactory.newWrapper(task);
-        executor.submit(thing);
+        // The outcome of the task must reach the circuit breaker
+        final ITaskWrapper thing = circuitBreaker == null ? wrapperFactory.newWrapper(task)
+                : wrap(task, new UncaughtExceptionResult<Void>());
+        enqueue(thing);
     }
 
     @Override
     public <V> void execute(final Callable<V> task)
     {
-        final ITaskWrapper thing = wrapperFactory.newWrapper(task);
-        executor.submit(thing);
+        final ITaskWrapper thing = circuitBreaker == null ? wrapperFactory.newWrapper(task)
+                : wrap(task, new UncaughtExceptionResult<V>());
+        enqueue(thing);
     }
 
     /**
      * @see com.mattunderscore.rated.executor.IRatedExecutor#submit(java.lang.Runnable)
      */
     @Override
-    public Future<?> submit(final Runnable task)
+    public IListenableFuture<?> submit(final Runnable task)
     {
+        if (fused)
+        {
+            final FusedTaskFuture<Void> future = new FusedTaskFuture<Void>(task,
+                    this.<Void> fusedProcessor(), this);
+            enqueue(future);
+            return future;
+        }
         final ISettableFuture<Void> future = new SingleFuture<Void>(this);
         final RatedExecutorTaskResultProcessor<Void> processor = new RatedExecutorTaskResultProcessor<Void>(
                 future, executor);
-        final ITaskWrapper thing = wrapperFactory.newWrapper(task, processor);
+        final ITaskWrapper thing = wrap(task, processor);
         future.setTask(thing);
-        executor.submit(thing);
+        enqueue(thing);
         return future;
     }
 
@@ -103,44 +171,359 @@ import com.mattunderscore.executors.UnboundedFuture;
      * @see com.mattunderscore.rated.executor.IRatedExecutor#submit(java.util.concurrent.Callable)
      */
     @Override
-    public <V> Future<V> submit(final Callable<V> task)
+    public <V> IListenableFuture<V> submit(final Callable<V> task)
+    {
+        if (fused)
+        {
+            final FusedTaskFuture<V> future = new FusedTaskFuture<V>(task,
+                    this.<V> fusedProcessor(), this);
+            enqueue(future);
+            return future;
+        }
+        final ISettableFuture<V> future = new SingleFuture<V>(this);
+        final RatedExecutorTaskResultProcessor<V> processor = new RatedExecutorTaskResultProcessor<V>(
+                future, executor);
+        final ITaskWrapper thing = wrap(task, processor);
+        future.setTask(thing);
+        enqueue(thing);
+        return future;
+    }
+
+    /**
+     * @see com.mattunderscore.rated.executor.IRatedExecutor#submit(java.lang.Runnable,
+     *      java.lang.Object)
+     */
+    @Override
+    public <V> IListenableFuture<V> submit(final Runnable task, final V result)
+    {
+        return submit(Executors.callable(task, result));
+    }
+
+    /**
+     * @see com.mattunderscore.rated.executor.IRatedExecutor#submit(java.lang.Runnable, long,
+     *      java.util.concurrent.TimeUnit)
+     */
+    @Override
+    public IListenableFuture<?> submit(final Runnable task, final long timeout,
+            final TimeUnit unit)
+    {
+        return submit(new RunnableWrapper(task), timeout, unit);
+    }
+
+    /**
+     * @see com.mattunderscore.rated.executor.IRatedExecutor#submit(java.util.concurrent.Callable,
+     *      long, java.util.concurrent.TimeUnit)
+     */
+    @Override
+    public <V> IListenableFuture<V> submit(final Callable<V> task, final long timeout,
+            final TimeUnit unit)
     {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
         final ISettableFuture<V> future = new SingleFuture<V>(this);
         final RatedExecutorTaskResultProcessor<V> processor = new RatedExecutorTaskResultProcessor<V>(
                 future, executor);
-        final ITaskWrapper thing = wrapperFactory.newWrapper(task, processor);
+        final ITaskWrapper thing = new DeadlineTaskWrapper(wrap(task, processor), future,
+                executor, deadline);
+        future.setTask(thing);
+        enqueue(thing);
+        return future;
+    }
+
+    /**
+     * @see com.mattunderscore.rated.executor.IRatedExecutor#submit(java.lang.Runnable,
+     *      com.mattunderscore.rated.executor.RetryPolicy)
+     */
+    @Override
+    public IListenableFuture<?> submit(final Runnable task, final RetryPolicy policy)
+    {
+        return submit(new RunnableWrapper(task), policy);
+    }
+
+    /**
+     * @see com.mattunderscore.rated.executor.IRatedExecutor#submit(java.util.concurrent.Callable,
+     *      com.mattunderscore.rated.executor.RetryPolicy)
+     */
+    @Override
+    public <V> IListenableFuture<V> submit(final Callable<V> task, final RetryPolicy policy)
+    {
+        final ISettableFuture<V> future = new SingleFuture<V>(this);
+        final RetryingTaskResultProcessor<V> processor = new RetryingTaskResultProcessor<V>(
+                future, executor, taskQueue, policy);
+        final ITaskWrapper thing = wrap(task, processor);
         future.setTask(thing);
-        executor.submit(thing);
+        enqueue(thing);
         return future;
     }
 
+    @Override
+    public void pause()
+    {
+        executor.pauseUntil(System.nanoTime() + INDEFINITELY);
+    }
+
+    @Override
+    public void pauseFor(final long delay, final TimeUnit unit)
+    {
+        final long nanos = unit.toNanos(delay);
+        executor.pauseUntil(System.nanoTime() + (nanos < INDEFINITELY ? nanos : INDEFINITELY));
+    }
+
+    @Override
+    public void pauseUntil(final Date time)
+    {
+        pauseFor(time.getTime() - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void resume()
+    {
+        executor.resume();
+    }
+
+    @Override
+    public long estimatedWait(final TimeUnit unit)
+    {
+        final long wait = executor.estimatedStartTime() - System.nanoTime();
+        return unit.convert(wait > 0L ? wait : 0L, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @see com.mattunderscore.rated.executor.IRatedExecutor#trySubmit(java.lang.Runnable, long,
+     *      java.util.concurrent.TimeUnit)
+     */
+    @Override
+    public IListenableFuture<?> trySubmit(final Runnable task, final long maxWait,
+            final TimeUnit unit)
+    {
+        return trySubmit(new RunnableWrapper(task), maxWait, unit);
+    }
+
+    /**
+     * @see com.mattunderscore.rated.executor.IRatedExecutor#trySubmit(java.util.concurrent.Callable,
+     *      long, java.util.concurrent.TimeUnit)
+     */
+    @Override
+    public <V> IListenableFuture<V> trySubmit(final Callable<V> task, final long maxWait,
+            final TimeUnit unit)
+    {
+        if (executor.estimatedStartTime() - System.nanoTime() > unit.toNanos(maxWait))
+        {
+            return null;
+        }
+        return submit(task, maxWait, unit);
+    }
+
+    @Override
+    public boolean tryAcquire()
+    {
+        try
+        {
+            return acquirePermits(0L, 1);
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    public void acquire() throws InterruptedException
+    {
+        acquirePermits(Long.MAX_VALUE, 1);
+    }
+
+    @Override
+    public boolean acquire(final long timeout, final TimeUnit unit) throws InterruptedException
+    {
+        return acquirePermits(unit.toNanos(timeout), 1);
+    }
+
+    @Override
+    public void acquire(final int permits) throws InterruptedException
+    {
+        if (permits < 1)
+        {
+            throw new IllegalArgumentException("At least one permit must be acquired");
+        }
+        acquirePermits(Long.MAX_VALUE, permits);
+    }
+
+    @Override
+    public IReservation reserve(final int slots)
+    {
+        if (slots < 1)
+        {
+            throw new IllegalArgumentException("At least one slot must be reserved");
+        }
+        final PermitTaskWrapper[] permits = new PermitTaskWrapper[slots];
+        for (int i = 0; i < slots; i++)
+        {
+            permits[i] = new PermitTaskWrapper();
+        }
+        final long firstSlot = executor.estimatedStartTime();
+        if (!executor.submitAll(Arrays.asList(permits)))
+        {
+            throw new RejectedExecutionException("The executor has been shut down");
+        }
+        return new ExecutorReservation(this, permits, firstSlot, executor.getPeriod());
+    }
+
+    @Override
+    public <V> List<Future<V>> invokeAll(final Collection<? extends Callable<V>> tasks)
+            throws InterruptedException
+    {
+        final List<Future<V>> futures = submitAll(tasks);
+        boolean done = false;
+        try
+        {
+            for (final Future<V> future : futures)
+            {
+                if (!future.isDone())
+                {
+                    try
+                    {
+                        future.get();
+                    }
+                    catch (final CancellationException e)
+                    {
+                        // The future is done
+                    }
+                    catch (final ExecutionException e)
+                    {
+                        // The future is done
+                    }
+                }
+            }
+            done = true;
+            return futures;
+        }
+        finally
+        {
+            if (!done)
+            {
+                cancelAll(futures);
+            }
+        }
+    }
+
+    @Override
+    public <V> List<Future<V>> invokeAll(final Collection<? extends Callable<V>> tasks,
+            final long timeout, final TimeUnit unit) throws InterruptedException
+    {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        final List<Future<V>> futures = submitAll(tasks);
+        boolean done = false;
+        try
+        {
+            for (final Future<V> future : futures)
+            {
+                if (!future.isDone())
+                {
+                    final long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0L)
+                    {
+                        return futures;
+                    }
+                    try
+                    {
+                        future.get(remaining, TimeUnit.NANOSECONDS);
+                    }
+                    catch (final CancellationException e)
+                    {
+                        // The future is done
+                    }
+                    catch (final ExecutionException e)
+                    {
+                        // The future is done
+                    }
+                    catch (final TimeoutException e)
+                    {
+                        return futures;
+                    }
+                }
+            }
+            done = true;
+            return futures;
+        }
+        finally
+        {
+            if (!done)
+            {
+                cancelAll(futures);
+                // A running task cannot be cancelled if the executor is not interruptable
+                awaitAll(futures);
+            }
+        }
+    }
+
     /**
      * @see com.mattunderscore.rated.executor.IRatedExecutor#schedule(java.lang.Runnable)
      */
     @Override
-    public Future<?> schedule(final Runnable task)
+    public IListenableFuture<?> schedule(final Runnable task)
     {
         final ISettableFuture<Void> future = new UnboundedFuture(this);
         final RatedExecutorTaskResultProcessor<Void> processor = new RatedExecutorTaskResultProcessor<Void>(
                 future, executor);
-        final ITaskWrapper thing = wrapperFactory.newWrapper(task, processor);
+        final ITaskWrapper thing = wrap(task, processor);
         future.setTask(thing);
-        executor.submit(thing);
+        enqueue(thing);
         return future;
     }
 
+    /**
+     * @see com.mattunderscore.rated.executor.IRatedExecutor#schedule(java.util.concurrent.Callable,
+     *      com.mattunderscore.executors.IResultConsumer)
+     */
+    @Override
+    public <V> IListenableFuture<?> schedule(final Callable<V> task,
+            final IResultConsumer<? super V> consumer)
+    {
+        final StreamingFuture future = new StreamingFuture(this);
+        final StreamingResultProcessor<V> processor = new StreamingResultProcessor<V>(future,
+                consumer, executor);
+        final ITaskWrapper thing = wrap(task, processor);
+        future.setTask(thing);
+        enqueue(thing);
+        return future;
+    }
+
+    /**
+     * @see com.mattunderscore.rated.executor.IRatedExecutor#schedule(java.util.concurrent.Callable)
+     */
+    @Override
+    public <V> IPublisher<V> schedule(final Callable<V> task)
+    {
+        final RatedPublisher<V> publisher = new RatedPublisher<V>(executor, this);
+        // The task is not queued until the subscriber requests a result
+        publisher.setTask(wrap(task, publisher));
+        return publisher;
+    }
+
     /**
      * @see com.mattunderscore.rated.executor.IRatedExecutor#schedule(java.lang.Runnable, int)
      */
     @Override
     public IRepeatingFuture<?> schedule(final Runnable task, final int repetitions)
     {
-        final RepeatingFuture<Void> future = new RepeatingFuture<Void>(this, repetitions);
+        return schedule(task, repetitions, repetitions);
+    }
+
+    /**
+     * @see com.mattunderscore.rated.executor.IRatedExecutor#schedule(java.lang.Runnable, int, int)
+     */
+    @Override
+    public IRepeatingFuture<?> schedule(final Runnable task, final int repetitions,
+            final int retainedResults)
+    {
+        final RepeatingFuture<Void> future = new RepeatingFuture<Void>(this, repetitions,
+                retainedResults);
         final RatedExecutorTaskResultProcessor<Void> processor = new RatedExecutorTaskResultProcessor<Void>(
                 future, executor);
-        final ITaskWrapper thing = wrapperFactory.newWrapper(task, processor);
+        final ITaskWrapper thing = wrap(task, processor);
         future.setTask(thing);
-        executor.submit(thing);
+        enqueue(thing);
         return future;
     }
 
@@ -151,15 +534,252 @@ import com.mattunderscore.executors.UnboundedFuture;
     @Override
     public <V> IRepeatingFuture<V> schedule(final Callable<V> task, final int repetitions)
     {
-        final RepeatingFuture<V> future = new RepeatingFuture<V>(this, repetitions);
+        return schedule(task, repetitions, repetitions);
+    }
+
+    /**
+     * @see com.mattunderscore.rated.executor.IRatedExecutor#schedule(java.util.concurrent.Callable,
+     *      int, int)
+     */
+    @Override
+    public <V> IRepeatingFuture<V> schedule(final Callable<V> task, final int repetitions,
+            final int retainedResults)
+    {
+        final RepeatingFuture<V> future = new RepeatingFuture<V>(this, repetitions,
+                retainedResults);
         final RatedExecutorTaskResultProcessor<V> processor = new RatedExecutorTaskResultProcessor<V>(
                 future, executor);
-        final ITaskWrapper thing = wrapperFactory.newWrapper(task, processor);
+        final ITaskWrapper thing = wrap(task, processor);
         future.setTask(thing);
-        executor.submit(thing);
+        enqueue(thing);
         return future;
     }
 
+    @Override
+    public void shutdown()
+    {
+        executor.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow()
+    {
+        final List<ITaskWrapper> wrappers = executor.shutdownNow();
+        executor.interrupt();
+        final List<Runnable> tasks = new ArrayList<Runnable>(wrappers.size());
+        for (final ITaskWrapper wrapper : wrappers)
+        {
+            if (wrapper instanceof PermitTaskWrapper)
+            {
+                // A permit is not a task to run, the waiting thread is woken instead
+                ((PermitTaskWrapper) wrapper).reject();
+            }
+            else
+            {
+                tasks.add(new QueuedTask(wrapper));
+            }
+        }
+        return tasks;
+    }
+
+    @Override
+    public boolean isShutdown()
+    {
+        return taskQueue.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated()
+    {
+        return executor.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(final long timeout, final TimeUnit unit)
+            throws InterruptedException
+    {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * Submit a task to the internal executor.
+     * @throws RejectedExecutionException If the executor has been shut down
+     */
+    private void enqueue(final ITaskWrapper wrapper)
+    {
+        if (!executor.submit(wrapper))
+        {
+            throw new RejectedExecutionException("The executor has been shut down");
+        }
+    }
+
+    /**
+     * Submit a collection of tasks to be executed once. The tasks are submitted to the internal
+     * executor together.
+     * @throws RejectedExecutionException If the executor has been shut down
+     */
+    private <V> List<Future<V>> submitAll(final Collection<? extends Callable<V>> tasks)
+    {
+        final List<Future<V>> futures = new ArrayList<Future<V>>(tasks.size());
+        final List<ITaskWrapper> wrappers = new ArrayList<ITaskWrapper>(tasks.size());
+        for (final Callable<V> task : tasks)
+        {
+            if (fused)
+            {
+                final FusedTaskFuture<V> future = new FusedTaskFuture<V>(task,
+                        this.<V> fusedProcessor(), this);
+                futures.add(future);
+                wrappers.add(future);
+            }
+            else
+            {
+                final ISettableFuture<V> future = new SingleFuture<V>(this);
+                final RatedExecutorTaskResultProcessor<V> processor = new RatedExecutorTaskResultProcessor<V>(
+                        future, executor);
+                final ITaskWrapper thing = wrap(task, processor);
+                future.setTask(thing);
+                futures.add(future);
+                wrappers.add(thing);
+            }
+        }
+        if (!executor.submitAll(wrappers))
+        {
+            throw new RejectedExecutionException("The executor has been shut down");
+        }
+        return futures;
+    }
+
+    /**
+     * Queue permits together and wait for the first to be granted. Whether the first permit is
+     * available within the maximum wait is decided from the estimated start time.
+     * @param maxWait The maximum wait in nanoseconds
+     * @param permits The number of permits
+     * @return False if the first permit is not expected within the maximum wait
+     * @throws RejectedExecutionException If the executor has been shut down
+     */
+    private boolean acquirePermits(final long maxWait, final int permits)
+            throws InterruptedException
+    {
+        if (executor.estimatedStartTime() - System.nanoTime() > maxWait)
+        {
+            return false;
+        }
+        final PermitTaskWrapper permit = new PermitTaskWrapper();
+        if (permits == 1)
+        {
+            enqueue(permit);
+        }
+        else
+        {
+            final List<ITaskWrapper> wrappers = new ArrayList<ITaskWrapper>(permits);
+            wrappers.add(permit);
+            for (int i = 1; i < permits; i++)
+            {
+                wrappers.add(new PermitTaskWrapper());
+            }
+            if (!executor.submitAll(wrappers))
+            {
+                throw new RejectedExecutionException("The executor has been shut down");
+            }
+        }
+        try
+        {
+            permit.await();
+        }
+        catch (final InterruptedException e)
+        {
+            if (permit.withdraw())
+            {
+                cancelTask(permit, false);
+            }
+            throw e;
+        }
+        return true;
+    }
+
+    private static <V> void cancelAll(final List<Future<V>> futures)
+    {
+        for (final Future<V> future : futures)
+        {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * Wait for cancelled futures to be done. A future whose task was running when it was
+     * cancelled is done once the task completes, only one task executes at a time so this waits
+     * for at most one task. The interrupt status is restored once all the futures are done.
+     */
+    private static <V> void awaitAll(final List<Future<V>> futures)
+    {
+        boolean interrupted = false;
+        for (final Future<V> future : futures)
+        {
+            while (!future.isDone())
+            {
+                try
+                {
+                    future.get();
+                }
+                catch (final InterruptedException e)
+                {
+                    interrupted = true;
+                }
+                catch (final CancellationException e)
+                {
+                    // The future is done
+                }
+                catch (final ExecutionException e)
+                {
+                    // The future is done
+                }
+            }
+        }
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Wrap a task, recording its outcomes with the circuit breaker if there is one.
+     */
+    private <V> ITaskWrapper wrap(final Callable<V> task, final ITaskResultProcessor<V> processor)
+    {
+        if (circuitBreaker == null)
+        {
+            return wrapperFactory.newWrapper(task, processor);
+        }
+        final CircuitBreakerTaskWrapper<V> wrapper = new CircuitBreakerTaskWrapper<V>(processor,
+                circuitBreaker);
+        wrapper.setWrapper(wrapperFactory.newWrapper(task, wrapper));
+        return wrapper;
+    }
+
+    /**
+     * Wrap a task, recording its outcomes with the circuit breaker if there is one.
+     */
+    private ITaskWrapper wrap(final Runnable task, final ITaskResultProcessor<Void> processor)
+    {
+        if (circuitBreaker == null)
+        {
+            return wrapperFactory.newWrapper(task, processor);
+        }
+        final CircuitBreakerTaskWrapper<Void> wrapper = new CircuitBreakerTaskWrapper<Void>(
+                processor, circuitBreaker);
+        wrapper.setWrapper(wrapperFactory.newWrapper(task, wrapper));
+        return wrapper;
+    }
+
+    /**
+     * The processor shared by all fused futures.
+     */
+    @SuppressWarnings("unchecked")
+    private <V> ITaskResultProcessor<V> fusedProcessor()
+    {
+        return (ITaskResultProcessor<V>) fusedProcessor;
+    }
+
     @Override
     public boolean cancelTask(final ITaskWrapper wrapper, final boolean mayInterruptIfRunning)
     {
@@ -175,6 +795,28 @@ import com.mattunderscore.executors.UnboundedFuture;
             }
         }
         taskQueue.remove(wrapper);
+        // The cancelled task may have been the only thing keeping the executor running
+        executor.requestStop();
         return true;
     }
+
+    /**
+     * A task removed from the queue by {@link RatedExecutor#shutdownNow()}. Running it executes
+     * the task and completes its future.
+     */
+    private static final class QueuedTask implements Runnable
+    {
+        private final ITaskWrapper wrapper;
+
+        public QueuedTask(final ITaskWrapper wrapper)
+        {
+            this.wrapper = wrapper;
+        }
+
+        @Override
+        public void run()
+        {
+            wrapper.execute();
+        }
+    }
 }
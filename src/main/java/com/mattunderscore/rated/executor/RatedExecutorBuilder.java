@@ -0,0 +1,350 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import net.jcip.annotations.NotThreadSafe;
+
+import com.mattunderscore.executors.ITaskWrapperFactory;
+import com.mattunderscore.executors.IUniversalExecutor;
+import com.mattunderscore.executors.PooledTaskWrapperFactory;
+import com.mattunderscore.executors.TaskWrapperFactory;
+
+/**
+ * Builder for rated executors that need more configuration than the methods of
+ * {@link RatedExecutors} allow.
+ * <P>
+ * By default the executor is single threaded and backed by a
+ * {@link java.util.concurrent.ScheduledExecutorService}. The {@link Future}s returned by this
+ * executor do not support throwing
+ * {@link InterruptedException}s when cancelling running tasks unless the executor is made
+ * interruptable. Each call to a build method creates a new executor.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+@NotThreadSafe
+public final class RatedExecutorBuilder
+{
+    private static final int WRAPPER_POOL_SIZE = 64;
+
+    private final long rate;
+    private final TimeUnit unit;
+    private ThreadFactory threadFactory;
+    private boolean interruptable = false;
+    private long spinThreshold = 0L;
+    private long keepAlive = 0L;
+    private CatchUpPolicy catchUpPolicy = CatchUpPolicy.catchUp();
+    private Jitter jitter = Jitter.none();
+    private WarmUp warmUp = WarmUp.none();
+    private boolean tickless = false;
+    private boolean lowGarbage = false;
+    private boolean earliestDeadlineFirst = false;
+    private CircuitBreaker circuitBreaker;
+
+    /* package */RatedExecutorBuilder(final long rate, final TimeUnit unit)
+    {
+        this.rate = rate;
+        this.unit = unit;
+    }
+
+    /**
+     * Set the thread factory used to create the thread of the executor.
+     *
+     * @param factory
+     *            The thread factory
+     * @return This builder
+     */
+    public RatedExecutorBuilder threadFactory(final ThreadFactory factory)
+    {
+        this.threadFactory = factory;
+        return this;
+    }
+
+    /**
+     * Execute tasks on a thread owned by the executor so that the {@link Future}s returned support
+     * throwing {@link InterruptedException}s when cancelling running tasks.
+     *
+     * @return This builder
+     */
+    public RatedExecutorBuilder interruptable()
+    {
+        this.interruptable = true;
+        return this;
+    }
+
+    /**
+     * Set the time before each execution that the executor stops parking and spins. This allows
+     * periods shorter than a millisecond to be kept accurately at the cost of CPU time. Spinning
+     * requires a thread owned by the executor so this also makes the executor interruptable.
+     *
+     * @param threshold
+     *            The time before each execution to stop parking
+     * @param thresholdUnit
+     *            The time unit of the threshold
+     * @return This builder
+     */
+    public RatedExecutorBuilder spinThreshold(final long threshold, final TimeUnit thresholdUnit)
+    {
+        this.spinThreshold = thresholdUnit.toNanos(threshold);
+        this.interruptable = true;
+        return this;
+    }
+
+    /**
+     * Set the time the thread of the executor waits for a task before exiting once the queue is
+     * empty. A task submitted within the keep alive wakes the thread instead of starting a new
+     * one, so bursts of tasks do not create a thread each. Keeping a thread alive requires a
+     * thread owned by the executor so this also makes the executor interruptable.
+     *
+     * @param time
+     *            The keep alive
+     * @param timeUnit
+     *            The time unit of the keep alive
+     * @return This builder
+     */
+    public RatedExecutorBuilder keepAlive(final long time, final TimeUnit timeUnit)
+    {
+        this.keepAlive = timeUnit.toNanos(time);
+        this.interruptable = true;
+        return this;
+    }
+
+    /**
+     * Set the policy followed when an execution starts late.
+     *
+     * @param policy
+     *            The catch up policy
+     * @return This builder
+     */
+    public RatedExecutorBuilder catchUpPolicy(final CatchUpPolicy policy)
+    {
+        this.catchUpPolicy = policy;
+        return this;
+    }
+
+    /**
+     * Set the random delay added to the time of each execution. This spreads out executors that
+     * would otherwise execute at the same moments. The delays do not build up and executions stay
+     * at least a period apart, so the average interval between executions is the period plus the
+     * maximum delay.
+     *
+     * @param jitter
+     *            The jitter
+     * @return This builder
+     * @throws IllegalArgumentException
+     *             If the maximum delay of the jitter is not shorter than the period
+     */
+    public RatedExecutorBuilder jitter(final Jitter jitter)
+    {
+        if (jitter.maxDelay() >= unit.toNanos(rate))
+        {
+            throw new IllegalArgumentException("The maximum delay must be shorter than the period");
+        }
+        this.jitter = jitter;
+        return this;
+    }
+
+    /**
+     * Set the warm up followed when the executor starts after being idle. The interval between
+     * executions starts long and shortens to the period of the executor.
+     *
+     * @param warmUp
+     *            The warm up
+     * @return This builder
+     */
+    public RatedExecutorBuilder warmUp(final WarmUp warmUp)
+    {
+        this.warmUp = warmUp;
+        return this;
+    }
+
+    /**
+     * Stop pacing as soon as the queue is empty instead of waiting for a period to pass. An idle
+     * executor causes no wake ups. A task submitted to an idle executor is executed as soon as
+     * the period since the last execution has passed.
+     *
+     * @return This builder
+     */
+    public RatedExecutorBuilder tickless()
+    {
+        this.tickless = true;
+        return this;
+    }
+
+    /**
+     * Reduce the number of objects created for each task. The futures returned for tasks
+     * submitted to be executed once are also their task wrappers and the wrappers of tasks
+     * executed without a future are reused. The futures are not fused if the executor has a
+     * circuit breaker.
+     *
+     * @return This builder
+     */
+    public RatedExecutorBuilder lowGarbage()
+    {
+        this.lowGarbage = true;
+        return this;
+    }
+
+    /**
+     * Execute tasks submitted with a deadline in order of their deadlines, before tasks without a
+     * deadline. Tasks without a deadline are executed in the order they were submitted.
+     *
+     * @return This builder
+     */
+    public RatedExecutorBuilder earliestDeadlineFirst()
+    {
+        this.earliestDeadlineFirst = true;
+        return this;
+    }
+
+    /**
+     * Set the circuit breaker that stops the executor executing tasks while the rate of failures
+     * is too high. Each executor built has its own breaker state.
+     *
+     * @param breaker
+     *            The circuit breaker
+     * @return This builder
+     */
+    public RatedExecutorBuilder circuitBreaker(final CircuitBreaker breaker)
+    {
+        this.circuitBreaker = breaker;
+        return this;
+    }
+
+    /**
+     * Create the rated executor.
+     *
+     * @return The executor
+     */
+    public IRatedExecutor build()
+    {
+        final CircuitBreakerState breakerState = circuitBreaker == null ? null
+                : new CircuitBreakerState(circuitBreaker);
+        final TaskQueue queue = new TaskQueue(earliestDeadlineFirst, breakerState);
+        return new RatedExecutor(queue, newInternalExecutor(queue), newWrapperFactory(), lowGarbage,
+                breakerState);
+    }
+
+    /**
+     * Create a rate limiter that grants permits at the rate of the builder. Only the jitter applies
+     * to a rate limiter, there is no executor thread. The limiter has its own budget of permits
+     * that is not shared with executors created by the builder.
+     *
+     * @return The rate limiter
+     */
+    public IRateLimiter buildRateLimiter()
+    {
+        return new RateLimiter(rate, unit, jitter);
+    }
+
+    /**
+     * Create a rated executor that returns no {@link Future}s. Tasks executed by a simple executor
+     * have no deadlines and report no outcomes, so it cannot order tasks by deadline or have a
+     * circuit breaker.
+     *
+     * @return The executor
+     * @throws IllegalStateException
+     *             If earliest deadline first ordering or a circuit breaker has been set
+     */
+    public IUniversalExecutor buildSimple()
+    {
+        if (earliestDeadlineFirst)
+        {
+            throw new IllegalStateException(
+                    "A simple executor cannot order tasks by earliest deadline first");
+        }
+        if (circuitBreaker != null)
+        {
+            throw new IllegalStateException("A simple executor cannot have a circuit breaker");
+        }
+        final TaskQueue queue = new TaskQueue();
+        return new SimpleRatedExecutor(newInternalExecutor(queue), newWrapperFactory());
+    }
+
+    /**
+     * Create a sharded rated executor that splits the rate of the builder across a number of
+     * lanes. Each lane has its own thread, so the executor is always interruptable. Like a simple
+     * executor it cannot order tasks by deadline or have a circuit breaker.
+     *
+     * @param lanes
+     *            The number of lanes
+     * @return The executor
+     * @throws IllegalArgumentException
+     *             If the number of lanes is less than one
+     * @throws IllegalStateException
+     *             If earliest deadline first ordering or a circuit breaker has been set
+     */
+    public IShardedRatedExecutor buildSharded(final int lanes)
+    {
+        if (earliestDeadlineFirst)
+        {
+            throw new IllegalStateException(
+                    "A sharded executor cannot order tasks by earliest deadline first");
+        }
+        if (circuitBreaker != null)
+        {
+            throw new IllegalStateException("A sharded executor cannot have a circuit breaker");
+        }
+        final ThreadFactory factory = threadFactory == null ? new RatedExecutorThreadFactory()
+                : threadFactory;
+        return new ShardedRatedExecutor(rate, unit, lanes, factory, spinThreshold, catchUpPolicy,
+                jitter, warmUp, tickless, keepAlive);
+    }
+
+    private ITaskWrapperFactory newWrapperFactory()
+    {
+        if (lowGarbage)
+        {
+            return new PooledTaskWrapperFactory(WRAPPER_POOL_SIZE);
+        }
+        else
+        {
+            return new TaskWrapperFactory();
+        }
+    }
+
+    private IInternalExecutor newInternalExecutor(final TaskQueue queue)
+    {
+        final ThreadFactory factory = threadFactory == null ? new RatedExecutorThreadFactory()
+                : threadFactory;
+        if (interruptable)
+        {
+            return new ThreadedInternalExecutor(queue, rate, unit, factory, spinThreshold,
+                    catchUpPolicy, jitter, warmUp, tickless, keepAlive);
+        }
+        else
+        {
+            return new ScheduledInternalExecutor(queue, rate, unit,
+                    Executors.newSingleThreadScheduledExecutor(factory), catchUpPolicy, jitter,
+                    warmUp, tickless, true);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import net.jcip.annotations.ThreadSafe;
+
+import com.mattunderscore.executors.IUniversalExecutor;
+import com.mattunderscore.executors.TaskWrapperFactory;
+
+/**
+ * {@link IRatedExecutorGroup} implementation based on a shared {@link ScheduledExecutorService}.
+ * <P>
+ * Every executor of the group is backed by a tickless {@link ScheduledInternalExecutor} that
+ * schedules its consuming task on the shared service. Idle executors schedule nothing on the
+ * shared service.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+@ThreadSafe
+/* package */final class RatedExecutorGroup implements IRatedExecutorGroup
+{
+    private final ScheduledExecutorService service;
+
+    /* package */RatedExecutorGroup(final int threads, final ThreadFactory factory)
+    {
+        service = Executors.newScheduledThreadPool(threads, factory);
+    }
+
+    @Override
+    public IRatedExecutor ratedExecutor(final long rate, final TimeUnit unit)
+    {
+        final TaskQueue queue = new TaskQueue();
+        final IInternalExecutor executor = new ScheduledInternalExecutor(queue, rate, unit, service,
+                CatchUpPolicy.catchUp(), Jitter.none(), WarmUp.none(), true, false);
+        return new RatedExecutor(queue, executor, new TaskWrapperFactory());
+    }
+
+    @Override
+    public IUniversalExecutor simpleRatedExecutor(final long rate, final TimeUnit unit)
+    {
+        final TaskQueue queue = new TaskQueue();
+        final IInternalExecutor executor = new ScheduledInternalExecutor(queue, rate, unit, service,
+                CatchUpPolicy.catchUp(), Jitter.none(), WarmUp.none(), true, false);
+        return new SimpleRatedExecutor(executor, new TaskWrapperFactory());
+    }
+
+    @Override
+    public void shutdown()
+    {
+        service.shutdown();
+    }
+}
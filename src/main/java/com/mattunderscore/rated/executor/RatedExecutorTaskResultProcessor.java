@@ -31,7 +31,7 @@ import com.mattunderscore.executors.ITaskResultProcessor;
 
 /**
  * The task processor for the RatedExecutor sets the results on a {@link Future} and if it is not
- * done submits it back to the executor.
+ * done submits it back to the executor. If the executor has been shut down the future is cancelled.
  * 
  * @author Matt Champion
  * @param <V> The type of the result of the task
@@ -53,23 +53,28 @@ import com.mattunderscore.executors.ITaskResultProcessor;
     public void onThrowable(ITaskWrapper task, Throwable t)
     {
         future.setException(t);
-        if (!future.isDone())
-        {
-            executor.submit(task);
-        }
-        else
-        {
-            executor.requestStop();
-        }
+        resubmit(task);
     }
 
     @Override
     public void onResult(ITaskWrapper task, V result)
     {
         future.setResult(result);
+        resubmit(task);
+    }
+
+    /**
+     * Submit the task again if the future is not done. A shut down executor does not accept the
+     * task, the future is cancelled instead.
+     */
+    private void resubmit(final ITaskWrapper task)
+    {
         if (!future.isDone())
         {
-            executor.submit(task);
+            if (!executor.submit(task))
+            {
+                future.setCancelled();
+            }
         }
         else
         {
@@ -25,11 +25,20 @@ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
 
 package com.mattunderscore.rated.executor;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Iterator;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
 import java.lang.InterruptedException;
 
+import com.mattunderscore.executors.ICloseableIterator;
+import com.mattunderscore.executors.IMapper;
+import com.mattunderscore.executors.IProcessor;
 import com.mattunderscore.executors.IUniversalExecutor;
 import com.mattunderscore.executors.TaskWrapperFactory;
 
@@ -136,6 +145,62 @@ public final class RatedExecutors
         return new RatedExecutor(queue, executor, new TaskWrapperFactory());
     }
 
+    /**
+     * Creates a new high precision rated executor.
+     * <P>
+     * This executor is single threaded, if a task takes longer than the executor rate it will delay
+     * scheduled tasks. The {@link Future}s returned by this executor support throwing
+     * {@link InterruptedException}s when cancelling running tasks. The thread parks until the next
+     * execution is within the spin threshold and then yields until the execution is due. This
+     * allows periods shorter than a millisecond to be kept accurately at the cost of CPU time.
+     *
+     * @param rate
+     *            The rate of the executor
+     * @param unit
+     *            The time unit of the rate
+     * @param spinThreshold
+     *            The time before each execution to stop parking
+     * @param spinUnit
+     *            The time unit of the spin threshold
+     * @return The executor
+     * @since 0.1.2
+     */
+    public static IRatedExecutor preciseRatedExecutor(final long rate, final TimeUnit unit,
+            final long spinThreshold, final TimeUnit spinUnit)
+    {
+        return preciseRatedExecutor(rate, unit, spinThreshold, spinUnit,
+                new RatedExecutorThreadFactory());
+    }
+
+    /**
+     * Creates a new high precision rated executor.
+     * <P>
+     * This executor is single threaded, if a task takes longer than the executor rate it will delay
+     * scheduled tasks. The {@link Future}s returned by this executor support throwing
+     * {@link InterruptedException}s when cancelling running tasks. The thread parks until the next
+     * execution is within the spin threshold and then yields until the execution is due. This
+     * allows periods shorter than a millisecond to be kept accurately at the cost of CPU time.
+     *
+     * @param rate
+     *            The rate of the executor
+     * @param unit
+     *            The time unit of the rate
+     * @param spinThreshold
+     *            The time before each execution to stop parking
+     * @param spinUnit
+     *            The time unit of the spin threshold
+     * @param factory
+     *            The thread factory used to create the thread
+     * @return The executor
+     * @since 0.1.2
+     */
+    public static IRatedExecutor preciseRatedExecutor(final long rate, final TimeUnit unit,
+            final long spinThreshold, final TimeUnit spinUnit, final ThreadFactory factory)
+    {
+        return builder(rate, unit).threadFactory(factory).spinThreshold(spinThreshold, spinUnit)
+                .build();
+    }
+
     /**
      * Creates a new rated executor.
      * <P>
@@ -179,4 +244,429 @@ public final class RatedExecutors
         final IInternalExecutor executor = new ScheduledInternalExecutor(queue, rate, unit, factory);
         return new SimpleRatedExecutor(executor, new TaskWrapperFactory());
     }
+
+    /**
+     * Creates a new rate limiter.
+     * <P>
+     * The permits of the limiter are spaced like the executions of a rated executor but the
+     * callers run their work on their own threads. The limiter has its own budget of permits, it
+     * does not share a budget with any rated executor.
+     *
+     * @param rate
+     *            The minimum time between permits
+     * @param unit
+     *            The time unit of the rate
+     * @return The rate limiter
+     * @since 0.1.2
+     */
+    public static IRateLimiter rateLimiter(final long rate, final TimeUnit unit)
+    {
+        return new RateLimiter(rate, unit, Jitter.none());
+    }
+
+    /**
+     * Creates an input stream that reads no faster than a rate limiter allows.
+     * <P>
+     * Each byte takes a permit from the limiter, so the rate of the limiter is the time per byte.
+     * Large reads are split into chunks and the permits of each chunk are acquired together. The
+     * limiter can be shared with other streams, channels and callers to limit their combined rate.
+     *
+     * @param in
+     *            The stream to throttle
+     * @param limiter
+     *            The rate limiter
+     * @param chunkSize
+     *            The maximum number of bytes transferred before waiting for permits
+     * @return The throttled stream
+     * @throws IllegalArgumentException
+     *             If the chunk size is less than one
+     * @since 0.1.2
+     */
+    public static InputStream throttle(final InputStream in, final IRateLimiter limiter,
+            final int chunkSize)
+    {
+        return new ThrottledInputStream(in, new ByteThrottle(limiter, chunkSize));
+    }
+
+    /**
+     * Creates an input stream that reads no more than a number of bytes in each unit of time.
+     * <P>
+     * The stream has its own rate limiter, its rate is not shared with other streams or channels.
+     * Large reads are split into chunks and the permits of each chunk are acquired together.
+     *
+     * @param in
+     *            The stream to throttle
+     * @param bytes
+     *            The number of bytes that may be transferred in each unit of time
+     * @param unit
+     *            The unit of time
+     * @param chunkSize
+     *            The maximum number of bytes transferred before waiting for permits
+     * @return The throttled stream
+     * @throws IllegalArgumentException
+     *             If the number of bytes or the chunk size is less than one
+     * @since 0.1.2
+     */
+    public static InputStream throttle(final InputStream in, final long bytes, final TimeUnit unit,
+            final int chunkSize)
+    {
+        return new ThrottledInputStream(in, ByteThrottle.forRate(bytes, unit, chunkSize));
+    }
+
+    /**
+     * Creates an output stream that writes no faster than a rate limiter allows.
+     * <P>
+     * Each byte takes a permit from the limiter, so the rate of the limiter is the time per byte.
+     * Large writes are split into chunks and the permits of each chunk are acquired together. The
+     * limiter can be shared with other streams, channels and callers to limit their combined rate.
+     *
+     * @param out
+     *            The stream to throttle
+     * @param limiter
+     *            The rate limiter
+     * @param chunkSize
+     *            The maximum number of bytes transferred before waiting for permits
+     * @return The throttled stream
+     * @throws IllegalArgumentException
+     *             If the chunk size is less than one
+     * @since 0.1.2
+     */
+    public static OutputStream throttle(final OutputStream out, final IRateLimiter limiter,
+            final int chunkSize)
+    {
+        return new ThrottledOutputStream(out, new ByteThrottle(limiter, chunkSize));
+    }
+
+    /**
+     * Creates an output stream that writes no more than a number of bytes in each unit of time.
+     * <P>
+     * The stream has its own rate limiter, its rate is not shared with other streams or channels.
+     * Large writes are split into chunks and the permits of each chunk are acquired together.
+     *
+     * @param out
+     *            The stream to throttle
+     * @param bytes
+     *            The number of bytes that may be transferred in each unit of time
+     * @param unit
+     *            The unit of time
+     * @param chunkSize
+     *            The maximum number of bytes transferred before waiting for permits
+     * @return The throttled stream
+     * @throws IllegalArgumentException
+     *             If the number of bytes or the chunk size is less than one
+     * @since 0.1.2
+     */
+    public static OutputStream throttle(final OutputStream out, final long bytes,
+            final TimeUnit unit, final int chunkSize)
+    {
+        return new ThrottledOutputStream(out, ByteThrottle.forRate(bytes, unit, chunkSize));
+    }
+
+    /**
+     * Creates a readable channel that reads no faster than a rate limiter allows.
+     * <P>
+     * Each byte takes a permit from the limiter, so the rate of the limiter is the time per byte.
+     * Large reads are split into chunks and the permits of each chunk are acquired together. The
+     * limiter can be shared with other streams, channels and callers to limit their combined rate.
+     *
+     * @param channel
+     *            The channel to throttle
+     * @param limiter
+     *            The rate limiter
+     * @param chunkSize
+     *            The maximum number of bytes transferred before waiting for permits
+     * @return The throttled channel
+     * @throws IllegalArgumentException
+     *             If the chunk size is less than one
+     * @since 0.1.2
+     */
+    public static ReadableByteChannel throttle(final ReadableByteChannel channel,
+            final IRateLimiter limiter, final int chunkSize)
+    {
+        return new ThrottledReadableByteChannel(channel, new ByteThrottle(limiter, chunkSize));
+    }
+
+    /**
+     * Creates a readable channel that reads no more than a number of bytes in each unit of time.
+     * <P>
+     * The channel has its own rate limiter, its rate is not shared with other streams or channels.
+     * Large reads are split into chunks and the permits of each chunk are acquired together.
+     *
+     * @param channel
+     *            The channel to throttle
+     * @param bytes
+     *            The number of bytes that may be transferred in each unit of time
+     * @param unit
+     *            The unit of time
+     * @param chunkSize
+     *            The maximum number of bytes transferred before waiting for permits
+     * @return The throttled channel
+     * @throws IllegalArgumentException
+     *             If the number of bytes or the chunk size is less than one
+     * @since 0.1.2
+     */
+    public static ReadableByteChannel throttle(final ReadableByteChannel channel, final long bytes,
+            final TimeUnit unit, final int chunkSize)
+    {
+        return new ThrottledReadableByteChannel(channel,
+                ByteThrottle.forRate(bytes, unit, chunkSize));
+    }
+
+    /**
+     * Creates a writable channel that writes no faster than a rate limiter allows.
+     * <P>
+     * Each byte takes a permit from the limiter, so the rate of the limiter is the time per byte.
+     * Large writes are split into chunks and the permits of each chunk are acquired together. The
+     * limiter can be shared with other streams, channels and callers to limit their combined rate.
+     *
+     * @param channel
+     *            The channel to throttle
+     * @param limiter
+     *            The rate limiter
+     * @param chunkSize
+     *            The maximum number of bytes transferred before waiting for permits
+     * @return The throttled channel
+     * @throws IllegalArgumentException
+     *             If the chunk size is less than one
+     * @since 0.1.2
+     */
+    public static WritableByteChannel throttle(final WritableByteChannel channel,
+            final IRateLimiter limiter, final int chunkSize)
+    {
+        return new ThrottledWritableByteChannel(channel, new ByteThrottle(limiter, chunkSize));
+    }
+
+    /**
+     * Creates a writable channel that writes no more than a number of bytes in each unit of time.
+     * <P>
+     * The channel has its own rate limiter, its rate is not shared with other streams or channels.
+     * Large writes are split into chunks and the permits of each chunk are acquired together.
+     *
+     * @param channel
+     *            The channel to throttle
+     * @param bytes
+     *            The number of bytes that may be transferred in each unit of time
+     * @param unit
+     *            The unit of time
+     * @param chunkSize
+     *            The maximum number of bytes transferred before waiting for permits
+     * @return The throttled channel
+     * @throws IllegalArgumentException
+     *             If the number of bytes or the chunk size is less than one
+     * @since 0.1.2
+     */
+    public static WritableByteChannel throttle(final WritableByteChannel channel, final long bytes,
+            final TimeUnit unit, final int chunkSize)
+    {
+        return new ThrottledWritableByteChannel(channel,
+                ByteThrottle.forRate(bytes, unit, chunkSize));
+    }
+
+    /**
+     * Creates a new builder for a rated executor.
+     * <P>
+     * The builder allows the executor to be configured further than the other methods of this
+     * class allow.
+     *
+     * @param rate
+     *            The rate of the executor
+     * @param unit
+     *            The time unit of the rate
+     * @return The builder
+     * @since 0.1.2
+     */
+    public static RatedExecutorBuilder builder(final long rate, final TimeUnit unit)
+    {
+        return new RatedExecutorBuilder(rate, unit);
+    }
+
+    /**
+     * Creates a new group of rated executors.
+     * <P>
+     * The executors created by the group share a fixed number of threads. Each executor keeps to
+     * its own rate. The {@link Future}s returned by executors of the group do not support throwing
+     * {@link InterruptedException}s when cancelling running tasks.
+     *
+     * @param threads
+     *            The number of threads shared by the executors of the group
+     * @return The executor group
+     * @since 0.1.2
+     */
+    public static IRatedExecutorGroup ratedExecutorGroup(final int threads)
+    {
+        return new RatedExecutorGroup(threads, new RatedExecutorThreadFactory());
+    }
+
+    /**
+     * Creates a new group of rated executors.
+     * <P>
+     * The executors created by the group share a fixed number of threads. Each executor keeps to
+     * its own rate. The {@link Future}s returned by executors of the group do not support throwing
+     * {@link InterruptedException}s when cancelling running tasks.
+     *
+     * @param threads
+     *            The number of threads shared by the executors of the group
+     * @param factory
+     *            The thread factory used to create the threads
+     * @return The executor group
+     * @since 0.1.2
+     */
+    public static IRatedExecutorGroup ratedExecutorGroup(final int threads,
+            final ThreadFactory factory)
+    {
+        return new RatedExecutorGroup(threads, factory);
+    }
+
+    /**
+     * Creates a new sharded rated executor.
+     * <P>
+     * The rate is split across a number of lanes, each with its own queue and thread, so the
+     * throughput of executors with very short periods is not limited by a single thread. Tasks
+     * submitted with a key are pinned to a lane, other tasks are dealt to the lanes in turn and
+     * stolen by lanes that have nothing else to execute.
+     *
+     * @param rate
+     *            The rate of the executor
+     * @param unit
+     *            The time unit of the rate
+     * @param lanes
+     *            The number of lanes
+     * @return The executor
+     * @throws IllegalArgumentException
+     *             If the number of lanes is less than one
+     * @since 0.1.2
+     */
+    public static IShardedRatedExecutor shardedRatedExecutor(final long rate, final TimeUnit unit,
+            final int lanes)
+    {
+        return builder(rate, unit).buildSharded(lanes);
+    }
+
+    /**
+     * Creates a new sharded rated executor.
+     * <P>
+     * The rate is split across a number of lanes, each with its own queue and thread, so the
+     * throughput of executors with very short periods is not limited by a single thread. Tasks
+     * submitted with a key are pinned to a lane, other tasks are dealt to the lanes in turn and
+     * stolen by lanes that have nothing else to execute.
+     *
+     * @param rate
+     *            The rate of the executor
+     * @param unit
+     *            The time unit of the rate
+     * @param lanes
+     *            The number of lanes
+     * @param factory
+     *            The thread factory used to create the threads of the lanes
+     * @return The executor
+     * @throws IllegalArgumentException
+     *             If the number of lanes is less than one
+     * @since 0.1.2
+     */
+    public static IShardedRatedExecutor shardedRatedExecutor(final long rate, final TimeUnit unit,
+            final int lanes, final ThreadFactory factory)
+    {
+        return builder(rate, unit).threadFactory(factory).buildSharded(lanes);
+    }
+
+    /**
+     * Creates a new processor that maps items at a fixed rate.
+     * <P>
+     * Items are requested from upstream one at a time while the subscriber has outstanding demand.
+     * Each item is mapped on a new rated executor so items are requested no faster than the rate.
+     * The executor is shut down once the stream completes, fails or is cancelled.
+     *
+     * @param rate
+     *            The minimum time between mapping items
+     * @param unit
+     *            The unit of time
+     * @param mapper
+     *            Maps the items received to the items published
+     * @return The processor
+     * @since 0.1.2
+     */
+    public static <T, R> IProcessor<T, R> ratedProcessor(final long rate, final TimeUnit unit,
+            final IMapper<? super T, ? extends R> mapper)
+    {
+        return new RatedProcessor<T, R>(ratedExecutor(rate, unit), mapper, true);
+    }
+
+    /**
+     * Creates a new processor that maps items on an executor.
+     * <P>
+     * Items are requested from upstream one at a time while the subscriber has outstanding demand.
+     * Each item is mapped by a task executed by the executor so when given a rated executor items
+     * are requested no faster than its rate.
+     *
+     * @param executor
+     *            The executor to map items on
+     * @param mapper
+     *            Maps the items received to the items published
+     * @return The processor
+     * @since 0.1.2
+     */
+    public static <T, R> IProcessor<T, R> ratedProcessor(final Executor executor,
+            final IMapper<? super T, ? extends R> mapper)
+    {
+        return new RatedProcessor<T, R>(executor, mapper);
+    }
+
+    /**
+     * Lazily maps the items of an iterator at a fixed rate.
+     * <P>
+     * Items are taken from the source as they are needed to keep a window of items being mapped.
+     * The results are returned in the order of the source. If an item cannot be mapped the
+     * iterator throws a {@link com.mattunderscore.executors.MappingException}. The executor that
+     * maps the items is shut down once the source is exhausted or the iterator is closed. An
+     * iterator that is not iterated to the end must be closed to stop the thread of the executor.
+     *
+     * @param source
+     *            The items to map
+     * @param mapper
+     *            Maps each item
+     * @param rate
+     *            The minimum time between mapping items
+     * @param unit
+     *            The unit of time
+     * @param window
+     *            The maximum number of items being mapped at once
+     * @return An iterator of the mapped items
+     * @since 0.1.2
+     */
+    public static <T, R> ICloseableIterator<R> map(final Iterator<? extends T> source,
+            final IMapper<? super T, ? extends R> mapper, final long rate, final TimeUnit unit,
+            final int window)
+    {
+        return new RatedMappingIterator<T, R>(source, mapper, ratedExecutor(rate, unit), window,
+                true, true);
+    }
+
+    /**
+     * Lazily maps the items of an iterator on a rated executor.
+     * <P>
+     * Items are taken from the source as they are needed to keep a window of items being mapped.
+     * If unordered the results are returned as soon as they are mapped rather than in the order
+     * of the source. If an item cannot be mapped the iterator throws a
+     * {@link com.mattunderscore.executors.MappingException}. Closing the iterator cancels the
+     * items being mapped and takes no more items from the source.
+     *
+     * @param source
+     *            The items to map
+     * @param mapper
+     *            Maps each item
+     * @param executor
+     *            The executor to map items on
+     * @param window
+     *            The maximum number of items being mapped at once
+     * @param ordered
+     *            If the results should be returned in the order of the source
+     * @return An iterator of the mapped items
+     * @since 0.1.2
+     */
+    public static <T, R> ICloseableIterator<R> map(final Iterator<? extends T> source,
+            final IMapper<? super T, ? extends R> mapper, final IRatedExecutor executor,
+            final int window, final boolean ordered)
+    {
+        return new RatedMappingIterator<T, R>(source, mapper, executor, window, ordered);
+    }
 }
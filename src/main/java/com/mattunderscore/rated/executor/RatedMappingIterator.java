@@ -0,0 +1,229 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import net.jcip.annotations.NotThreadSafe;
+
+import com.mattunderscore.executors.ICloseableIterator;
+import com.mattunderscore.executors.IListenableFuture;
+import com.mattunderscore.executors.IMapper;
+import com.mattunderscore.executors.MappingException;
+
+/**
+ * An iterator that maps the items of another iterator on a rated executor.
+ * <P>
+ * Items are taken from the source as they are needed to keep a fixed number of tasks submitted to
+ * the executor. Only the futures of these tasks are held so memory does not grow with the size of
+ * the source. If ordered the results are returned in the order of the source, otherwise they are
+ * returned in the order the tasks complete.
+ * <P>
+ * An iterator that owns its executor shuts it down once the source is exhausted, the executor
+ * terminates after the last item has been mapped. Closing the iterator cancels the tasks that have
+ * not been returned, takes no more items from the source and shuts down an owned executor.
+ *
+ * @author Matt Champion
+ * @param <T> The type of the source items
+ * @param <R> The type of the mapped items
+ * @since 0.1.2
+ */
+@NotThreadSafe
+/* package */final class RatedMappingIterator<T, R> implements ICloseableIterator<R>
+{
+    private static final Executor DIRECT = new Executor()
+    {
+        @Override
+        public void execute(Runnable command)
+        {
+            command.run();
+        }
+    };
+
+    private final Iterator<? extends T> source;
+    private final IMapper<? super T, ? extends R> mapper;
+    private final IRatedExecutor executor;
+    private final int window;
+    private final boolean ordered;
+    private final boolean ownsExecutor;
+    /**
+     * The tasks submitted and not yet returned in the order of the source.
+     */
+    private final Queue<IListenableFuture<R>> submitted = new ArrayDeque<IListenableFuture<R>>();
+    /**
+     * The tasks in the order they complete, used when unordered.
+     */
+    private final BlockingQueue<IListenableFuture<R>> completed =
+            new LinkedBlockingQueue<IListenableFuture<R>>();
+    private int inFlight = 0;
+    private boolean closed = false;
+
+    public RatedMappingIterator(final Iterator<? extends T> source,
+            final IMapper<? super T, ? extends R> mapper, final IRatedExecutor executor,
+            final int window, final boolean ordered)
+    {
+        this(source, mapper, executor, window, ordered, false);
+    }
+
+    /**
+     * Create an iterator that may own its executor.
+     * @param ownsExecutor If the executor should be shut down when the source is exhausted
+     */
+    public RatedMappingIterator(final Iterator<? extends T> source,
+            final IMapper<? super T, ? extends R> mapper, final IRatedExecutor executor,
+            final int window, final boolean ordered, final boolean ownsExecutor)
+    {
+        if (window < 1)
+        {
+            throw new IllegalArgumentException("The window must be at least one");
+        }
+        this.source = source;
+        this.mapper = mapper;
+        this.executor = executor;
+        this.window = window;
+        this.ordered = ordered;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        fill();
+        return inFlight > 0;
+    }
+
+    @Override
+    public R next()
+    {
+        if (!hasNext())
+        {
+            throw new NoSuchElementException();
+        }
+        final IListenableFuture<R> future;
+        try
+        {
+            if (ordered)
+            {
+                future = submitted.poll();
+            }
+            else
+            {
+                future = completed.take();
+                submitted.remove(future);
+            }
+            inFlight--;
+            return future.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new MappingException(e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new MappingException(e.getCause());
+        }
+        finally
+        {
+            fill();
+        }
+    }
+
+    @Override
+    public void remove()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close()
+    {
+        if (closed)
+        {
+            return;
+        }
+        closed = true;
+        for (final IListenableFuture<R> future : submitted)
+        {
+            future.cancel(false);
+        }
+        submitted.clear();
+        completed.clear();
+        inFlight = 0;
+        if (ownsExecutor)
+        {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Submit tasks for source items until the window is full.
+     */
+    private void fill()
+    {
+        if (closed)
+        {
+            return;
+        }
+        while (inFlight < window && source.hasNext())
+        {
+            final T item = source.next();
+            final IListenableFuture<R> future = executor.submit(new Callable<R>()
+            {
+                @Override
+                public R call() throws Exception
+                {
+                    return mapper.map(item);
+                }
+            });
+            inFlight++;
+            submitted.add(future);
+            if (!ordered)
+            {
+                future.addListener(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        completed.add(future);
+                    }
+                }, DIRECT);
+            }
+        }
+        if (ownsExecutor && !source.hasNext())
+        {
+            executor.shutdown();
+        }
+    }
+}
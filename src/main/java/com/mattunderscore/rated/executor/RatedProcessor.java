@@ -0,0 +1,394 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import com.mattunderscore.executors.IMapper;
+import com.mattunderscore.executors.IProcessor;
+import com.mattunderscore.executors.ISubscriber;
+import com.mattunderscore.executors.ISubscription;
+
+/**
+ * A processor that maps each item on a rated executor.
+ * <P>
+ * At most one item is requested from upstream at a time and only while the downstream subscriber
+ * has outstanding demand. The item is mapped by a task executed on the executor and passed
+ * downstream by the same task before the next item is requested. Items are therefore requested
+ * no faster than the executor rate and none are buffered. A single downstream subscriber is
+ * supported.
+ * <P>
+ * A processor that owns its executor shuts it down once the stream completes, fails or is
+ * cancelled so the thread of the executor does not outlive the stream.
+ *
+ * @author Matt Champion
+ * @param <T> The type of the items received
+ * @param <R> The type of the items published
+ * @since 0.1.2
+ */
+@ThreadSafe
+/* package */final class RatedProcessor<T, R> implements IProcessor<T, R>
+{
+    private final Executor executor;
+    // Null unless the processor owns the executor
+    private final IRatedExecutor ownedExecutor;
+    private final IMapper<? super T, ? extends R> mapper;
+    @GuardedBy("this")
+    private ISubscription upstream;
+    @GuardedBy("this")
+    private ISubscriber<? super R> downstream;
+    @GuardedBy("this")
+    private long demand = 0L;
+    @GuardedBy("this")
+    private boolean requested = false;
+    @GuardedBy("this")
+    private boolean inFlight = false;
+    @GuardedBy("this")
+    private boolean upstreamDone = false;
+    @GuardedBy("this")
+    private Throwable upstreamError;
+    @GuardedBy("this")
+    private boolean terminated = false;
+
+    public RatedProcessor(final Executor executor, final IMapper<? super T, ? extends R> mapper)
+    {
+        this.executor = executor;
+        this.ownedExecutor = null;
+        this.mapper = mapper;
+    }
+
+    /**
+     * @param executor The executor to map items on
+     * @param mapper Maps the items received to the items published
+     * @param ownsExecutor If the executor should be shut down when the stream terminates
+     */
+    public RatedProcessor(final IRatedExecutor executor,
+            final IMapper<? super T, ? extends R> mapper, final boolean ownsExecutor)
+    {
+        this.executor = executor;
+        this.ownedExecutor = ownsExecutor ? executor : null;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public void subscribe(final ISubscriber<? super R> subscriber)
+    {
+        final boolean accepted;
+        synchronized (this)
+        {
+            accepted = downstream == null;
+            if (accepted)
+            {
+                downstream = subscriber;
+            }
+        }
+        if (!accepted)
+        {
+            subscriber.onSubscribe(new ISubscription()
+            {
+                @Override
+                public void request(long n)
+                {
+                }
+
+                @Override
+                public void cancel()
+                {
+                }
+            });
+            subscriber.onError(new IllegalStateException("Only one subscriber is supported"));
+            return;
+        }
+        subscriber.onSubscribe(new DownstreamSubscription());
+        requestNext();
+    }
+
+    @Override
+    public void onSubscribe(final ISubscription subscription)
+    {
+        synchronized (this)
+        {
+            if (upstream != null || terminated)
+            {
+                subscription.cancel();
+                return;
+            }
+            upstream = subscription;
+        }
+        requestNext();
+    }
+
+    @Override
+    public void onNext(final T item)
+    {
+        synchronized (this)
+        {
+            if (terminated)
+            {
+                return;
+            }
+            inFlight = true;
+        }
+        try
+        {
+            executor.execute(new MappingTask(item));
+        }
+        catch (RejectedExecutionException e)
+        {
+            // The stream may have terminated and shut down an owned executor since the check
+            synchronized (this)
+            {
+                if (terminated)
+                {
+                    return;
+                }
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void onError(final Throwable t)
+    {
+        synchronized (this)
+        {
+            upstreamDone = true;
+            upstreamError = t;
+            if (inFlight)
+            {
+                // The mapping task will finish the stream
+                return;
+            }
+        }
+        finish();
+    }
+
+    @Override
+    public void onComplete()
+    {
+        synchronized (this)
+        {
+            upstreamDone = true;
+            if (inFlight)
+            {
+                // The mapping task will finish the stream
+                return;
+            }
+        }
+        finish();
+    }
+
+    /**
+     * Request the next item from upstream if there is demand and no other item is requested.
+     */
+    private void requestNext()
+    {
+        final ISubscription subscription;
+        synchronized (this)
+        {
+            if (terminated || upstreamDone || upstream == null || downstream == null
+                    || requested || demand == 0L)
+            {
+                return;
+            }
+            requested = true;
+            subscription = upstream;
+        }
+        subscription.request(1L);
+    }
+
+    /**
+     * Pass the completion or error of upstream to downstream.
+     */
+    private void finish()
+    {
+        final ISubscriber<? super R> subscriber;
+        final Throwable error;
+        synchronized (this)
+        {
+            if (terminated || downstream == null)
+            {
+                return;
+            }
+            terminated = true;
+            subscriber = downstream;
+            error = upstreamError;
+        }
+        releaseExecutor();
+        if (error == null)
+        {
+            subscriber.onComplete();
+        }
+        else
+        {
+            subscriber.onError(error);
+        }
+    }
+
+    /**
+     * End the stream with an error raised by the processor.
+     */
+    private void fail(final Throwable t)
+    {
+        final ISubscriber<? super R> subscriber;
+        final ISubscription subscription;
+        synchronized (this)
+        {
+            if (terminated)
+            {
+                return;
+            }
+            terminated = true;
+            subscriber = downstream;
+            subscription = upstream;
+        }
+        releaseExecutor();
+        if (subscription != null)
+        {
+            subscription.cancel();
+        }
+        if (subscriber != null)
+        {
+            subscriber.onError(t);
+        }
+    }
+
+    /**
+     * Shut down the executor if the processor owns it. The mapping task that terminates the stream
+     * may be running on the executor, it finishes before the executor terminates.
+     */
+    private void releaseExecutor()
+    {
+        if (ownedExecutor != null)
+        {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Maps an item and passes it downstream.
+     */
+    private final class MappingTask implements Runnable
+    {
+        private final T item;
+
+        public MappingTask(final T item)
+        {
+            this.item = item;
+        }
+
+        @Override
+        public void run()
+        {
+            final ISubscriber<? super R> subscriber;
+            synchronized (RatedProcessor.this)
+            {
+                if (terminated)
+                {
+                    return;
+                }
+                subscriber = downstream;
+            }
+            final R result;
+            try
+            {
+                result = mapper.map(item);
+            }
+            catch (Exception e)
+            {
+                fail(e);
+                return;
+            }
+            subscriber.onNext(result);
+            final boolean done;
+            synchronized (RatedProcessor.this)
+            {
+                demand--;
+                requested = false;
+                inFlight = false;
+                done = upstreamDone;
+            }
+            if (done)
+            {
+                finish();
+            }
+            else
+            {
+                requestNext();
+            }
+        }
+    }
+
+    /**
+     * The subscription given to the downstream subscriber.
+     */
+    private final class DownstreamSubscription implements ISubscription
+    {
+        @Override
+        public void request(final long n)
+        {
+            if (n <= 0L)
+            {
+                fail(new IllegalArgumentException("Requests must be positive"));
+                return;
+            }
+            synchronized (RatedProcessor.this)
+            {
+                demand += n;
+                if (demand < 0L)
+                {
+                    // Overflow, treat as unbounded
+                    demand = Long.MAX_VALUE;
+                }
+            }
+            requestNext();
+        }
+
+        @Override
+        public void cancel()
+        {
+            final ISubscription subscription;
+            synchronized (RatedProcessor.this)
+            {
+                if (terminated)
+                {
+                    return;
+                }
+                terminated = true;
+                subscription = upstream;
+            }
+            releaseExecutor();
+            if (subscription != null)
+            {
+                subscription.cancel();
+            }
+        }
+    }
+}
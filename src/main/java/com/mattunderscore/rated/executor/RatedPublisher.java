@@ -0,0 +1,262 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import com.mattunderscore.executors.IPublisher;
+import com.mattunderscore.executors.ISubscriber;
+import com.mattunderscore.executors.ISubscription;
+import com.mattunderscore.executors.ITaskCanceller;
+import com.mattunderscore.executors.ITaskResultProcessor;
+import com.mattunderscore.executors.ITaskWrapper;
+
+/**
+ * Publishes the result of each execution of a task scheduled on a rated executor.
+ * <P>
+ * The task is only on the queue of the executor while the subscriber has outstanding demand. Each
+ * result is passed to the subscriber by the thread that executed the task, before the task is
+ * submitted again. When the demand runs out the task is not submitted again until more is
+ * requested, so no executions are spent and no results are buffered. A single subscriber is
+ * supported.
+ * <P>
+ * If the task throws an exception the stream fails with it. The stream also fails if the executor
+ * has been shut down when the task is submitted again. Cancelling the subscription removes the
+ * task from the queue.
+ *
+ * @author Matt Champion
+ * @param <V> The type of the result of the task
+ * @since 0.1.2
+ */
+@ThreadSafe
+/* package */final class RatedPublisher<V> implements IPublisher<V>, ITaskResultProcessor<V>
+{
+    private final IInternalExecutor executor;
+    private final ITaskCanceller canceller;
+    private volatile ITaskWrapper task;
+    @GuardedBy("this")
+    private ISubscriber<? super V> subscriber;
+    @GuardedBy("this")
+    private long demand = 0L;
+    @GuardedBy("this")
+    private boolean queued = false;
+    @GuardedBy("this")
+    private boolean terminated = false;
+
+    /**
+     * @param executor The executor to submit the task to
+     * @param canceller Removes the task from the queue when the subscription is cancelled
+     */
+    public RatedPublisher(final IInternalExecutor executor, final ITaskCanceller canceller)
+    {
+        this.executor = executor;
+        this.canceller = canceller;
+    }
+
+    /**
+     * Set the task to submit while there is demand.
+     *
+     * @param wrapper
+     *            The task
+     */
+    public void setTask(final ITaskWrapper wrapper)
+    {
+        task = wrapper;
+    }
+
+    @Override
+    public void subscribe(final ISubscriber<? super V> newSubscriber)
+    {
+        final boolean accepted;
+        synchronized (this)
+        {
+            accepted = subscriber == null;
+            if (accepted)
+            {
+                subscriber = newSubscriber;
+            }
+        }
+        if (!accepted)
+        {
+            newSubscriber.onSubscribe(new ISubscription()
+            {
+                @Override
+                public void request(long n)
+                {
+                }
+
+                @Override
+                public void cancel()
+                {
+                }
+            });
+            newSubscriber.onError(new IllegalStateException("Only one subscriber is supported"));
+            return;
+        }
+        newSubscriber.onSubscribe(new Subscription());
+    }
+
+    @Override
+    public void onResult(final ITaskWrapper wrapper, final V result)
+    {
+        final ISubscriber<? super V> current;
+        synchronized (this)
+        {
+            if (terminated)
+            {
+                queued = false;
+                executor.requestStop();
+                return;
+            }
+            demand--;
+            current = subscriber;
+        }
+        try
+        {
+            current.onNext(result);
+        }
+        catch (RuntimeException e)
+        {
+            fail(e);
+            return;
+        }
+        final boolean resubmit;
+        synchronized (this)
+        {
+            resubmit = !terminated && demand > 0L;
+            queued = resubmit;
+        }
+        if (!resubmit)
+        {
+            // Nothing else may be keeping the executor running
+            executor.requestStop();
+        }
+        else if (!executor.submit(wrapper))
+        {
+            fail(new RejectedExecutionException("The executor has been shut down"));
+        }
+    }
+
+    @Override
+    public void onThrowable(final ITaskWrapper wrapper, final Throwable t)
+    {
+        synchronized (this)
+        {
+            queued = false;
+        }
+        fail(t);
+    }
+
+    /**
+     * Add demand and submit the task if it is not already queued.
+     */
+    private void request(final long n)
+    {
+        if (n <= 0L)
+        {
+            fail(new IllegalArgumentException("The number of items requested must be positive"));
+            return;
+        }
+        synchronized (this)
+        {
+            if (terminated)
+            {
+                return;
+            }
+            // Demand of Long.MAX_VALUE or more is unbounded
+            demand = demand + n < 0L ? Long.MAX_VALUE : demand + n;
+            if (queued)
+            {
+                return;
+            }
+            queued = true;
+        }
+        if (!executor.submit(task))
+        {
+            synchronized (this)
+            {
+                queued = false;
+            }
+            fail(new RejectedExecutionException("The executor has been shut down"));
+        }
+    }
+
+    private void cancel()
+    {
+        synchronized (this)
+        {
+            if (terminated)
+            {
+                return;
+            }
+            terminated = true;
+        }
+        // An executing task is not submitted again
+        canceller.cancelTask(task, false);
+    }
+
+    /**
+     * End the stream with an error.
+     */
+    private void fail(final Throwable t)
+    {
+        final ISubscriber<? super V> current;
+        synchronized (this)
+        {
+            if (terminated)
+            {
+                return;
+            }
+            terminated = true;
+            current = subscriber;
+        }
+        canceller.cancelTask(task, false);
+        current.onError(t);
+    }
+
+    /**
+     * The subscription of the subscriber.
+     *
+     * @author Matt Champion
+     */
+    private final class Subscription implements ISubscription
+    {
+        @Override
+        public void request(final long n)
+        {
+            RatedPublisher.this.request(n);
+        }
+
+        @Override
+        public void cancel()
+        {
+            RatedPublisher.this.cancel();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import net.jcip.annotations.Immutable;
+
+/**
+ * The retries of a task submitted to a rated executor that throws an exception.
+ * <P>
+ * A task that fails with a retryable exception is executed again until it succeeds or has been
+ * attempted the maximum number of times. Retries are not added to the back of the queue. Once its
+ * backoff has passed a retry takes the next execution ahead of the queued tasks, the executions
+ * during the backoff go to the queued tasks. The backoff doubles after each attempt up to a
+ * maximum. If the task fails with an exception that is not retryable, runs out of attempts or the
+ * executor has been shut down the future fails with the last exception.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+@Immutable
+public final class RetryPolicy
+{
+    private static final Class<?>[] ANY_EXCEPTION = new Class<?>[] { Exception.class };
+
+    private final int maxAttempts;
+    private final long initialDelay;
+    private final long maxDelay;
+    private final Class<?>[] retryable;
+
+    private RetryPolicy(final int maxAttempts, final long initialDelay, final long maxDelay,
+            final Class<?>[] retryable)
+    {
+        this.maxAttempts = maxAttempts;
+        this.initialDelay = initialDelay;
+        this.maxDelay = maxDelay;
+        this.retryable = retryable;
+    }
+
+    /**
+     * Retry a task that throws any {@link Exception} without backoff.
+     *
+     * @param maxAttempts
+     *            The maximum number of times to execute the task, including the first
+     * @return The retry policy
+     */
+    public static RetryPolicy maxAttempts(final int maxAttempts)
+    {
+        if (maxAttempts < 1)
+        {
+            throw new IllegalArgumentException("At least one attempt must be made");
+        }
+        return new RetryPolicy(maxAttempts, 0L, 0L, ANY_EXCEPTION);
+    }
+
+    /**
+     * Wait before each retry. The first retry waits for the initial delay, the delay doubles for
+     * each retry after it up to the maximum delay.
+     *
+     * @param initialDelay
+     *            The delay before the first retry
+     * @param maxDelay
+     *            The maximum delay before a retry
+     * @param unit
+     *            The time unit of the delays
+     * @return A retry policy with the backoff
+     */
+    public RetryPolicy backoff(final long initialDelay, final long maxDelay, final TimeUnit unit)
+    {
+        if (initialDelay < 0L)
+        {
+            throw new IllegalArgumentException("The initial delay cannot be negative");
+        }
+        if (maxDelay < initialDelay)
+        {
+            throw new IllegalArgumentException(
+                    "The maximum delay cannot be less than the initial delay");
+        }
+        return new RetryPolicy(maxAttempts, unit.toNanos(initialDelay), unit.toNanos(maxDelay),
+                retryable);
+    }
+
+    /**
+     * Only retry tasks that throw exceptions of the given type or its subtypes.
+     *
+     * @param type
+     *            The retryable exception type
+     * @return A retry policy that retries only the type
+     */
+    public RetryPolicy retryOn(final Class<? extends Throwable> type)
+    {
+        return new RetryPolicy(maxAttempts, initialDelay, maxDelay, new Class<?>[] { type });
+    }
+
+    /**
+     * Only retry tasks that throw exceptions of the given types or their subtypes.
+     *
+     * @param types
+     *            The retryable exception types
+     * @return A retry policy that retries only the types
+     */
+    public RetryPolicy retryOn(final Collection<? extends Class<? extends Throwable>> types)
+    {
+        if (types.isEmpty())
+        {
+            throw new IllegalArgumentException("At least one exception type must be retryable");
+        }
+        return new RetryPolicy(maxAttempts, initialDelay, maxDelay,
+                types.toArray(new Class<?>[types.size()]));
+    }
+
+    /**
+     * @param attempts
+     *            The number of attempts made
+     * @param t
+     *            The exception thrown by the last attempt
+     * @return True if the task should be attempted again
+     */
+    /* package */boolean shouldRetry(final int attempts, final Throwable t)
+    {
+        if (attempts >= maxAttempts)
+        {
+            return false;
+        }
+        for (final Class<?> type : retryable)
+        {
+            if (type.isInstance(t))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param attempts
+     *            The number of attempts made
+     * @return The delay in nanoseconds before the next attempt
+     */
+    /* package */long delay(final int attempts)
+    {
+        long delay = initialDelay;
+        for (int i = 1; i < attempts && delay < maxDelay; i++)
+        {
+            delay = delay * 2;
+        }
+        return delay < maxDelay ? delay : maxDelay;
+    }
+}
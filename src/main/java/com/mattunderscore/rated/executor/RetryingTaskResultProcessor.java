@@ -0,0 +1,78 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import com.mattunderscore.executors.ISettableFuture;
+import com.mattunderscore.executors.ITaskResultProcessor;
+import com.mattunderscore.executors.ITaskWrapper;
+
+/**
+ * The task processor for the RatedExecutor that retries a task that throws an exception. Retries
+ * are added to the {@link TaskQueue} to be executed ahead of the queued tasks once their backoff
+ * has passed. If the task is not retried the future is completed with the exception.
+ *
+ * @author Matt Champion
+ * @param <V> The type of the result of the task
+ * @since 0.1.2
+ */
+/* package */final class RetryingTaskResultProcessor<V> implements ITaskResultProcessor<V>
+{
+    private final ISettableFuture<V> future;
+    private final IInternalExecutor executor;
+    private final TaskQueue taskQueue;
+    private final RetryPolicy policy;
+    // Only accessed by the execution of the task, executions are ordered by the queue
+    private int attempts = 0;
+
+    public RetryingTaskResultProcessor(final ISettableFuture<V> future,
+            final IInternalExecutor executor, final TaskQueue taskQueue, final RetryPolicy policy)
+    {
+        this.future = future;
+        this.executor = executor;
+        this.taskQueue = taskQueue;
+        this.policy = policy;
+    }
+
+    @Override
+    public void onThrowable(ITaskWrapper task, Throwable t)
+    {
+        attempts++;
+        if (!future.isDone() && policy.shouldRetry(attempts, t)
+                && taskQueue.retry(task, System.nanoTime() + policy.delay(attempts)))
+        {
+            return;
+        }
+        future.setException(t);
+        executor.requestStop();
+    }
+
+    @Override
+    public void onResult(ITaskWrapper task, V result)
+    {
+        future.setResult(result);
+        executor.requestStop();
+    }
+}
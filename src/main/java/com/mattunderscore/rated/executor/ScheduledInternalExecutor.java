@@ -25,7 +25,11 @@ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
 
 package com.mattunderscore.rated.executor;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
@@ -37,6 +41,24 @@ import com.mattunderscore.executors.ITaskWrapper;
 
 /**
  * {@link IInternalExecutor} implementation based on the {@link ScheduledExecutorService}.
+ * <P>
+ * Each execution is scheduled once the previous execution has completed. The target time of the
+ * next execution is calculated from the target time of the previous execution, if the previous
+ * execution was late the {@link CatchUpPolicy} decides how much of the schedule to recover. The
+ * {@link Jitter} adds a random delay to each target time. The {@link WarmUp} lengthens the
+ * interval between executions after the executor starts cold.
+ * <P>
+ * In tickless mode the next execution is not scheduled when the queue is empty. The next task
+ * submitted is scheduled for the earliest time allowed by the rate. An idle executor causes no
+ * wake ups and does not need to schedule a task to stop it.
+ * <P>
+ * Pausing the executor stops the pacing task, an executing pacing task stops once its execution
+ * has completed. Resuming it starts a new pacing task at the earliest time allowed by the rate,
+ * the executions missed during the pause are not caught up.
+ * <P>
+ * After the queue has been shut down the executor terminates as soon as the queue is empty and no
+ * task is executing. If the executor owns its service the service is shut down on termination.
+ * Tasks submitted after a shared service has been shut down are refused.
  * 
  * @author Matt Champion
  * @since 0.1.1
@@ -45,39 +67,137 @@ import com.mattunderscore.executors.ITaskWrapper;
 {
     private final long rate;
     private final TimeUnit unit;
+    private final long rateInNanos;
+    private final CatchUpPolicy catchUpPolicy;
+    private final Jitter jitter;
+    private final WarmUp warmUp;
+    private final boolean tickless;
     private final TaskQueue taskQueue;
+    private final ExecutingTask executingTask;
     private final ScheduledExecutorService service;
+    private final boolean ownsService;
+    private final CountDownLatch terminated = new CountDownLatch(1);
     // thisTask is always accessed within a synchronised block
     @GuardedBy(value = "this")
     private ScheduledFuture<?> thisTask;
+    // pacingTask is always accessed within a synchronised block
+    @GuardedBy(value = "this")
+    private PacingTask pacingTask;
     // stoppingTask is always accessed within a synchronised block
     @GuardedBy(value = "this")
     private ScheduledFuture<?> stoppingTask;
     // running is always accessed within a synchronised block
     @GuardedBy(value = "this")
     private boolean running = false;
+    // lastStart is always accessed within a synchronised block
+    @GuardedBy(value = "this")
+    private long lastStart;
+    // warmStart is always accessed within a synchronised block
+    @GuardedBy(value = "this")
+    private long warmStart;
+    // executing is always accessed within a synchronised block
+    @GuardedBy(value = "this")
+    private boolean executing = false;
+    // paused is always accessed within a synchronised block
+    @GuardedBy(value = "this")
+    private boolean paused = false;
+    // pausedUntil is always accessed within a synchronised block
+    @GuardedBy(value = "this")
+    private long pausedUntil;
+    // resumingTask is always accessed within a synchronised block
+    @GuardedBy(value = "this")
+    private ScheduledFuture<?> resumingTask;
 
     /* package */ScheduledInternalExecutor(final TaskQueue taskQueue, final long rate,
             final TimeUnit unit, final ThreadFactory threadFactory)
     {
-        this.service = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        this(taskQueue, rate, unit, Executors.newSingleThreadScheduledExecutor(threadFactory),
+                CatchUpPolicy.catchUp(), Jitter.none(), WarmUp.none(), false, true);
+    }
+
+    /**
+     * Create an internal executor that uses a provided {@link ScheduledExecutorService}. The
+     * service may be shared between many internal executors, each will keep to its own rate. The
+     * executor follows a {@link CatchUpPolicy} when executions are late, adds {@link Jitter} to
+     * the target time of each execution and follows a {@link WarmUp} when started cold. If
+     * tickless the executor stops as soon as the queue is empty. If the executor owns the service
+     * it shuts it down when it terminates.
+     */
+    /* package */ScheduledInternalExecutor(final TaskQueue taskQueue, final long rate,
+            final TimeUnit unit, final ScheduledExecutorService service,
+            final CatchUpPolicy catchUpPolicy, final Jitter jitter, final WarmUp warmUp,
+            final boolean tickless, final boolean ownsService)
+    {
+        this.service = service;
+        this.ownsService = ownsService;
         this.taskQueue = taskQueue;
         this.rate = rate;
         this.unit = unit;
+        this.rateInNanos = unit.toNanos(rate);
+        this.catchUpPolicy = catchUpPolicy;
+        this.jitter = jitter;
+        this.warmUp = warmUp;
+        this.tickless = tickless;
+        this.executingTask = new ExecutingTask(taskQueue);
+        // The first start is cold
+        this.lastStart = System.nanoTime() - 2 * rateInNanos;
     }
 
     @Override
-    public synchronized void submit(final ITaskWrapper wrapper)
+    public synchronized boolean submit(final ITaskWrapper wrapper)
     {
+        // A shared service may have been shut down by its group
+        if (service.isShutdown() || !taskQueue.add(wrapper))
+        {
+            return false;
+        }
         if (stoppingTask != null)
         {
             stoppingTask.cancel(false);
         }
-        taskQueue.add(wrapper);
         if (!running)
         {
-            start();
+            try
+            {
+                start();
+            }
+            catch (final RejectedExecutionException e)
+            {
+                // The service was shut down after the check, nothing would execute the task
+                taskQueue.remove(wrapper);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized boolean submitAll(final Collection<? extends ITaskWrapper> wrappers)
+    {
+        if (service.isShutdown() || !taskQueue.addAll(wrappers))
+        {
+            return false;
+        }
+        if (stoppingTask != null)
+        {
+            stoppingTask.cancel(false);
+        }
+        if (!running)
+        {
+            try
+            {
+                start();
+            }
+            catch (final RejectedExecutionException e)
+            {
+                for (final ITaskWrapper wrapper : wrappers)
+                {
+                    taskQueue.remove(wrapper);
+                }
+                return false;
+            }
         }
+        return true;
     }
 
     /**
@@ -85,13 +205,22 @@ import com.mattunderscore.executors.ITaskWrapper;
      */
     private void start()
     {
-        if (running)
+        if (running || paused)
         {
             return;
         }
         else
         {
-            thisTask = service.scheduleAtFixedRate(new ExecutingTask(taskQueue), 0, rate, unit);
+            // Start immediately unless the last execution was within the period
+            final long now = System.nanoTime();
+            final long earliest = lastStart + rateInNanos;
+            final long targetTime = (earliest - now > 0 ? earliest : now) + jitter.delay();
+            if (warmUp.isCold(rateInNanos, now - lastStart))
+            {
+                warmStart = targetTime;
+            }
+            pacingTask = new PacingTask(targetTime);
+            thisTask = service.schedule(pacingTask, targetTime - now, TimeUnit.NANOSECONDS);
             running = true;
         }
     }
@@ -99,7 +228,9 @@ import com.mattunderscore.executors.ITaskWrapper;
     @Override
     public synchronized void requestStop()
     {
-        if (taskQueue.isEmpty())
+        // Tickless executors stop themselves when the queue is empty, shut down executors
+        // terminate when the queue is empty
+        if (!tickless && !taskQueue.isShutdown() && taskQueue.isEmpty())
         {
             stoppingTask = service.schedule(new StoppingTask(), rate, unit);
         }
@@ -111,10 +242,169 @@ import com.mattunderscore.executors.ITaskWrapper;
         if (running)
         {
             thisTask.cancel(false);
+            pacingTask = null;
             running = false;
         }
     }
 
+    @Override
+    public synchronized void pauseUntil(final long time)
+    {
+        if (paused && pausedUntil - time >= 0L)
+        {
+            return;
+        }
+        paused = true;
+        pausedUntil = time;
+        // An executing pacing task stops itself once the execution completes
+        if (!executing)
+        {
+            stop();
+        }
+        if (resumingTask != null)
+        {
+            resumingTask.cancel(false);
+        }
+        resumingTask = service.schedule(new ResumingTask(time), time - System.nanoTime(),
+                TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public synchronized void resume()
+    {
+        if (!paused)
+        {
+            return;
+        }
+        paused = false;
+        resumingTask.cancel(false);
+        resumingTask = null;
+        if (!taskQueue.isEmpty())
+        {
+            start();
+        }
+    }
+
+    @Override
+    public synchronized void shutdown()
+    {
+        taskQueue.shutdown();
+        tryTerminate();
+    }
+
+    @Override
+    public synchronized List<ITaskWrapper> shutdownNow()
+    {
+        final List<ITaskWrapper> tasks = taskQueue.shutdownNow();
+        tryTerminate();
+        return tasks;
+    }
+
+    @Override
+    public boolean isTerminated()
+    {
+        return terminated.getCount() == 0L;
+    }
+
+    @Override
+    public boolean awaitTermination(final long timeout, final TimeUnit unit)
+            throws InterruptedException
+    {
+        return terminated.await(timeout, unit);
+    }
+
+    /**
+     * Terminate if shut down with nothing left to execute. Must be called holding the lock.
+     */
+    private void tryTerminate()
+    {
+        if (taskQueue.isShutdown() && !executing && taskQueue.isEmpty() && !isTerminated())
+        {
+            stop();
+            if (stoppingTask != null)
+            {
+                stoppingTask.cancel(false);
+            }
+            if (resumingTask != null)
+            {
+                resumingTask.cancel(false);
+            }
+            terminated.countDown();
+            if (ownsService)
+            {
+                service.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Runnable that consumes a task and schedules its next execution.
+     * <P>
+     * A new instance is used each time the executor starts, an instance that is no longer the
+     * current pacing task does nothing. This prevents executions from a stopped schedule running
+     * alongside a new one.
+     *
+     * @author Matt Champion
+     */
+    private final class PacingTask implements Runnable
+    {
+        // targetTime and delay are only accessed by the single scheduled execution of this task
+        private long targetTime;
+        // The jitter of the next execution, added on top of the target so it does not build up
+        private long delay = 0L;
+
+        public PacingTask(final long targetTime)
+        {
+            this.targetTime = targetTime;
+        }
+
+        @Override
+        public void run()
+        {
+            final long startTime = System.nanoTime();
+            synchronized (ScheduledInternalExecutor.this)
+            {
+                if (pacingTask != this)
+                {
+                    return;
+                }
+                lastStart = startTime;
+                executing = true;
+            }
+            executingTask.run();
+            synchronized (ScheduledInternalExecutor.this)
+            {
+                executing = false;
+                if (pacingTask == this && paused)
+                {
+                    // Resuming will start a new pacing task
+                    pacingTask = null;
+                    running = false;
+                }
+                else if (pacingTask == this && (tickless || taskQueue.isShutdown())
+                        && taskQueue.isEmpty())
+                {
+                    // Submitting a task will start a new pacing task
+                    pacingTask = null;
+                    running = false;
+                }
+                else if (pacingTask == this)
+                {
+                    // The targets leave room for the jitter so executions stay at least a period
+                    // apart. The lateness is measured from the jittered time
+                    final long interval = warmUp.interval(rateInNanos, startTime - warmStart)
+                            + jitter.maxDelay();
+                    targetTime = catchUpPolicy.nextTarget(targetTime, startTime - delay,
+                            interval);
+                    delay = jitter.delay();
+                    thisTask = service.schedule(this, targetTime + delay - System.nanoTime(),
+                            TimeUnit.NANOSECONDS);
+                }
+                tryTerminate();
+            }
+        }
+    }
+
     /**
      * Runnable that halts the scheduled task that consumes rated tasks.
      * 
@@ -125,8 +415,58 @@ import com.mattunderscore.executors.ITaskWrapper;
         @Override
         public void run()
         {
-            stop();
+            synchronized (ScheduledInternalExecutor.this)
+            {
+                // A task may have been submitted after this started but before it got the lock
+                if (taskQueue.isEmpty())
+                {
+                    stop();
+                }
+            }
+        }
+    }
+
+    /**
+     * Runnable that ends a pause at its time. A pause that has been extended or ended is left
+     * alone.
+     *
+     * @author Matt Champion
+     */
+    private final class ResumingTask implements Runnable
+    {
+        private final long time;
+
+        public ResumingTask(final long time)
+        {
+            this.time = time;
         }
+
+        @Override
+        public void run()
+        {
+            synchronized (ScheduledInternalExecutor.this)
+            {
+                if (paused && pausedUntil == time)
+                {
+                    resume();
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized long estimatedStartTime()
+    {
+        final long now = System.nanoTime();
+        final long earliest = paused && pausedUntil - (lastStart + rateInNanos) > 0L ? pausedUntil
+                : lastStart + rateInNanos;
+        return (earliest - now > 0 ? earliest : now) + taskQueue.size() * rateInNanos;
+    }
+
+    @Override
+    public long getPeriod()
+    {
+        return rateInNanos;
     }
 
     @Override
@@ -0,0 +1,207 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.jcip.annotations.ThreadSafe;
+
+import com.mattunderscore.executors.ITaskWrapper;
+import com.mattunderscore.executors.ITaskWrapperFactory;
+import com.mattunderscore.executors.TaskWrapperFactory;
+
+/**
+ * {@link IShardedRatedExecutor} implementation with a {@link ThreadedInternalExecutor} for each
+ * lane.
+ * <P>
+ * Each lane executes at its share of the rate. When the first task is submitted the lanes are
+ * paused for their share of the period, so busy lanes take turns instead of executing together.
+ * The queues of the lanes share their stealable tasks so a lane keeps running while any lane has
+ * a task it can steal.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+@ThreadSafe
+/* package */final class ShardedRatedExecutor implements IShardedRatedExecutor
+{
+    private final TaskQueue[] queues;
+    private final IInternalExecutor[] executors;
+    private final ITaskWrapperFactory wrapperFactory = new TaskWrapperFactory();
+    private final AtomicInteger next = new AtomicInteger();
+    private final long period;
+    private volatile boolean staggered = false;
+
+    /**
+     * @param rate The rate of the executor
+     * @param unit The time unit of the rate
+     * @param lanes The number of lanes
+     * @param factory The thread factory used to create the threads of the lanes
+     * @param spinThreshold The time before the target time in nanoseconds to stop parking
+     * @param catchUpPolicy The policy to follow when an execution is late
+     * @param jitter The random delay to add to each target time
+     * @param warmUp The warm up to follow when started cold
+     * @param tickless If the thread of a lane should stop as soon as its queue is empty
+     * @param keepAlive The time in nanoseconds the thread of a lane waits for a task before exiting
+     * @throws IllegalArgumentException If the number of lanes is less than one
+     */
+    public ShardedRatedExecutor(final long rate, final TimeUnit unit, final int lanes,
+            final ThreadFactory factory, final long spinThreshold,
+            final CatchUpPolicy catchUpPolicy, final Jitter jitter, final WarmUp warmUp,
+            final boolean tickless, final long keepAlive)
+    {
+        if (lanes < 1)
+        {
+            throw new IllegalArgumentException("The executor must have at least one lane");
+        }
+        queues = new TaskQueue[lanes];
+        executors = new IInternalExecutor[lanes];
+        period = unit.toNanos(rate);
+        for (int i = 0; i < lanes; i++)
+        {
+            queues[i] = new TaskQueue(queues, i);
+            // Each lane executes a share of the executions
+            executors[i] = new ThreadedInternalExecutor(queues[i], rate * lanes, unit, factory,
+                    spinThreshold, catchUpPolicy, jitter, warmUp, tickless, keepAlive);
+        }
+    }
+
+    @Override
+    public void execute(final Runnable task)
+    {
+        submit(nextLane(), new StealableTaskWrapper(wrapperFactory.newWrapper(task)));
+    }
+
+    @Override
+    public <V> void execute(final Callable<V> task)
+    {
+        submit(nextLane(), new StealableTaskWrapper(wrapperFactory.newWrapper(task)));
+    }
+
+    @Override
+    public void execute(final Object key, final Runnable task)
+    {
+        submit(lane(key), wrapperFactory.newWrapper(task));
+    }
+
+    @Override
+    public <V> void execute(final Object key, final Callable<V> task)
+    {
+        submit(lane(key), wrapperFactory.newWrapper(task));
+    }
+
+    private void submit(final int lane, final ITaskWrapper wrapper)
+    {
+        if (!staggered)
+        {
+            stagger();
+        }
+        if (!executors[lane].submit(wrapper))
+        {
+            throw new RejectedExecutionException("The executor has been shut down");
+        }
+    }
+
+    /**
+     * Spread the first executions of the lanes across the period of a lane.
+     */
+    private synchronized void stagger()
+    {
+        if (staggered)
+        {
+            return;
+        }
+        final long start = System.nanoTime();
+        for (int i = 1; i < executors.length; i++)
+        {
+            executors[i].pauseUntil(start + i * period);
+        }
+        staggered = true;
+    }
+
+    private int nextLane()
+    {
+        return (next.getAndIncrement() & Integer.MAX_VALUE) % executors.length;
+    }
+
+    /**
+     * The lane of a key. The high bits of the hash code are spread into the low bits so keys that
+     * differ only in their high bits do not share a lane.
+     */
+    private int lane(final Object key)
+    {
+        final int hash = key.hashCode();
+        return ((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % executors.length;
+    }
+
+    @Override
+    public int lanes()
+    {
+        return executors.length;
+    }
+
+    @Override
+    public void shutdown()
+    {
+        for (final IInternalExecutor executor : executors)
+        {
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public boolean isTerminated()
+    {
+        for (final IInternalExecutor executor : executors)
+        {
+            if (!executor.isTerminated())
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean awaitTermination(final long timeout, final TimeUnit unit)
+            throws InterruptedException
+    {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (final IInternalExecutor executor : executors)
+        {
+            final long remaining = deadline - System.nanoTime();
+            if (!executor.awaitTermination(remaining > 0L ? remaining : 0L, TimeUnit.NANOSECONDS))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
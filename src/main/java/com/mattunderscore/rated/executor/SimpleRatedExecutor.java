@@ -27,6 +27,7 @@ package com.mattunderscore.rated.executor;
 
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 import com.mattunderscore.executors.ITaskWrapper;
 import com.mattunderscore.executors.ITaskWrapperFactory;
@@ -54,12 +55,20 @@ import net.jcip.annotations.ThreadSafe;
     public void execute(final Runnable task)
     {
         final ITaskWrapper thing = wrapperFactory.newWrapper(task);
-        executor.submit(thing);
+        submit(thing);
     }
 
     public <V> void execute(final Callable<V> task)
     {
         final ITaskWrapper thing = wrapperFactory.newWrapper(task);
-        executor.submit(thing);
+        submit(thing);
+    }
+
+    private void submit(final ITaskWrapper wrapper)
+    {
+        if (!executor.submit(wrapper))
+        {
+            throw new RejectedExecutionException("The executor has been shut down");
+        }
     }
 }
@@ -0,0 +1,134 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * {@link IReservation} implementation for the {@link RateLimiter}.
+ * <P>
+ * The times of the slots are fixed when reserved. The state of each slot is changed once, from
+ * reserved to used or released, by compare and set.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+@ThreadSafe
+/* package */final class SlotReservation implements IReservation
+{
+    private static final int RESERVED = 0;
+    private static final int USED = 1;
+    private static final int RELEASED = 2;
+
+    private final RateLimiter limiter;
+    private final long[] slots;
+    private final AtomicIntegerArray states;
+
+    /**
+     * @param limiter The limiter released slots are returned to
+     * @param slots The System.nanoTime of each slot
+     */
+    public SlotReservation(final RateLimiter limiter, final long[] slots)
+    {
+        this.limiter = limiter;
+        this.slots = slots;
+        this.states = new AtomicIntegerArray(slots.length);
+    }
+
+    @Override
+    public int size()
+    {
+        return slots.length;
+    }
+
+    @Override
+    public long getDelay(final int slot, final TimeUnit unit)
+    {
+        return unit.convert(slots[slot] - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void await(final int slot) throws InterruptedException
+    {
+        use(slot);
+        RateLimiter.sleepFor(slots[slot] - System.nanoTime());
+    }
+
+    @Override
+    public ScheduledFuture<?> bind(final int slot, final Runnable task,
+            final ScheduledExecutorService service)
+    {
+        use(slot);
+        return service.schedule(task, slots[slot] - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> bind(final int slot, final Callable<V> task,
+            final ScheduledExecutorService service)
+    {
+        use(slot);
+        return service.schedule(task, slots[slot] - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public boolean release(final int slot)
+    {
+        if (states.compareAndSet(slot, RESERVED, RELEASED))
+        {
+            limiter.release(slots[slot]);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public int releaseAll()
+    {
+        int released = 0;
+        for (int i = 0; i < slots.length; i++)
+        {
+            if (release(i))
+            {
+                released++;
+            }
+        }
+        return released;
+    }
+
+    private void use(final int slot)
+    {
+        if (!states.compareAndSet(slot, RESERVED, USED))
+        {
+            throw new IllegalStateException("Slot " + slot + " has already been used or released");
+        }
+    }
+}
@@ -25,34 +25,167 @@ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
 
 package com.mattunderscore.rated.executor;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
 import java.util.Queue;
-import java.util.concurrent.LinkedBlockingQueue;
 
+import net.jcip.annotations.GuardedBy;
+
+import com.mattunderscore.executors.CircuitOpenException;
 import com.mattunderscore.executors.ITaskWrapper;
 
 /**
  * The task queue for a rated executor.
  * <P>
  * Tracks the order of the execution of tasks and the currently executing task. All tasks are
- * wrapped in {@link ITaskWrapper}.
+ * wrapped in {@link ITaskWrapper}. The queue is backed by an array so adding a task does not
+ * create any objects unless the array needs to grow.
+ * <P>
+ * Once shut down the queue accepts no more tasks. The tasks already on the queue can still be
+ * removed so the executor can drain it.
+ * <P>
+ * Tasks with a deadline that has passed are expired when they reach the front of the queue, the
+ * next task is returned in their place so expired tasks do not take an execution. If ordered by
+ * earliest deadline first tasks with a deadline are held in a priority queue and returned before
+ * tasks without one, which are returned in the order they were added.
+ * <P>
+ * Tasks being retried are held in a priority queue ordered by the time they are due. A retry that
+ * is due is returned before any other task. Retries that are not due yet do not hold up the other
+ * tasks, if there are no other tasks nothing is returned.
+ * <P>
+ * If the executor has a {@link CircuitBreaker} the queue returns no tasks while the breaker is
+ * open. The queued tasks are held or, if the breaker fails fast, removed and failed.
+ * <P>
+ * A queue that is a lane of a sharded executor holds stealable tasks apart from the tasks pinned
+ * to it. When it has no tasks of its own it steals the oldest stealable task of the other lanes, it
+ * is not empty while any lane has a stealable task.
  * 
  * @author Matt Champion
  * @since 0.1.1
  */
 /* package */final class TaskQueue
 {
-    private final Queue<ITaskWrapper> taskQueue = new LinkedBlockingQueue<ITaskWrapper>();
+    @GuardedBy("this")
+    private final Queue<ITaskWrapper> taskQueue = new ArrayDeque<ITaskWrapper>();
+    // Null unless ordered by earliest deadline first
+    @GuardedBy("this")
+    private final Queue<DeadlineTaskWrapper> deadlineQueue;
+    @GuardedBy("this")
+    private final Queue<Retry> retryQueue = new PriorityQueue<Retry>();
+    @GuardedBy("this")
+    private long sequence = 0L;
+    @GuardedBy("this")
+    private boolean shutdown = false;
+    // Null unless the executor has a circuit breaker
+    private final CircuitBreakerState circuitBreaker;
+    // Null unless the queue is a lane of a sharded executor
+    @GuardedBy("this")
+    private final Queue<ITaskWrapper> stealableQueue;
+    private final TaskQueue[] lanes;
+    private final int lane;
     private volatile ITaskWrapper currentTask;
 
     /**
-     * Get the next task set it as the currently executing task.
+     * Create a queue that returns tasks in the order they were added.
+     */
+    public TaskQueue()
+    {
+        this(false, null);
+    }
+
+    /**
+     * Create a queue.
+     *
+     * @param earliestDeadlineFirst
+     *            If tasks with a deadline should be returned in deadline order before other tasks
+     * @param circuitBreaker
+     *            The state of the circuit breaker of the executor or null if it has none
+     * @since 0.1.2
+     */
+    public TaskQueue(final boolean earliestDeadlineFirst, final CircuitBreakerState circuitBreaker)
+    {
+        this.circuitBreaker = circuitBreaker;
+        deadlineQueue = earliestDeadlineFirst ? new PriorityQueue<DeadlineTaskWrapper>(16,
+                DeadlineTaskWrapper.EARLIEST_DEADLINE_FIRST) : null;
+        stealableQueue = null;
+        lanes = null;
+        lane = 0;
+    }
+
+    /**
+     * Create a queue that is a lane of a sharded executor. {@link StealableTaskWrapper}s added to
+     * it can be stolen by the other lanes.
+     *
+     * @param lanes
+     *            The lanes of the executor, filled by the caller before the queue is used
+     * @param lane
+     *            The index of this queue in the lanes
+     * @since 0.1.2
+     */
+    public TaskQueue(final TaskQueue[] lanes, final int lane)
+    {
+        circuitBreaker = null;
+        deadlineQueue = null;
+        stealableQueue = new ArrayDeque<ITaskWrapper>();
+        this.lanes = lanes;
+        this.lane = lane;
+    }
+
+    /**
+     * Get the next task set it as the currently executing task. Tasks that have passed their
+     * deadline are expired and skipped. No task is returned while the circuit breaker is open. A
+     * lane with no tasks of its own steals a task from another lane.
      *
      * @return The current task
      * @since 0.1.1
      */
     public ITaskWrapper poll()
     {
-        final ITaskWrapper task = taskQueue.poll();
+        if (circuitBreaker != null)
+        {
+            final CircuitBreakerState.Permit permit = circuitBreaker.permit(System.nanoTime());
+            if (permit != CircuitBreakerState.Permit.EXECUTE)
+            {
+                currentTask = null;
+                if (permit == CircuitBreakerState.Permit.FAIL)
+                {
+                    failAll();
+                }
+                return null;
+            }
+        }
+        ITaskWrapper task;
+        do
+        {
+            synchronized (this)
+            {
+                final Retry retry = retryQueue.peek();
+                if (retry != null && retry.dueTime - System.nanoTime() <= 0L)
+                {
+                    task = retryQueue.poll().wrapper;
+                }
+                else
+                {
+                    task = deadlineQueue == null || deadlineQueue.isEmpty() ? taskQueue.poll()
+                            : deadlineQueue.poll();
+                }
+                if (task == null && stealableQueue != null)
+                {
+                    task = stealableQueue.poll();
+                }
+            }
+            // Steal without holding the lock of this lane so lanes never wait on each other
+            if (task == null && lanes != null)
+            {
+                task = steal();
+            }
+        }
+        while (task instanceof DeadlineTaskWrapper
+                && ((DeadlineTaskWrapper) task).expireIfDue(System.nanoTime()));
         currentTask = task;
         return task;
     }
@@ -62,11 +195,189 @@ import com.mattunderscore.executors.ITaskWrapper;
      *
      * @param wrapper
      *            The task to add
+     * @return False if the queue has been shut down and the task was not added
      * @since 0.1.1
      */
-    public void add(ITaskWrapper wrapper)
+    public synchronized boolean add(ITaskWrapper wrapper)
+    {
+        if (shutdown)
+        {
+            return false;
+        }
+        enqueue(wrapper);
+        return true;
+    }
+
+    /**
+     * Add a collection of tasks to the end of the queue in a single operation.
+     *
+     * @param wrappers
+     *            The tasks to add
+     * @return False if the queue has been shut down and the tasks were not added
+     * @since 0.1.2
+     */
+    public synchronized boolean addAll(Collection<? extends ITaskWrapper> wrappers)
+    {
+        if (shutdown)
+        {
+            return false;
+        }
+        for (final ITaskWrapper wrapper : wrappers)
+        {
+            enqueue(wrapper);
+        }
+        return true;
+    }
+
+    /**
+     * Add a task to be retried. It is returned ahead of the other tasks once it is due.
+     *
+     * @param wrapper
+     *            The task to retry
+     * @param dueTime
+     *            The System.nanoTime after which the task can be retried
+     * @return False if the queue has been shut down and the task was not added
+     * @since 0.1.2
+     */
+    public synchronized boolean retry(ITaskWrapper wrapper, long dueTime)
+    {
+        if (shutdown)
+        {
+            return false;
+        }
+        retryQueue.add(new Retry(wrapper, dueTime, sequence++));
+        return true;
+    }
+
+    /**
+     * Take the oldest stealable task of the other lanes, starting with the next lane.
+     */
+    private ITaskWrapper steal()
+    {
+        for (int i = 1; i < lanes.length; i++)
+        {
+            final ITaskWrapper task = lanes[(lane + i) % lanes.length].pollStealable();
+            if (task != null)
+            {
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private synchronized ITaskWrapper pollStealable()
+    {
+        return stealableQueue.poll();
+    }
+
+    private synchronized boolean hasStealable()
+    {
+        return !stealableQueue.isEmpty();
+    }
+
+    @GuardedBy("this")
+    private void enqueue(final ITaskWrapper wrapper)
+    {
+        if (stealableQueue != null && wrapper instanceof StealableTaskWrapper)
+        {
+            stealableQueue.add(wrapper);
+        }
+        else if (deadlineQueue != null && wrapper instanceof DeadlineTaskWrapper)
+        {
+            final DeadlineTaskWrapper deadlineWrapper = (DeadlineTaskWrapper) wrapper;
+            deadlineWrapper.setSequence(sequence++);
+            deadlineQueue.add(deadlineWrapper);
+        }
+        else
+        {
+            taskQueue.add(wrapper);
+        }
+    }
+
+    /**
+     * Stop accepting tasks. The tasks already on the queue are left on it.
+     *
+     * @since 0.1.2
+     */
+    public synchronized void shutdown()
+    {
+        shutdown = true;
+    }
+
+    /**
+     * Stop accepting tasks and remove all the tasks from the queue.
+     *
+     * @return The tasks that were on the queue, in queue order
+     * @since 0.1.2
+     */
+    public synchronized List<ITaskWrapper> shutdownNow()
+    {
+        shutdown = true;
+        return drain();
+    }
+
+    /**
+     * Remove all the tasks from the queue and fail them. Repeating tasks may be added back to the
+     * queue by their processors, they are failed again by the next poll.
+     */
+    private void failAll()
+    {
+        final List<ITaskWrapper> tasks;
+        synchronized (this)
+        {
+            tasks = drain();
+        }
+        for (final ITaskWrapper task : tasks)
+        {
+            if (task instanceof CircuitBreakerTaskWrapper)
+            {
+                ((CircuitBreakerTaskWrapper<?>) task).fail(new CircuitOpenException());
+            }
+            else if (task instanceof DeadlineTaskWrapper)
+            {
+                ((DeadlineTaskWrapper) task).fail(new CircuitOpenException());
+            }
+            else if (task instanceof PermitTaskWrapper)
+            {
+                ((PermitTaskWrapper) task).reject();
+            }
+        }
+    }
+
+    @GuardedBy("this")
+    private List<ITaskWrapper> drain()
+    {
+        final List<ITaskWrapper> tasks = new ArrayList<ITaskWrapper>(size());
+        while (!retryQueue.isEmpty())
+        {
+            tasks.add(retryQueue.poll().wrapper);
+        }
+        tasks.addAll(taskQueue);
+        taskQueue.clear();
+        if (stealableQueue != null)
+        {
+            tasks.addAll(stealableQueue);
+            stealableQueue.clear();
+        }
+        if (deadlineQueue != null)
+        {
+            while (!deadlineQueue.isEmpty())
+            {
+                tasks.add(deadlineQueue.poll());
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * If the queue has been shut down.
+     *
+     * @return True if the queue does not accept tasks
+     * @since 0.1.2
+     */
+    public synchronized boolean isShutdown()
     {
-        taskQueue.add(wrapper);
+        return shutdown;
     }
 
     /**
@@ -76,20 +387,70 @@ import com.mattunderscore.executors.ITaskWrapper;
      *            The task to remove
      * @since 0.1.1
      */
-    public void remove(ITaskWrapper wrapper)
+    public synchronized void remove(ITaskWrapper wrapper)
     {
-        taskQueue.remove(wrapper);
+        if (deadlineQueue == null || !deadlineQueue.remove(wrapper))
+        {
+            taskQueue.remove(wrapper);
+        }
+        if (stealableQueue != null)
+        {
+            stealableQueue.remove(wrapper);
+        }
+        final Iterator<Retry> retries = retryQueue.iterator();
+        while (retries.hasNext())
+        {
+            if (retries.next().wrapper == wrapper)
+            {
+                retries.remove();
+            }
+        }
     }
 
     /**
-     * If the queue currently contains any tasks aside from the executing task.
+     * If the queue currently contains any tasks aside from the executing task. A lane is not empty
+     * while another lane has a task it can steal.
      *
      * @return True if the queue is empty
      * @since 0.1.1
      */
     public boolean isEmpty()
     {
-        return taskQueue.isEmpty();
+        if (!isLaneEmpty())
+        {
+            return false;
+        }
+        if (lanes != null)
+        {
+            for (final TaskQueue other : lanes)
+            {
+                if (other != this && other.hasStealable())
+                {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private synchronized boolean isLaneEmpty()
+    {
+        return taskQueue.isEmpty() && retryQueue.isEmpty()
+                && (deadlineQueue == null || deadlineQueue.isEmpty())
+                && (stealableQueue == null || stealableQueue.isEmpty());
+    }
+
+    /**
+     * The number of tasks on the queue aside from the executing task.
+     *
+     * @return The number of queued tasks
+     * @since 0.1.2
+     */
+    public synchronized int size()
+    {
+        return taskQueue.size() + retryQueue.size()
+                + (deadlineQueue == null ? 0 : deadlineQueue.size())
+                + (stealableQueue == null ? 0 : stealableQueue.size());
     }
 
     /**
@@ -122,4 +483,33 @@ import com.mattunderscore.executors.ITaskWrapper;
         }
         return currentTask == task;
     }
+
+    /**
+     * A task waiting to be retried, ordered by the time it is due. Retries due at the same time
+     * are in the order they were added.
+     */
+    private static final class Retry implements Comparable<Retry>
+    {
+        private final ITaskWrapper wrapper;
+        private final long dueTime;
+        private final long sequence;
+
+        public Retry(final ITaskWrapper wrapper, final long dueTime, final long sequence)
+        {
+            this.wrapper = wrapper;
+            this.dueTime = dueTime;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(final Retry other)
+        {
+            final long difference = dueTime - other.dueTime;
+            if (difference != 0L)
+            {
+                return difference < 0L ? -1 : 1;
+            }
+            return sequence < other.sequence ? -1 : sequence == other.sequence ? 0 : 1;
+        }
+    }
 }
@@ -25,6 +25,9 @@ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
 
 package com.mattunderscore.rated.executor;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -33,6 +36,37 @@ import java.util.concurrent.locks.LockSupport;
 import com.mattunderscore.executors.ITaskWrapper;
 import net.jcip.annotations.ThreadSafe;
 
+/**
+ * {@link IInternalExecutor} implementation that paces the execution of tasks on its own thread.
+ * <P>
+ * The thread parks until the next task should be executed. The wake up from parking can be late by
+ * up to a millisecond, this makes short periods inaccurate. A spin threshold can be provided, the
+ * thread will park until the target time is within the threshold and then yield until the target
+ * time is reached. This costs CPU time for improved accuracy. The {@link Jitter} adds a random
+ * delay to each target time. The {@link WarmUp} lengthens the interval between executions after
+ * the executor starts cold.
+ * <P>
+ * In tickless mode the thread does not wait out a period with an empty queue before stopping, it
+ * stops as soon as the queue is empty. The next submitted task starts a new thread that executes
+ * it as soon as the period since the last execution has passed. An idle executor causes no wake
+ * ups.
+ * <P>
+ * With a keep alive the thread does not exit as soon as it would stop. It parks for up to the keep
+ * alive waiting for a task, a submitting thread unparks it. This avoids creating a thread and
+ * paying its start up latency for the first task of each burst. A thread woken by a task starts
+ * again at the earliest time allowed by the rate, as a new thread would.
+ * <P>
+ * While paused the thread parks without polling the queue. When the pause ends the next execution
+ * is at the earliest time allowed by the rate, the executions missed during the pause are not
+ * caught up.
+ * <P>
+ * After the queue has been shut down the thread executes the remaining tasks and terminates the
+ * executor as soon as the queue is empty. A shut down executor that has no thread starts one to
+ * drain the queue, or terminates without starting one if the queue is empty.
+ *
+ * @author Matt Champion
+ * @since 0.1.1
+ */
 @ThreadSafe
 /*package*/ final class ThreadedInternalExecutor implements IInternalExecutor, Runnable
 {
@@ -40,26 +74,93 @@ import net.jcip.annotations.ThreadSafe;
     private final TimeUnit unit;
     private final TaskQueue taskQueue;
     private final ThreadFactory factory;
+    private final long spinThreshold;
+    private final CatchUpPolicy catchUpPolicy;
+    private final Jitter jitter;
+    private final WarmUp warmUp;
+    private final boolean tickless;
+    private final long keepAlive;
     private volatile Thread thread;
+    private volatile long lastStart;
+    private volatile long warmStart;
     private final AtomicBoolean running = new AtomicBoolean(false);
     private volatile boolean stopping = false;
     private volatile boolean interruptable = false;
+    private volatile boolean paused = false;
+    private volatile long pausedUntil;
+    private volatile boolean keepingAlive = false;
+    private final CountDownLatch terminated = new CountDownLatch(1);
 
     /* package */ ThreadedInternalExecutor(final TaskQueue taskQueue, final long rate,
             final TimeUnit unit, final ThreadFactory factory)
     {
+        this(taskQueue, rate, unit, factory, 0L, CatchUpPolicy.catchUp(), Jitter.none(),
+                WarmUp.none(), false, 0L);
+    }
+
+    /**
+     * Create an internal executor that spins for the last part of each period.
+     * @param spinThreshold The time before the target time in nanoseconds to stop parking
+     * @param catchUpPolicy The policy to follow when an execution is late
+     * @param jitter The random delay to add to each target time
+     * @param warmUp The warm up to follow when started cold
+     * @param tickless If the thread should stop as soon as the queue is empty
+     * @param keepAlive The time in nanoseconds the thread waits for a task before exiting
+     */
+    /* package */ ThreadedInternalExecutor(final TaskQueue taskQueue, final long rate,
+            final TimeUnit unit, final ThreadFactory factory, final long spinThreshold,
+            final CatchUpPolicy catchUpPolicy, final Jitter jitter, final WarmUp warmUp,
+            final boolean tickless, final long keepAlive)
+    {
+        this.keepAlive = keepAlive;
         this.factory = factory;
+        this.spinThreshold = spinThreshold;
+        this.catchUpPolicy = catchUpPolicy;
+        this.jitter = jitter;
+        this.warmUp = warmUp;
+        this.tickless = tickless;
         this.taskQueue = taskQueue;
         this.rate = rate;
         this.unit = unit;
+        // The first start is cold
+        this.lastStart = System.nanoTime() - 2 * unit.toNanos(rate);
     }
 
     @Override
-    public void submit(ITaskWrapper wrapper)
+    public boolean submit(ITaskWrapper wrapper)
     {
-        taskQueue.add(wrapper);
+        if (!taskQueue.add(wrapper))
+        {
+            return false;
+        }
         stopping = false;
         start();
+        wake();
+        return true;
+    }
+
+    @Override
+    public boolean submitAll(Collection<? extends ITaskWrapper> wrappers)
+    {
+        if (!taskQueue.addAll(wrappers))
+        {
+            return false;
+        }
+        stopping = false;
+        start();
+        wake();
+        return true;
+    }
+
+    /**
+     * Unpark the thread if it is being kept alive.
+     */
+    private void wake()
+    {
+        if (keepingAlive)
+        {
+            unpark();
+        }
     }
 
     /**
@@ -68,12 +169,42 @@ import net.jcip.annotations.ThreadSafe;
     private void start()
     {
         if (running.compareAndSet(false, true)) {
-            final Thread newThread = factory.newThread(this);
-            thread = newThread;
-            newThread.start();
+            startThread();
+        }
+    }
+
+    /**
+     * Terminate once the queue has been shut down. Without a running thread nothing would drain
+     * the queue and terminate. If the queue is empty there is nothing to drain and the executor
+     * terminates without starting a thread. The running flag is kept so no thread is started
+     * later.
+     */
+    private void drain()
+    {
+        if (running.compareAndSet(false, true))
+        {
+            if (taskQueue.isEmpty())
+            {
+                terminated.countDown();
+            }
+            else
+            {
+                startThread();
+            }
         }
     }
 
+    /**
+     * Start a thread to execute the queued tasks. Only called by the thread that set the running
+     * flag.
+     */
+    private void startThread()
+    {
+        final Thread newThread = factory.newThread(this);
+        thread = newThread;
+        newThread.start();
+    }
+
     @Override
     public void requestStop()
     {
@@ -89,6 +220,71 @@ import net.jcip.annotations.ThreadSafe;
         running.compareAndSet(true, false);
     }
 
+    @Override
+    public synchronized void pauseUntil(final long time)
+    {
+        if (paused && pausedUntil - time >= 0L)
+        {
+            return;
+        }
+        pausedUntil = time;
+        paused = true;
+    }
+
+    @Override
+    public synchronized void resume()
+    {
+        paused = false;
+        unpark();
+    }
+
+    @Override
+    public void shutdown()
+    {
+        taskQueue.shutdown();
+        drain();
+        wake();
+    }
+
+    @Override
+    public List<ITaskWrapper> shutdownNow()
+    {
+        final List<ITaskWrapper> tasks = taskQueue.shutdownNow();
+        drain();
+        // A paused thread terminates once the queue is empty
+        unpark();
+        return tasks;
+    }
+
+    @Override
+    public boolean isTerminated()
+    {
+        return terminated.getCount() == 0L;
+    }
+
+    @Override
+    public boolean awaitTermination(final long timeout, final TimeUnit unit)
+            throws InterruptedException
+    {
+        return terminated.await(timeout, unit);
+    }
+
+    @Override
+    public long estimatedStartTime()
+    {
+        final long rateInNanos = unit.toNanos(rate);
+        final long now = System.nanoTime();
+        final long earliest = paused && pausedUntil - (lastStart + rateInNanos) > 0L ? pausedUntil
+                : lastStart + rateInNanos;
+        return (earliest - now > 0 ? earliest : now) + taskQueue.size() * rateInNanos;
+    }
+
+    @Override
+    public long getPeriod()
+    {
+        return unit.toNanos(rate);
+    }
+
     @Override
     public boolean interrupt()
     {
@@ -107,42 +303,228 @@ import net.jcip.annotations.ThreadSafe;
     public void run()
     {
         final long rateInNanos = TimeUnit.NANOSECONDS.convert(rate, unit);
-        long targetTime = System.nanoTime() + rateInNanos;
-        while (running.get())
+        // Do not execute within a period of the last execution of a previous thread
+        long targetTime = restartTarget(rateInNanos);
+        // The jitter of the next execution, added on top of the target so it does not build up
+        long delay = 0L;
+        sleepUntil(targetTime);
+        do
+        {
+            while (running.get())
+            {
+                if (paused)
+                {
+                    awaitResume();
+                    if (taskQueue.isShutdown() && taskQueue.isEmpty() && idle())
+                    {
+                        return;
+                    }
+                    // Start again at the rate instead of catching up the executions missed
+                    targetTime = restartTarget(rateInNanos);
+                    delay = 0L;
+                    sleepUntil(targetTime);
+                    continue;
+                }
+                // Execute next task
+                final long startTime = System.nanoTime();
+                lastStart = startTime;
+                final ITaskWrapper task = taskQueue.poll();
+                if (task != null)
+                {
+                    interruptable = true;
+                    task.execute();
+                    interruptable = false;
+                    taskQueue.clearCurrentTask();
+                    Thread.interrupted();
+                }
+                // Calculate the next time to run off the time it was supposed to run last. This
+                // provides more accurate scheduling than calculating the next time to run off
+                // the time it actually ran. If the next execution is late the catch up policy
+                // limits how many executions will be run back to back. The lateness is measured
+                // from the jittered time. The targets leave room for the jitter so executions
+                // stay at least a period apart
+                final long interval = warmUp.interval(rateInNanos, startTime - warmStart)
+                        + jitter.maxDelay();
+                targetTime = catchUpPolicy.nextTarget(targetTime, startTime - delay, interval);
+                delay = jitter.delay();
+                // Stop as soon as there is nothing to do if tickless or shut down
+                if ((tickless || taskQueue.isShutdown()) && taskQueue.isEmpty())
+                {
+                    if (awaitTask())
+                    {
+                        targetTime = restartTarget(rateInNanos);
+                        delay = 0L;
+                    }
+                    else if (idle())
+                    {
+                        return;
+                    }
+                }
+                // Sleep until the next execution
+                sleepUntil(targetTime + delay);
+                // Stop if needed
+                if (stopping)
+                {
+                    if (awaitTask())
+                    {
+                        targetTime = restartTarget(rateInNanos);
+                        delay = 0L;
+                        sleepUntil(targetTime);
+                    }
+                    else
+                    {
+                        stop();
+                    }
+                }
+            }
+            // A task may have been submitted or the executor shut down while stopping
+        }
+        while (!idle());
+    }
+
+    /**
+     * Stop running because the queue is empty. A task may be submitted after checking the queue
+     * but before stopping, the submitting thread will not have been able to start a new thread.
+     * Once shut down no task can be submitted, the thread that finds the queue empty terminates
+     * the executor and keeps the running flag so no other thread is started.
+     * @return True if the thread should exit, false if a task was submitted
+     */
+    private boolean idle()
+    {
+        running.set(false);
+        if (taskQueue.isShutdown())
         {
-            // Execute next task
-            final ITaskWrapper task = taskQueue.poll();
-            if (task != null)
+            if (!running.compareAndSet(false, true))
+            {
+                // Another thread has been started to drain the queue
+                return true;
+            }
+            else if (taskQueue.isEmpty())
+            {
+                terminated.countDown();
+                return true;
+            }
+            else
             {
-                interruptable = true;
-                task.execute();
-                interruptable = false;
-                taskQueue.clearCurrentTask();
-                Thread.interrupted();
+                return false;
             }
-            // Sleep until the next execution
-            while (true)
+        }
+        return taskQueue.isEmpty() || !running.compareAndSet(false, true);
+    }
+
+    /**
+     * The target time of the first execution after the thread starts or restarts. It is not
+     * within a period of the last execution. If the executor is cold the warm up restarts.
+     * @param rateInNanos The period in nanoseconds
+     * @return The target time in nanoseconds
+     */
+    private long restartTarget(final long rateInNanos)
+    {
+        final long now = System.nanoTime();
+        final long earliest = lastStart + rateInNanos;
+        final long targetTime = (earliest - now > 0 ? earliest : now) + jitter.delay();
+        if (warmUp.isCold(rateInNanos, now - lastStart))
+        {
+            warmStart = targetTime;
+        }
+        return targetTime;
+    }
+
+    /**
+     * Park for up to the keep alive waiting for a task to be submitted. A submitting thread that
+     * sees the keeping alive flag unparks this thread. The flag is set before checking the queue so
+     * a task added after the check always unparks the thread.
+     * @return True if a task was submitted, false if the keep alive passed or the queue was shut
+     *         down
+     */
+    private boolean awaitTask()
+    {
+        if (keepAlive <= 0L || taskQueue.isShutdown())
+        {
+            return false;
+        }
+        final long deadline = System.nanoTime() + keepAlive;
+        keepingAlive = true;
+        try
+        {
+            while (taskQueue.isEmpty())
             {
-                // Time until target
-                final long sleepFor = targetTime - System.nanoTime();
-                if (sleepFor > 0)
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0L || taskQueue.isShutdown())
                 {
-                    LockSupport.parkNanos(sleepFor);
+                    return false;
                 }
-                else
+                LockSupport.parkNanos(this, remaining);
+            }
+            return true;
+        }
+        finally
+        {
+            keepingAlive = false;
+        }
+    }
+
+    /**
+     * Park until the pause ends. A shut down executor with an empty queue ends the pause so the
+     * thread can terminate.
+     */
+    private void awaitResume()
+    {
+        while (paused)
+        {
+            final long sleepFor = pausedUntil - System.nanoTime();
+            if (sleepFor <= 0L)
+            {
+                synchronized (this)
                 {
-                    break;
+                    if (pausedUntil - System.nanoTime() <= 0L)
+                    {
+                        paused = false;
+                    }
                 }
             }
-            // Stop if needed
-            if (stopping)
+            else if (taskQueue.isShutdown() && taskQueue.isEmpty())
+            {
+                return;
+            }
+            else
+            {
+                LockSupport.parkNanos(this, sleepFor);
+            }
+        }
+    }
+
+    private void unpark()
+    {
+        final Thread current = thread;
+        if (current != null)
+        {
+            LockSupport.unpark(current);
+        }
+    }
+
+    /**
+     * Park and then spin until the target time.
+     * @param targetTime The target time in nanoseconds
+     */
+    private void sleepUntil(final long targetTime)
+    {
+        while (true)
+        {
+            // Time until target
+            final long sleepFor = targetTime - System.nanoTime();
+            if (sleepFor > spinThreshold)
+            {
+                LockSupport.parkNanos(sleepFor - spinThreshold);
+            }
+            else if (sleepFor > 0)
+            {
+                Thread.yield();
+            }
+            else
             {
-                stop();
+                break;
             }
-            // Calculate the next time to run off the time it was supposed to run last. This
-            // provides more accurate scheduling than calculating the next time to run off
-            // the time it actually ran
-            targetTime = targetTime + rateInNanos;
         }
     }
 }
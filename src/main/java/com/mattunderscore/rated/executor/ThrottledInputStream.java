@@ -0,0 +1,80 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import net.jcip.annotations.NotThreadSafe;
+
+/**
+ * {@link InputStream} that reads no faster than the permits of a {@link IRateLimiter} allow.
+ * <P>
+ * Each read returns at most a chunk of bytes. The caller waits for the permits of the bytes after
+ * they have been read.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+@NotThreadSafe
+/* package */final class ThrottledInputStream extends FilterInputStream
+{
+    private final ByteThrottle throttle;
+
+    /* package */ThrottledInputStream(final InputStream in, final ByteThrottle throttle)
+    {
+        super(in);
+        this.throttle = throttle;
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        final int value = in.read();
+        if (value >= 0)
+        {
+            throttle.pay(1);
+        }
+        return value;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException
+    {
+        final int read = in.read(b, off, throttle.chunk(len));
+        throttle.pay(read);
+        return read;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException
+    {
+        final long skipped = in.skip(throttle.chunk((int) Math.min(n, Integer.MAX_VALUE)));
+        throttle.pay((int) skipped);
+        return skipped;
+    }
+}
@@ -0,0 +1,87 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+
+import net.jcip.annotations.NotThreadSafe;
+
+/**
+ * {@link OutputStream} that writes no faster than the permits of a {@link IRateLimiter} allow.
+ * <P>
+ * Large writes are split into chunks. The caller waits for the permits of each chunk after it has
+ * been written. If interrupted the number of bytes written is reported by the
+ * {@link InterruptedIOException}.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+@NotThreadSafe
+/* package */final class ThrottledOutputStream extends FilterOutputStream
+{
+    private final ByteThrottle throttle;
+
+    /* package */ThrottledOutputStream(final OutputStream out, final ByteThrottle throttle)
+    {
+        super(out);
+        this.throttle = throttle;
+    }
+
+    @Override
+    public void write(final int b) throws IOException
+    {
+        out.write(b);
+        throttle.pay(1);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException
+    {
+        if ((off | len | (b.length - (len + off)) | (off + len)) < 0)
+        {
+            throw new IndexOutOfBoundsException();
+        }
+        int written = 0;
+        while (written < len)
+        {
+            final int chunk = throttle.chunk(len - written);
+            out.write(b, off + written, chunk);
+            written = written + chunk;
+            try
+            {
+                throttle.pay(chunk);
+            }
+            catch (final InterruptedIOException e)
+            {
+                e.bytesTransferred = written;
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+import net.jcip.annotations.NotThreadSafe;
+
+/**
+ * {@link WritableByteChannel} that writes no faster than the permits of a {@link IRateLimiter}
+ * allow.
+ * <P>
+ * Large buffers are written in chunks. The caller waits for the permits of each chunk after it has
+ * been written. A write stops early if the channel accepts no bytes, as a non-blocking channel
+ * may. If interrupted the number of bytes written is reported by the
+ * {@link InterruptedIOException}.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+@NotThreadSafe
+/* package */final class ThrottledWritableByteChannel implements WritableByteChannel
+{
+    private final WritableByteChannel channel;
+    private final ByteThrottle throttle;
+
+    /* package */ThrottledWritableByteChannel(final WritableByteChannel channel,
+            final ByteThrottle throttle)
+    {
+        this.channel = channel;
+        this.throttle = throttle;
+    }
+
+    @Override
+    public int write(final ByteBuffer src) throws IOException
+    {
+        final int limit = src.limit();
+        int written = 0;
+        while (src.hasRemaining())
+        {
+            src.limit(src.position() + throttle.chunk(src.remaining()));
+            final int chunk;
+            try
+            {
+                chunk = channel.write(src);
+            }
+            finally
+            {
+                src.limit(limit);
+            }
+            if (chunk <= 0)
+            {
+                break;
+            }
+            written = written + chunk;
+            try
+            {
+                throttle.pay(chunk);
+            }
+            catch (final InterruptedIOException e)
+            {
+                e.bytesTransferred = written;
+                throw e;
+            }
+        }
+        return written;
+    }
+
+    @Override
+    public boolean isOpen()
+    {
+        return channel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+}
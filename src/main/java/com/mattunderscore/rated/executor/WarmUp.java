@@ -0,0 +1,121 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import java.util.concurrent.TimeUnit;
+
+import net.jcip.annotations.Immutable;
+
+/**
+ * The warm up of a rated executor after it has been idle.
+ * <P>
+ * Some resources need time to warm up after being idle, executing at the full rate as soon as the
+ * executor starts can overload them. A warm up lengthens the interval between executions after
+ * the executor starts and shortens it to the period of the executor over a duration. The warm up
+ * restarts when the executor starts after nothing has been executed for two periods. The interval
+ * is never shorter than the period.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+@Immutable
+public final class WarmUp
+{
+    private static final WarmUp NONE = new WarmUp(0L, 0L);
+
+    private final long coldRate;
+    private final long duration;
+
+    private WarmUp(final long coldRate, final long duration)
+    {
+        this.coldRate = coldRate;
+        this.duration = duration;
+    }
+
+    /**
+     * No warm up, the executor executes at its rate as soon as it starts.
+     *
+     * @return The warm up
+     */
+    public static WarmUp none()
+    {
+        return NONE;
+    }
+
+    /**
+     * Shorten the interval between executions linearly from a cold rate to the period of the
+     * executor.
+     *
+     * @param coldRate
+     *            The interval between executions when the executor starts
+     * @param duration
+     *            The time after starting to reach the period of the executor
+     * @param unit
+     *            The time unit of the cold rate and duration
+     * @return The warm up
+     */
+    public static WarmUp linear(final long coldRate, final long duration, final TimeUnit unit)
+    {
+        if (coldRate < 0L)
+        {
+            throw new IllegalArgumentException("The cold rate cannot be negative");
+        }
+        if (duration < 0L)
+        {
+            throw new IllegalArgumentException("The duration cannot be negative");
+        }
+        return new WarmUp(unit.toNanos(coldRate), unit.toNanos(duration));
+    }
+
+    /**
+     * @param rateInNanos
+     *            The period of the executor in nanoseconds
+     * @param sinceStart
+     *            The time in nanoseconds since the warm up started
+     * @return The interval until the next execution in nanoseconds
+     */
+    /* package */long interval(final long rateInNanos, final long sinceStart)
+    {
+        if (sinceStart >= duration || coldRate <= rateInNanos)
+        {
+            return rateInNanos;
+        }
+        final double remaining = (double) (duration - sinceStart) / duration;
+        return rateInNanos + (long) ((coldRate - rateInNanos) * remaining);
+    }
+
+    /**
+     * @param rateInNanos
+     *            The period of the executor in nanoseconds
+     * @param idle
+     *            The time in nanoseconds since the last execution started
+     * @return True if the warm up should restart
+     */
+    /* package */boolean isCold(final long rateInNanos, final long idle)
+    {
+        return this != NONE && idle >= 2 * rateInNanos;
+    }
+}
@@ -25,15 +25,28 @@ SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
 
 package com.mattunderscore.executor.stubs;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ThreadFactory;
 
 public final class TestThreadFactory implements ThreadFactory
 {
+    private final List<Thread> threads = new CopyOnWriteArrayList<Thread>();
+
     @Override
     public Thread newThread(Runnable r)
     {
         final Thread thread = new Thread(r);
         thread.setName("TestThread");
+        threads.add(thread);
         return thread;
     }
+
+    /**
+     * @return The threads created by the factory in the order they were created
+     */
+    public List<Thread> getThreads()
+    {
+        return threads;
+    }
 }
\ No newline at end of file
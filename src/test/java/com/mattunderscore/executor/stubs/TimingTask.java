@@ -0,0 +1,69 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.executor.stubs;
+
+/**
+ * Simple runnable task to execute. Counts the executions and measures how far the interval between
+ * executions is from the expected period.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+public final class TimingTask implements Runnable
+{
+    private final long periodNanos;
+    private long lastExecution = -1L;
+    private long totalError = 0L;
+    public volatile Thread thread;
+    public volatile int count = 0;
+
+    public TimingTask(final long periodNanos)
+    {
+        this.periodNanos = periodNanos;
+    }
+
+    @Override
+    public void run()
+    {
+        final long now = System.nanoTime();
+        if (lastExecution >= 0L)
+        {
+            totalError += Math.abs(now - lastExecution - periodNanos);
+        }
+        lastExecution = now;
+        thread = Thread.currentThread();
+        count++;
+    }
+
+    /**
+     * @return The mean absolute difference between the interval and the period in nanoseconds
+     */
+    public long meanError()
+    {
+        final int intervals = count - 1;
+        return intervals > 0 ? totalError / intervals : 0L;
+    }
+}
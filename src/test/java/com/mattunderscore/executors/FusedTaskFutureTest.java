@@ -0,0 +1,173 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+
+import com.mattunderscore.executor.stubs.CountingTask;
+import com.mattunderscore.executor.stubs.ExceptionCallable;
+import com.mattunderscore.executor.stubs.NumberCallable;
+import com.mattunderscore.executor.stubs.TestException;
+
+/**
+ * Test suite for the {@link FusedTaskFuture} class.
+ * <P>
+ * Contains unit tests. It uses stubs for the tasks and mocks the task canceller.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+public final class FusedTaskFutureTest
+{
+    private static final long TIMEOUT = 50L;
+
+    private ITaskCanceller canceller;
+
+    @Before
+    public void before()
+    {
+        canceller = mock(ITaskCanceller.class);
+    }
+
+    @Test
+    public void testCallable() throws Exception
+    {
+        final FusedTaskFuture<Integer> future = new FusedTaskFuture<Integer>(new NumberCallable(5),
+                new SetResult<Integer>(), canceller);
+        assertFalse(future.isDone());
+        future.execute();
+        assertTrue(future.isDone());
+        assertFalse(future.isCancelled());
+        assertEquals(Integer.valueOf(5), future.get());
+    }
+
+    @Test
+    public void testRunnable() throws Exception
+    {
+        final CountingTask task = new CountingTask();
+        final FusedTaskFuture<Void> future = new FusedTaskFuture<Void>(task, new SetResult<Void>(),
+                canceller);
+        future.execute();
+        assertEquals(1, task.count);
+        assertEquals(null, future.get(TIMEOUT, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testException() throws Exception
+    {
+        final FusedTaskFuture<Object> future = new FusedTaskFuture<Object>(new ExceptionCallable(),
+                new SetResult<Object>(), canceller);
+        future.execute();
+        assertTrue(future.isDone());
+        try
+        {
+            future.get();
+            fail();
+        }
+        catch (ExecutionException e)
+        {
+            assertTrue(e.getCause() instanceof TestException);
+        }
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void testTimeout() throws Exception
+    {
+        final FusedTaskFuture<Integer> future = new FusedTaskFuture<Integer>(new NumberCallable(5),
+                new SetResult<Integer>(), canceller);
+        future.get(TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
+    @Test(expected = CancellationException.class)
+    public void testCancel() throws Exception
+    {
+        when(canceller.cancelTask(Matchers.any(ITaskWrapper.class), Matchers.eq(false)))
+                .thenReturn(true);
+        final FusedTaskFuture<Integer> future = new FusedTaskFuture<Integer>(new NumberCallable(5),
+                new SetResult<Integer>(), canceller);
+        assertTrue(future.cancel(false));
+        assertTrue(future.isCancelled());
+        assertTrue(future.isDone());
+        assertFalse(future.cancel(false));
+        future.get();
+    }
+
+    @Test
+    public void testCancelFailed()
+    {
+        when(canceller.cancelTask(Matchers.any(ITaskWrapper.class), Matchers.eq(true)))
+                .thenReturn(false);
+        final FusedTaskFuture<Integer> future = new FusedTaskFuture<Integer>(new NumberCallable(5),
+                new SetResult<Integer>(), canceller);
+        assertFalse(future.cancel(true));
+        assertFalse(future.isCancelled());
+        assertFalse(future.isDone());
+    }
+
+    @Test
+    public void testCancelCompleted() throws Exception
+    {
+        final FusedTaskFuture<Integer> future = new FusedTaskFuture<Integer>(new NumberCallable(5),
+                new SetResult<Integer>(), canceller);
+        future.execute();
+        assertFalse(future.cancel(true));
+        assertEquals(Integer.valueOf(5), future.get());
+    }
+
+    /**
+     * Sets the result on the fused future passed as the task.
+     */
+    private static final class SetResult<V> implements ITaskResultProcessor<V>
+    {
+        @SuppressWarnings("unchecked")
+        @Override
+        public void onThrowable(ITaskWrapper task, Throwable t)
+        {
+            ((ISettableFuture<V>) task).setException(t);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void onResult(ITaskWrapper task, V result)
+        {
+            ((ISettableFuture<V>) task).setResult(result);
+        }
+    }
+}
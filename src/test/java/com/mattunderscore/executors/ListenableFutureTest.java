@@ -0,0 +1,176 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+
+import com.mattunderscore.executor.stubs.CountingCallable;
+import com.mattunderscore.executor.stubs.NumberCallable;
+
+/**
+ * Test suite for the listeners of the {@link IListenableFuture} implementations.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+public final class ListenableFutureTest
+{
+    private static final Executor DIRECT = new Executor()
+    {
+        @Override
+        public void execute(Runnable command)
+        {
+            command.run();
+        }
+    };
+
+    private ITaskCanceller canceller;
+    private CountingListener listener;
+
+    @Before
+    public void before()
+    {
+        canceller = mock(ITaskCanceller.class);
+        when(canceller.cancelTask(Matchers.any(ITaskWrapper.class), Matchers.anyBoolean()))
+                .thenReturn(true);
+        listener = new CountingListener();
+    }
+
+    @Test
+    public void testSingleFuture()
+    {
+        final SingleFuture<Integer> future = new SingleFuture<Integer>(canceller);
+        final ITaskWrapper wrapper = new TaskWrapper<Integer>(new NumberCallable(5),
+                new FutureSetResult<Integer>(future));
+        future.addListener(listener, DIRECT);
+        assertEquals(0, listener.count.get());
+        wrapper.execute();
+        assertEquals(1, listener.count.get());
+    }
+
+    @Test
+    public void testAddedWhenDone()
+    {
+        final SingleFuture<Integer> future = new SingleFuture<Integer>(canceller);
+        final ITaskWrapper wrapper = new TaskWrapper<Integer>(new NumberCallable(5),
+                new FutureSetResult<Integer>(future));
+        wrapper.execute();
+        future.addListener(listener, DIRECT);
+        assertEquals(1, listener.count.get());
+    }
+
+    @Test
+    public void testRepeatingFuture()
+    {
+        final RepeatingFuture<Integer> future = new RepeatingFuture<Integer>(canceller, 3);
+        final ITaskWrapper wrapper = new TaskWrapper<Integer>(new CountingCallable(),
+                new FutureSetResult<Integer>(future));
+        future.addListener(listener, DIRECT);
+        wrapper.execute();
+        wrapper.execute();
+        assertEquals(0, listener.count.get());
+        wrapper.execute();
+        assertEquals(1, listener.count.get());
+    }
+
+    @Test
+    public void testCancelled()
+    {
+        final UnboundedFuture future = new UnboundedFuture(canceller);
+        future.addListener(listener, DIRECT);
+        assertTrue(future.cancel(false));
+        assertEquals(1, listener.count.get());
+        future.cancel(false);
+        assertEquals(1, listener.count.get());
+    }
+
+    @Test
+    public void testFusedFuture()
+    {
+        final FusedTaskFuture<Void> future = new FusedTaskFuture<Void>(listener,
+                new ITaskResultProcessor<Void>()
+                {
+                    @Override
+                    public void onThrowable(ITaskWrapper task, Throwable t)
+                    {
+                    }
+
+                    @Override
+                    public void onResult(ITaskWrapper task, Void result)
+                    {
+                        // The result of a Void task is always null
+                        ((ISettableFuture<?>) task).setResult(null);
+                    }
+                }, canceller);
+        final CountingListener completion = new CountingListener();
+        future.addListener(completion, DIRECT);
+        future.execute();
+        assertEquals(1, completion.count.get());
+        future.addListener(completion, DIRECT);
+        assertEquals(2, completion.count.get());
+    }
+
+    @Test
+    public void testExecutorUsed()
+    {
+        final SingleFuture<Integer> future = new SingleFuture<Integer>(canceller);
+        final ITaskWrapper wrapper = new TaskWrapper<Integer>(new NumberCallable(5),
+                new FutureSetResult<Integer>(future));
+        final AtomicInteger executed = new AtomicInteger();
+        future.addListener(listener, new Executor()
+        {
+            @Override
+            public void execute(Runnable command)
+            {
+                executed.incrementAndGet();
+            }
+        });
+        wrapper.execute();
+        assertEquals(1, executed.get());
+        assertEquals(0, listener.count.get());
+    }
+
+    private static final class CountingListener implements Runnable
+    {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public void run()
+        {
+            count.incrementAndGet();
+        }
+    }
+}
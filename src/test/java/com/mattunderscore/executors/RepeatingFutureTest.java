@@ -30,7 +30,11 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -375,4 +379,193 @@ public final class RepeatingFutureTest
         assertEquals(Integer.valueOf(3), future.get());
         assertEquals(Integer.valueOf(3), future.getResult(2));
     }
+
+    @Test
+    public void testManyResults() throws Exception
+    {
+        final int repetitions = 1000;
+        final RepeatingFuture<Integer> future = new RepeatingFuture<Integer>(canceller, repetitions);
+        final FutureSetResult<Integer> processor = new FutureSetResult<Integer>(future);
+        final ITaskWrapper wrapper = new TaskWrapper<Integer>(new CountingCallable(), processor);
+        for (int i = 0; i < repetitions; i++)
+        {
+            assertFalse(future.isDone());
+            wrapper.execute();
+        }
+        assertTrue(future.isDone());
+        assertEquals(repetitions, future.getCompletedExecutions());
+        for (int i = 0; i < repetitions; i++)
+        {
+            assertEquals(Integer.valueOf(i + 1), future.getResult(i));
+        }
+        assertEquals(Integer.valueOf(repetitions), future.get());
+    }
+
+    @Test
+    public void testLargeRepetitions() throws Exception
+    {
+        final RepeatingFuture<Integer> future = new RepeatingFuture<Integer>(canceller,
+                Integer.MAX_VALUE);
+        final FutureSetResult<Integer> processor = new FutureSetResult<Integer>(future);
+        final ITaskWrapper wrapper = new TaskWrapper<Integer>(new NumberCallable(5), processor);
+        wrapper.execute();
+        assertEquals(Integer.valueOf(5), future.getResult(0));
+        assertEquals(Integer.MAX_VALUE, future.getExpectedExecutions());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetResultOutOfBounds() throws Exception
+    {
+        final RepeatingFuture<Integer> future = new RepeatingFuture<Integer>(canceller, REPETITIONS);
+        future.getResult(REPETITIONS);
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void testGetResultTimeout() throws Exception
+    {
+        final RepeatingFuture<Integer> future = new RepeatingFuture<Integer>(canceller, REPETITIONS);
+        final FutureSetResult<Integer> processor = new FutureSetResult<Integer>(future);
+        final ITaskWrapper wrapper = new TaskWrapper<Integer>(new NumberCallable(5), processor);
+        wrapper.execute();
+        assertEquals(Integer.valueOf(5), future.getResult(0, 10L, TimeUnit.MILLISECONDS));
+        future.getResult(1, 10L, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void testWaiterWoken() throws Exception
+    {
+        final RepeatingFuture<Integer> future = new RepeatingFuture<Integer>(canceller, REPETITIONS);
+        final FutureSetResult<Integer> processor = new FutureSetResult<Integer>(future);
+        final ITaskWrapper wrapper = new TaskWrapper<Integer>(new CountingCallable(), processor);
+        final AtomicReference<Object> result = new AtomicReference<Object>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Thread waiter = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    result.set(future.getResult(2));
+                }
+                catch (Exception e)
+                {
+                    result.set(e);
+                }
+                latch.countDown();
+            }
+        });
+        waiter.start();
+        wrapper.execute();
+        wrapper.execute();
+        assertFalse(latch.await(20L, TimeUnit.MILLISECONDS));
+        wrapper.execute();
+        assertTrue(latch.await(1L, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(3), result.get());
+    }
+
+    @Test
+    public void testWaiterCancelled() throws Exception
+    {
+        when(canceller.cancelTask(Matchers.any(ITaskWrapper.class), Matchers.eq(false)))
+                .thenReturn(true);
+        final RepeatingFuture<Integer> future = new RepeatingFuture<Integer>(canceller, REPETITIONS);
+        final FutureSetResult<Integer> processor = new FutureSetResult<Integer>(future);
+        new TaskWrapper<Integer>(new CountingCallable(), processor);
+        final AtomicReference<Object> result = new AtomicReference<Object>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Thread waiter = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    result.set(future.getResult(1));
+                }
+                catch (Exception e)
+                {
+                    result.set(e);
+                }
+                latch.countDown();
+            }
+        });
+        waiter.start();
+        assertFalse(latch.await(20L, TimeUnit.MILLISECONDS));
+        assertTrue(future.cancel(false));
+        assertTrue(latch.await(1L, TimeUnit.SECONDS));
+        assertTrue(result.get() instanceof CancellationException);
+    }
+
+    @Test
+    public void testRetainedResults() throws Exception
+    {
+        final int repetitions = 1000;
+        final RepeatingFuture<Integer> future = new RepeatingFuture<Integer>(canceller, repetitions,
+                3);
+        final FutureSetResult<Integer> processor = new FutureSetResult<Integer>(future);
+        final ITaskWrapper wrapper = new TaskWrapper<Integer>(new CountingCallable(), processor);
+        for (int i = 0; i < repetitions; i++)
+        {
+            wrapper.execute();
+        }
+        assertEquals(3, future.getRetainedResults());
+        assertEquals(repetitions, future.getCompletedExecutions());
+        assertEquals(Integer.valueOf(repetitions), future.get());
+        assertEquals(Integer.valueOf(repetitions - 2), future.getResult(repetitions - 3));
+        assertEquals(Integer.valueOf(repetitions), future.getResult(repetitions - 1));
+        try
+        {
+            future.getResult(repetitions - 4);
+            fail();
+        }
+        catch (ResultEvictedException e)
+        {
+            assertEquals(repetitions - 4, e.getIndex());
+            assertEquals(3, e.getRetainedResults());
+        }
+    }
+
+    @Test
+    public void testNoRetainedResults() throws Exception
+    {
+        final RepeatingFuture<Integer> future = new RepeatingFuture<Integer>(canceller, REPETITIONS,
+                0);
+        final FutureSetResult<Integer> processor = new FutureSetResult<Integer>(future);
+        final ITaskWrapper wrapper = new TaskWrapper<Integer>(new CountingCallable(), processor);
+        wrapper.execute();
+        wrapper.execute();
+        assertEquals(0, future.getRetainedResults());
+        assertEquals(Integer.valueOf(2), future.get());
+        try
+        {
+            future.getResult(1);
+            fail();
+        }
+        catch (ResultEvictedException e)
+        {
+            assertEquals(1, e.getIndex());
+        }
+    }
+
+    @Test
+    public void testRetainedMoreThanRepetitions() throws Exception
+    {
+        final RepeatingFuture<Integer> future = new RepeatingFuture<Integer>(canceller, REPETITIONS,
+                Integer.MAX_VALUE);
+        final FutureSetResult<Integer> processor = new FutureSetResult<Integer>(future);
+        final ITaskWrapper wrapper = new TaskWrapper<Integer>(new CountingCallable(), processor);
+        for (int i = 0; i < REPETITIONS; i++)
+        {
+            wrapper.execute();
+        }
+        assertEquals(REPETITIONS, future.getRetainedResults());
+        assertEquals(Integer.valueOf(1), future.getResult(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeRetainedResults()
+    {
+        new RepeatingFuture<Integer>(canceller, REPETITIONS, -1);
+    }
 }
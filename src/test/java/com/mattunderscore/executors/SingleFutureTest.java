@@ -32,9 +32,11 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -418,4 +420,60 @@ public final class SingleFutureTest
             throw t;
         }
     }
+
+    @Test(expected = CancellationException.class)
+    public void testResultAfterCancel() throws Exception
+    {
+        when(canceller.cancelTask(Matchers.any(ITaskWrapper.class), Matchers.eq(false)))
+                .thenReturn(true);
+        final SingleFuture<Integer> future = new SingleFuture<Integer>(canceller);
+        final FutureSetResult<Integer> processor = new FutureSetResult<Integer>(future);
+        final ITaskWrapper wrapper = new TaskWrapper<Integer>(new NumberCallable(5), processor);
+        assertTrue(future.cancel(false));
+        // A task that was already running when it was cancelled cannot complete the future
+        wrapper.execute();
+        assertTrue(future.isCancelled());
+        future.get();
+    }
+
+    @Test
+    public void testCancelCompleteRace() throws Exception
+    {
+        when(canceller.cancelTask(Matchers.any(ITaskWrapper.class), Matchers.eq(false)))
+                .thenReturn(true);
+        for (int i = 0; i < 200; i++)
+        {
+            final SingleFuture<Integer> future = new SingleFuture<Integer>(canceller);
+            final FutureSetResult<Integer> processor = new FutureSetResult<Integer>(future);
+            final ITaskWrapper wrapper = new TaskWrapper<Integer>(new NumberCallable(5), processor);
+            final CountDownLatch start = new CountDownLatch(1);
+            final AtomicBoolean cancelled = new AtomicBoolean();
+            final Thread thread = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        start.await();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        return;
+                    }
+                    cancelled.set(future.cancel(false));
+                }
+            });
+            thread.start();
+            start.countDown();
+            wrapper.execute();
+            thread.join();
+            assertTrue(future.isDone());
+            assertEquals(cancelled.get(), future.isCancelled());
+            if (!cancelled.get())
+            {
+                assertEquals(Integer.valueOf(5), future.get());
+            }
+        }
+    }
 }
@@ -0,0 +1,118 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.mattunderscore.executor.stubs.BlockingTask;
+import com.mattunderscore.executor.stubs.CountingTask;
+import com.mattunderscore.executor.stubs.NumberCallable;
+
+/**
+ * Test suite for estimating the wait of tasks and rejecting those that would wait too long.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+public final class AdmissionControlTest
+{
+    private static final long RATE = 50L;
+
+    private final IRatedExecutor executor = RatedExecutors.ratedExecutor(RATE,
+            TimeUnit.MILLISECONDS);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @After
+    public void tearDown()
+    {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testIdle()
+    {
+        assertEquals(0L, executor.estimatedWait(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testQueued() throws InterruptedException
+    {
+        block();
+        for (int i = 0; i < 4; i++)
+        {
+            executor.submit(new CountingTask());
+        }
+        final long wait = executor.estimatedWait(TimeUnit.MILLISECONDS);
+        assertTrue(wait > RATE * 4);
+        assertTrue(wait <= RATE * 5);
+    }
+
+    @Test
+    public void testRejected() throws InterruptedException
+    {
+        block();
+        for (int i = 0; i < 4; i++)
+        {
+            executor.submit(new CountingTask());
+        }
+        final long wait = executor.estimatedWait(TimeUnit.MILLISECONDS);
+        final CountingTask task = new CountingTask();
+        assertNull(executor.trySubmit(task, RATE * 2, TimeUnit.MILLISECONDS));
+        assertNull(executor.trySubmit(new NumberCallable(1), RATE * 2, TimeUnit.MILLISECONDS));
+        // The rejected tasks were not queued
+        assertTrue(executor.estimatedWait(TimeUnit.MILLISECONDS) <= wait);
+    }
+
+    @Test
+    public void testAccepted() throws Exception
+    {
+        final Future<Integer> future = executor.trySubmit(new NumberCallable(3), RATE * 2,
+                TimeUnit.MILLISECONDS);
+        assertNotNull(future);
+        assertEquals(Integer.valueOf(3), future.get(RATE * 4, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Occupy the executor with a task that runs until the test ends.
+     */
+    private void block() throws InterruptedException
+    {
+        final CountDownLatch started = new CountDownLatch(1);
+        executor.submit(new BlockingTask(started, release, new CountDownLatch(1)));
+        assertTrue(started.await(1L, TimeUnit.SECONDS));
+    }
+}
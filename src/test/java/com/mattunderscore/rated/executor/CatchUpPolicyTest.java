@@ -0,0 +1,177 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Test suite for the {@link CatchUpPolicy}.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+public final class CatchUpPolicyTest
+{
+    private static final long PERIOD = 100L;
+    private static final long RATE = 50L;
+
+    @Test
+    public void testOnTime()
+    {
+        assertEquals(1100L, CatchUpPolicy.catchUp().nextTarget(1000L, 1000L, PERIOD));
+        assertEquals(1100L, CatchUpPolicy.boundedBurst(2).nextTarget(1000L, 1000L, PERIOD));
+        assertEquals(1100L, CatchUpPolicy.reset().nextTarget(1000L, 1000L, PERIOD));
+    }
+
+    @Test
+    public void testLateCatchUp()
+    {
+        assertEquals(1100L, CatchUpPolicy.catchUp().nextTarget(1000L, 1550L, PERIOD));
+    }
+
+    @Test
+    public void testLateBoundedBurst()
+    {
+        assertEquals(1450L, CatchUpPolicy.boundedBurst(2).nextTarget(1000L, 1550L, PERIOD));
+        assertEquals(1100L, CatchUpPolicy.boundedBurst(10).nextTarget(1000L, 1550L, PERIOD));
+    }
+
+    @Test
+    public void testLateReset()
+    {
+        assertEquals(1650L, CatchUpPolicy.reset().nextTarget(1000L, 1550L, PERIOD));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeBurst()
+    {
+        CatchUpPolicy.boundedBurst(-1);
+    }
+
+    @Test
+    public void testScheduledReset() throws Exception
+    {
+        final IRatedExecutor executor = RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS)
+                .catchUpPolicy(CatchUpPolicy.reset()).build();
+        assertNoBurst(executor);
+    }
+
+    @Test
+    public void testThreadedReset() throws Exception
+    {
+        final IRatedExecutor executor = RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS)
+                .catchUpPolicy(CatchUpPolicy.reset()).interruptable().build();
+        assertNoBurst(executor);
+    }
+
+    @Test
+    public void testScheduledCatchUp() throws Exception
+    {
+        final IRatedExecutor executor = RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS)
+                .catchUpPolicy(CatchUpPolicy.catchUp()).build();
+        assertBurst(executor);
+    }
+
+    @Test
+    public void testThreadedCatchUp() throws Exception
+    {
+        final IRatedExecutor executor = RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS)
+                .catchUpPolicy(CatchUpPolicy.catchUp()).interruptable().build();
+        assertBurst(executor);
+    }
+
+    /**
+     * Tasks submitted behind a slow task should keep to the period.
+     */
+    private void assertNoBurst(final IRatedExecutor executor) throws Exception
+    {
+        final long[] starts = runBehindSlowTask(executor);
+        for (int i = 1; i < starts.length; i++)
+        {
+            final long interval = starts[i] - starts[i - 1];
+            assertTrue("Interval too short " + interval,
+                    interval > TimeUnit.MILLISECONDS.toNanos(RATE) * 9 / 10);
+        }
+    }
+
+    /**
+     * Tasks submitted behind a slow task should be run back to back.
+     */
+    private void assertBurst(final IRatedExecutor executor) throws Exception
+    {
+        final long[] starts = runBehindSlowTask(executor);
+        final long interval = starts[1] - starts[0];
+        assertTrue("Interval too long " + interval,
+                interval < TimeUnit.MILLISECONDS.toNanos(RATE) / 2);
+    }
+
+    private long[] runBehindSlowTask(final IRatedExecutor executor) throws Exception
+    {
+        executor.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    TimeUnit.MILLISECONDS.sleep(RATE * 5);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        final Callable<Long> timestamp = new Callable<Long>()
+        {
+            @Override
+            public Long call()
+            {
+                return System.nanoTime();
+            }
+        };
+        final List<Future<Long>> futures = new ArrayList<Future<Long>>();
+        for (int i = 0; i < 3; i++)
+        {
+            futures.add(executor.submit(timestamp));
+        }
+        final long[] starts = new long[futures.size()];
+        for (int i = 0; i < starts.length; i++)
+        {
+            starts[i] = futures.get(i).get();
+        }
+        return starts;
+    }
+}
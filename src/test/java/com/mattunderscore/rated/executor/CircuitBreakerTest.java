@@ -0,0 +1,286 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.mattunderscore.executors.CircuitOpenException;
+
+/**
+ * Test suite for the {@link CircuitBreaker}.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+public final class CircuitBreakerTest
+{
+    private static final long RATE = 10L;
+    private static final long OPEN = 200L;
+
+    private IRatedExecutor executor;
+
+    @After
+    public void tearDown()
+    {
+        if (executor != null)
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testOpensOnFailureRate()
+    {
+        final CircuitBreakerState state = new CircuitBreakerState(CircuitBreaker.failureRate(0.5, 4,
+                OPEN, TimeUnit.MILLISECONDS));
+        final long now = System.nanoTime();
+        state.onFailure(now);
+        state.onFailure(now);
+        // The window is not full
+        assertFalse(state.isOpen());
+        state.onSuccess(now);
+        state.onSuccess(now);
+        assertTrue(state.isOpen());
+        assertEquals(CircuitBreakerState.Permit.HOLD, state.permit(now));
+        // Half open after the open duration
+        final long later = now + TimeUnit.MILLISECONDS.toNanos(OPEN);
+        assertEquals(CircuitBreakerState.Permit.EXECUTE, state.permit(later));
+        state.onSuccess(later);
+        assertFalse(state.isOpen());
+    }
+
+    @Test
+    public void testWindowSlides()
+    {
+        final CircuitBreakerState state = new CircuitBreakerState(CircuitBreaker.failureRate(0.5, 4,
+                OPEN, TimeUnit.MILLISECONDS));
+        final long now = System.nanoTime();
+        state.onFailure(now);
+        state.onSuccess(now);
+        state.onSuccess(now);
+        state.onSuccess(now);
+        // The first failure leaves the window
+        state.onSuccess(now);
+        state.onFailure(now);
+        assertFalse(state.isOpen());
+        state.onFailure(now);
+        assertTrue(state.isOpen());
+    }
+
+    @Test
+    public void testFailedProbeReopens()
+    {
+        final CircuitBreakerState state = new CircuitBreakerState(CircuitBreaker.failureRate(1.0, 1,
+                OPEN, TimeUnit.MILLISECONDS).failFast());
+        final long now = System.nanoTime();
+        state.onFailure(now);
+        assertEquals(CircuitBreakerState.Permit.FAIL, state.permit(now));
+        final long later = now + TimeUnit.MILLISECONDS.toNanos(OPEN);
+        assertEquals(CircuitBreakerState.Permit.EXECUTE, state.permit(later));
+        state.onFailure(later);
+        assertEquals(CircuitBreakerState.Permit.FAIL, state.permit(later));
+        assertEquals(CircuitBreakerState.Permit.EXECUTE,
+                state.permit(later + TimeUnit.MILLISECONDS.toNanos(OPEN)));
+    }
+
+    @Test
+    public void testHoldsWhileOpen() throws Exception
+    {
+        executor = RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS)
+                .circuitBreaker(CircuitBreaker.failureRate(1.0, 2, OPEN, TimeUnit.MILLISECONDS))
+                .build();
+        openBreaker();
+        final CountingCallable task = new CountingCallable();
+        final long start = System.nanoTime();
+        final Future<Integer> future = executor.submit(task);
+        try
+        {
+            future.get(OPEN / 2, TimeUnit.MILLISECONDS);
+            fail("The task should be held");
+        }
+        catch (final TimeoutException e)
+        {
+            assertEquals(0, task.calls.get());
+        }
+        // The held task is the probe once the breaker is half open
+        assertEquals(Integer.valueOf(1), future.get(OPEN * 2, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(OPEN / 2));
+        // The probe closed the breaker
+        assertEquals(Integer.valueOf(2), executor.submit(task).get(RATE * 10,
+                TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testFailsFastWhileOpen() throws Exception
+    {
+        executor = RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS)
+                .circuitBreaker(CircuitBreaker.failureRate(1.0, 2, OPEN, TimeUnit.MILLISECONDS)
+                        .failFast()).build();
+        openBreaker();
+        final CountingCallable task = new CountingCallable();
+        final Future<Integer> first = executor.submit(task);
+        final Future<Integer> second = executor.submit(task);
+        assertCircuitOpen(first);
+        assertCircuitOpen(second);
+        assertEquals(0, task.calls.get());
+    }
+
+    @Test
+    public void testLowGarbageFailsFastWhileOpen() throws Exception
+    {
+        executor = RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS).lowGarbage()
+                .circuitBreaker(CircuitBreaker.failureRate(1.0, 2, OPEN, TimeUnit.MILLISECONDS)
+                        .failFast()).build();
+        openBreaker();
+        final CountingCallable task = new CountingCallable();
+        final Future<Integer> future = executor.submit(task);
+        assertCircuitOpen(future);
+        assertEquals(0, task.calls.get());
+    }
+
+    @Test
+    public void testFailedProbeHoldsAgain() throws Exception
+    {
+        executor = RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS)
+                .circuitBreaker(CircuitBreaker.failureRate(1.0, 2, OPEN, TimeUnit.MILLISECONDS))
+                .build();
+        openBreaker();
+        final Future<Integer> probe = executor.submit(new FailingCallable());
+        try
+        {
+            probe.get(OPEN * 2, TimeUnit.MILLISECONDS);
+            fail("The probe should fail");
+        }
+        catch (final ExecutionException e)
+        {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        final CountingCallable task = new CountingCallable();
+        final Future<Integer> future = executor.submit(task);
+        Thread.sleep(OPEN / 2);
+        assertFalse(future.isDone());
+        assertEquals(Integer.valueOf(1), future.get(OPEN * 2, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testExecutedTasksOpenBreaker() throws Exception
+    {
+        executor = RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS)
+                .circuitBreaker(CircuitBreaker.failureRate(1.0, 2, OPEN, TimeUnit.MILLISECONDS))
+                .build();
+        final CountDownLatch executed = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++)
+        {
+            executor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    executed.countDown();
+                    throw new IllegalStateException();
+                }
+            });
+        }
+        assertTrue(executed.await(RATE * 10, TimeUnit.MILLISECONDS));
+        final CountingCallable task = new CountingCallable();
+        final Future<Integer> future = executor.submit(task);
+        Thread.sleep(OPEN / 2);
+        // The failures of the executed tasks opened the breaker
+        assertEquals(0, task.calls.get());
+        assertEquals(Integer.valueOf(1), future.get(OPEN * 2, TimeUnit.MILLISECONDS));
+    }
+
+    private void openBreaker() throws InterruptedException
+    {
+        for (int i = 0; i < 2; i++)
+        {
+            try
+            {
+                executor.submit(new FailingCallable()).get();
+                fail("The task should fail");
+            }
+            catch (final ExecutionException e)
+            {
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSimpleExecutorRejectsBreaker()
+    {
+        RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS)
+                .circuitBreaker(CircuitBreaker.failureRate(0.5, 4, OPEN, TimeUnit.MILLISECONDS))
+                .buildSimple();
+    }
+
+    private static void assertCircuitOpen(final Future<?> future) throws Exception
+    {
+        try
+        {
+            future.get(RATE * 5, TimeUnit.MILLISECONDS);
+            fail("The task should fail fast");
+        }
+        catch (final ExecutionException e)
+        {
+            assertTrue(e.getCause() instanceof CircuitOpenException);
+        }
+    }
+
+    private static final class CountingCallable implements Callable<Integer>
+    {
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public Integer call()
+        {
+            return calls.incrementAndGet();
+        }
+    }
+
+    private static final class FailingCallable implements Callable<Integer>
+    {
+        @Override
+        public Integer call() throws IOException
+        {
+            throw new IOException();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.mattunderscore.executor.stubs.BlockingTask;
+import com.mattunderscore.executor.stubs.CountingTask;
+import com.mattunderscore.executor.stubs.NumberCallable;
+import com.mattunderscore.executors.DeadlineExpiredException;
+
+/**
+ * Test suite for tasks submitted with a deadline.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+public final class DeadlineTest
+{
+    private static final long RATE = 50L;
+
+    @Test
+    public void testExecutedBeforeDeadline() throws Exception
+    {
+        final IRatedExecutor executor = RatedExecutors.ratedExecutor(RATE, TimeUnit.MILLISECONDS);
+        final Future<Integer> future = executor.submit(new NumberCallable(5), RATE * 10,
+                TimeUnit.MILLISECONDS);
+        assertEquals(Integer.valueOf(5), future.get(RATE * 10, TimeUnit.MILLISECONDS));
+        executor.shutdown();
+    }
+
+    @Test
+    public void testExpiredStandard() throws Exception
+    {
+        assertExpiredTaskSkipped(RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS)
+                .catchUpPolicy(CatchUpPolicy.reset()).build());
+    }
+
+    @Test
+    public void testExpiredInterruptable() throws Exception
+    {
+        assertExpiredTaskSkipped(RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS)
+                .catchUpPolicy(CatchUpPolicy.reset()).interruptable().build());
+    }
+
+    @Test
+    public void testExpiredEarliestDeadlineFirst() throws Exception
+    {
+        assertExpiredTaskSkipped(RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS)
+                .catchUpPolicy(CatchUpPolicy.reset()).earliestDeadlineFirst().build());
+    }
+
+    @Test
+    public void testEarliestDeadlineFirst() throws Exception
+    {
+        final IRatedExecutor executor = RatedExecutors.builder(1L, TimeUnit.MILLISECONDS)
+                .earliestDeadlineFirst().build();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        executor.submit(new BlockingTask(started, release, new CountDownLatch(1)));
+        assertTrue(started.await(1L, TimeUnit.SECONDS));
+
+        final List<Integer> order = new CopyOnWriteArrayList<Integer>();
+        executor.submit(new RecordingTask(order, 0));
+        executor.submit(new RecordingTask(order, 3), 30L, TimeUnit.SECONDS);
+        executor.submit(new RecordingTask(order, 1), 10L, TimeUnit.SECONDS);
+        final Future<?> last = executor.submit(new RecordingTask(order, 4));
+        executor.submit(new RecordingTask(order, 2), 20L, TimeUnit.SECONDS);
+        release.countDown();
+
+        last.get(1L, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList(1, 2, 3, 0, 4), order);
+        executor.shutdown();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSimpleExecutorRejectsEarliestDeadlineFirst()
+    {
+        RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS).earliestDeadlineFirst().buildSimple();
+    }
+
+    @Test
+    public void testCancelEarliestDeadlineFirst() throws Exception
+    {
+        final IRatedExecutor executor = RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS)
+                .earliestDeadlineFirst().build();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        executor.submit(new BlockingTask(started, release, new CountDownLatch(1)));
+        assertTrue(started.await(1L, TimeUnit.SECONDS));
+
+        final CountingTask task = new CountingTask();
+        final Future<?> future = executor.submit(task, 10L, TimeUnit.SECONDS);
+        assertTrue(future.cancel(false));
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(RATE * 10, TimeUnit.MILLISECONDS));
+        assertEquals(0, task.count);
+    }
+
+    /**
+     * Assert that a task that expires while queued is not executed and that the next task is
+     * executed in its place.
+     */
+    private static void assertExpiredTaskSkipped(final IRatedExecutor executor) throws Exception
+    {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        executor.submit(new BlockingTask(started, release, new CountDownLatch(1)));
+        assertTrue(started.await(1L, TimeUnit.SECONDS));
+
+        final CountingTask expiring = new CountingTask();
+        final Future<?> expired = executor.submit(expiring, 1L, TimeUnit.MILLISECONDS);
+        final CountingTask next = new CountingTask();
+        final Future<?> nextFuture = executor.submit(next);
+        Thread.sleep(RATE * 2);
+        final long released = System.nanoTime();
+        release.countDown();
+
+        nextFuture.get(RATE * 10, TimeUnit.MILLISECONDS);
+        final long duration = System.nanoTime() - released;
+        // The executor is behind so the next execution is immediate, the next task takes the
+        // execution the expired task would have used instead of waiting for another period
+        assertTrue(duration < TimeUnit.MILLISECONDS.toNanos(RATE / 2));
+        assertEquals(1, next.count);
+        assertEquals(0, expiring.count);
+        assertTrue(expired.isDone());
+        try
+        {
+            expired.get();
+            fail("Task should have expired");
+        }
+        catch (final ExecutionException e)
+        {
+            assertTrue(e.getCause() instanceof DeadlineExpiredException);
+            assertFalse(((DeadlineExpiredException) e.getCause()).getLateness() < 0L);
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * Task that records its identifier when executed.
+     */
+    private static final class RecordingTask implements Runnable
+    {
+        private final List<Integer> order;
+        private final int id;
+
+        public RecordingTask(final List<Integer> order, final int id)
+        {
+            this.order = order;
+            this.id = id;
+        }
+
+        @Override
+        public void run()
+        {
+            order.add(id);
+        }
+    }
+}
@@ -0,0 +1,393 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import com.mattunderscore.executor.stubs.BlockingTask;
+import com.mattunderscore.executor.stubs.CountingTask;
+import com.mattunderscore.executor.stubs.NumberCallable;
+import com.mattunderscore.executor.stubs.TestThreadFactory;
+
+/**
+ * Test suite for the {@link java.util.concurrent.ExecutorService} methods of rated executors.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+@RunWith(Parameterized.class)
+public final class ExecutorServiceTest
+{
+    private static final long RATE = 20L;
+
+    private final Type type;
+    private TestThreadFactory threadFactory;
+    private IRatedExecutorGroup group;
+    private IRatedExecutor executor;
+
+    public ExecutorServiceTest(final Type type)
+    {
+        this.type = type;
+    }
+
+    /**
+     * Provide types to the JUnit runner to pass to the constructor.
+     * @return The collection of types
+     */
+    @Parameters
+    public static Collection<Object[]> data()
+    {
+        final Object[][] list = {
+            {Type.STANDARD},
+            {Type.INTERRUPTABLE},
+            {Type.TICKLESS},
+            {Type.INTERRUPTABLE_TICKLESS},
+            {Type.LOW_GARBAGE},
+            {Type.GROUP}
+        };
+        return Arrays.asList(list);
+    }
+
+    @Before
+    public void setUp()
+    {
+        threadFactory = new TestThreadFactory();
+        if (type == Type.GROUP)
+        {
+            group = RatedExecutors.ratedExecutorGroup(1, threadFactory);
+            executor = group.ratedExecutor(RATE, TimeUnit.MILLISECONDS);
+        }
+        else
+        {
+            executor = type.configure(RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS))
+                    .threadFactory(threadFactory).build();
+        }
+    }
+
+    @After
+    public void tearDown()
+    {
+        executor.shutdownNow();
+        if (group != null)
+        {
+            group.shutdown();
+        }
+    }
+
+    @Test
+    public void testShutdownIdle() throws InterruptedException
+    {
+        assertFalse(executor.isShutdown());
+        assertFalse(executor.isTerminated());
+        executor.shutdown();
+        assertTrue(executor.isShutdown());
+        assertTrue(executor.awaitTermination(RATE * 10, TimeUnit.MILLISECONDS));
+        assertTrue(executor.isTerminated());
+    }
+
+    @Test
+    public void testShutdownDrainsQueue() throws InterruptedException
+    {
+        final CountingTask task = new CountingTask();
+        final List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int i = 0; i < 5; i++)
+        {
+            futures.add(executor.submit(task));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(RATE * 20, TimeUnit.MILLISECONDS));
+        assertEquals(5, task.count);
+        for (final Future<?> future : futures)
+        {
+            assertTrue(future.isDone());
+            assertFalse(future.isCancelled());
+        }
+    }
+
+    @Test
+    public void testShutdownReleasesThreads() throws InterruptedException
+    {
+        executor.submit(new CountingTask());
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(RATE * 10, TimeUnit.MILLISECONDS));
+        if (type != Type.GROUP)
+        {
+            for (final Thread thread : threadFactory.getThreads())
+            {
+                thread.join(RATE * 10);
+                assertFalse(thread.isAlive());
+            }
+        }
+    }
+
+    @Test
+    public void testRejectedAfterShutdown()
+    {
+        executor.shutdown();
+        try
+        {
+            executor.execute(new CountingTask());
+            fail("Task should have been rejected");
+        }
+        catch (final RejectedExecutionException e)
+        {
+        }
+        try
+        {
+            executor.submit(new NumberCallable(1));
+            fail("Task should have been rejected");
+        }
+        catch (final RejectedExecutionException e)
+        {
+        }
+        try
+        {
+            executor.schedule(new CountingTask(), 2);
+            fail("Task should have been rejected");
+        }
+        catch (final RejectedExecutionException e)
+        {
+        }
+    }
+
+    @Test
+    public void testRepeatingTaskCancelledByShutdown() throws InterruptedException
+    {
+        final CountingTask task = new CountingTask();
+        final Future<?> future = executor.schedule(task);
+        while (task.count < 2)
+        {
+            Thread.sleep(RATE);
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(RATE * 10, TimeUnit.MILLISECONDS));
+        assertTrue(future.isCancelled());
+        final int count = task.count;
+        Thread.sleep(RATE * 3);
+        assertEquals(count, task.count);
+    }
+
+    @Test
+    public void testShutdownNow() throws Exception
+    {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch completed = new CountDownLatch(1);
+        executor.submit(new BlockingTask(started, release, completed));
+        final CountingTask task = new CountingTask();
+        final List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int i = 0; i < 3; i++)
+        {
+            futures.add(executor.submit(task));
+        }
+        assertTrue(started.await(RATE * 10, TimeUnit.MILLISECONDS));
+        final List<Runnable> pending = executor.shutdownNow();
+        assertEquals(3, pending.size());
+        if (type == Type.INTERRUPTABLE || type == Type.INTERRUPTABLE_TICKLESS)
+        {
+            // The blocking task is interrupted
+            assertTrue(completed.await(RATE * 10, TimeUnit.MILLISECONDS));
+        }
+        else
+        {
+            assertFalse(executor.awaitTermination(RATE * 2, TimeUnit.MILLISECONDS));
+            release.countDown();
+        }
+        assertTrue(executor.awaitTermination(RATE * 10, TimeUnit.MILLISECONDS));
+        assertEquals(0, task.count);
+
+        // The returned tasks can still be run
+        for (final Runnable runnable : pending)
+        {
+            runnable.run();
+        }
+        assertEquals(3, task.count);
+        for (final Future<?> future : futures)
+        {
+            assertTrue(future.isDone());
+        }
+    }
+
+    @Test
+    public void testSubmitWithResult() throws Exception
+    {
+        final CountingTask task = new CountingTask();
+        final Future<String> future = executor.submit(task, "done");
+        assertEquals("done", future.get(RATE * 10, TimeUnit.MILLISECONDS));
+        assertEquals(1, task.count);
+    }
+
+    @Test
+    public void testInvokeAll() throws Exception
+    {
+        final List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+        for (int i = 0; i < 5; i++)
+        {
+            tasks.add(new NumberCallable(i));
+        }
+        final long start = System.nanoTime();
+        final List<Future<Integer>> futures = executor.invokeAll(tasks);
+        final long duration = System.nanoTime() - start;
+        assertEquals(5, futures.size());
+        for (int i = 0; i < 5; i++)
+        {
+            assertTrue(futures.get(i).isDone());
+            assertEquals(Integer.valueOf(i), futures.get(i).get());
+        }
+        // Executing the batch still keeps to the rate
+        assertTrue(duration >= TimeUnit.MILLISECONDS.toNanos(RATE * 4));
+    }
+
+    @Test
+    public void testInvokeAllTimeout() throws Exception
+    {
+        final List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+        for (int i = 0; i < 20; i++)
+        {
+            tasks.add(new NumberCallable(i));
+        }
+        final List<Future<Integer>> futures = executor.invokeAll(tasks, RATE * 3,
+                TimeUnit.MILLISECONDS);
+        assertEquals(20, futures.size());
+        assertFalse(futures.get(0).isCancelled());
+        assertTrue(futures.get(19).isCancelled());
+        for (final Future<Integer> future : futures)
+        {
+            assertTrue(future.isDone());
+        }
+    }
+
+    @Test
+    public void testInvokeAllTimeoutWhileRunning() throws Exception
+    {
+        final List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+        tasks.add(new Callable<Integer>()
+        {
+            @Override
+            public Integer call() throws Exception
+            {
+                Thread.sleep(RATE * 3);
+                return 0;
+            }
+        });
+        tasks.add(new NumberCallable(1));
+        final List<Future<Integer>> futures = executor.invokeAll(tasks, RATE,
+                TimeUnit.MILLISECONDS);
+        // The running task may not be interruptable, the futures are still done when returned
+        for (final Future<Integer> future : futures)
+        {
+            assertTrue(future.isDone());
+        }
+    }
+
+    @Test
+    public void testInvokeAny() throws Exception
+    {
+        final List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+        tasks.add(new NumberCallable(7));
+        tasks.add(new NumberCallable(7));
+        assertEquals(Integer.valueOf(7), executor.invokeAny(tasks));
+    }
+
+    private static enum Type
+    {
+        STANDARD
+        {
+            @Override
+            public RatedExecutorBuilder configure(final RatedExecutorBuilder builder)
+            {
+                return builder;
+            }
+        },
+        INTERRUPTABLE
+        {
+            @Override
+            public RatedExecutorBuilder configure(final RatedExecutorBuilder builder)
+            {
+                return builder.interruptable();
+            }
+        },
+        TICKLESS
+        {
+            @Override
+            public RatedExecutorBuilder configure(final RatedExecutorBuilder builder)
+            {
+                return builder.tickless();
+            }
+        },
+        INTERRUPTABLE_TICKLESS
+        {
+            @Override
+            public RatedExecutorBuilder configure(final RatedExecutorBuilder builder)
+            {
+                return builder.interruptable().tickless();
+            }
+        },
+        LOW_GARBAGE
+        {
+            @Override
+            public RatedExecutorBuilder configure(final RatedExecutorBuilder builder)
+            {
+                return builder.lowGarbage();
+            }
+        },
+        GROUP
+        {
+            @Override
+            public RatedExecutorBuilder configure(final RatedExecutorBuilder builder)
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        /**
+         * Configure a builder for the type.
+         * @param builder The builder
+         * @return The builder
+         */
+        public abstract RatedExecutorBuilder configure(RatedExecutorBuilder builder);
+    }
+}
@@ -0,0 +1,187 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.mattunderscore.executors.IRepeatingFuture;
+
+/**
+ * Test suite for the {@link Jitter}.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+public final class JitterTest
+{
+    private static final long RATE = 20L;
+    private static final long MAX_DELAY = 10L;
+    private static final int REPETITIONS = 20;
+
+    @Test
+    public void testNone()
+    {
+        assertEquals(0L, Jitter.none().delay());
+    }
+
+    @Test
+    public void testUniformRange()
+    {
+        final Jitter jitter = Jitter.uniform(MAX_DELAY, TimeUnit.NANOSECONDS);
+        for (int i = 0; i < 1000; i++)
+        {
+            final long delay = jitter.delay();
+            assertTrue(delay >= 0L);
+            assertTrue(delay < MAX_DELAY);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegative()
+    {
+        Jitter.uniform(-1L, TimeUnit.NANOSECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMaxDelayNotShorterThanPeriod()
+    {
+        RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS)
+                .jitter(Jitter.uniform(RATE, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testScheduledSpacing() throws Exception
+    {
+        assertSpacing(RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS)
+                .catchUpPolicy(CatchUpPolicy.reset())
+                .jitter(Jitter.uniform(MAX_DELAY, TimeUnit.MILLISECONDS)).build());
+    }
+
+    @Test
+    public void testThreadedSpacing() throws Exception
+    {
+        assertSpacing(RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS).interruptable()
+                .catchUpPolicy(CatchUpPolicy.reset())
+                .jitter(Jitter.uniform(MAX_DELAY, TimeUnit.MILLISECONDS)).build());
+    }
+
+    @Test
+    public void testScheduledMeanRate() throws Exception
+    {
+        assertMeanRate(RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS)
+                .jitter(Jitter.uniform(MAX_DELAY, TimeUnit.MILLISECONDS)).build());
+    }
+
+    @Test
+    public void testThreadedMeanRate() throws Exception
+    {
+        assertMeanRate(RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS).interruptable()
+                .jitter(Jitter.uniform(MAX_DELAY, TimeUnit.MILLISECONDS)).build());
+    }
+
+    @Test
+    public void testRateLimiterSpacing() throws Exception
+    {
+        final IRateLimiter limiter = RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS)
+                .jitter(Jitter.uniform(MAX_DELAY, TimeUnit.MILLISECONDS)).buildRateLimiter();
+        final long[] times = new long[REPETITIONS];
+        for (int i = 0; i < REPETITIONS; i++)
+        {
+            limiter.acquire();
+            times[i] = System.nanoTime();
+        }
+        assertIntervals(times);
+    }
+
+    /**
+     * The delays of the executions do not accumulate so the time taken by all the executions is
+     * close to the periods plus the maximum delays.
+     */
+    private void assertMeanRate(final IRatedExecutor executor) throws Exception
+    {
+        final IRepeatingFuture<Long> future = executor.schedule(new Callable<Long>()
+        {
+            @Override
+            public Long call()
+            {
+                return System.nanoTime();
+            }
+        }, REPETITIONS);
+        final long elapsed = future.getResult(REPETITIONS - 1) - future.getResult(0);
+        final long expected = TimeUnit.MILLISECONDS.toNanos((RATE + MAX_DELAY) * (REPETITIONS - 1));
+        assertTrue("Delays accumulated " + elapsed,
+                Math.abs(elapsed - expected) < TimeUnit.MILLISECONDS.toNanos(MAX_DELAY + RATE / 2));
+        executor.shutdown();
+    }
+
+    /**
+     * Executions vary, average the period plus the maximum delay and are no closer than the
+     * period. Late executions are not caught up so that the spacing is not reduced after one.
+     */
+    private void assertSpacing(final IRatedExecutor executor) throws Exception
+    {
+        final IRepeatingFuture<Long> future = executor.schedule(new Callable<Long>()
+        {
+            @Override
+            public Long call()
+            {
+                return System.nanoTime();
+            }
+        }, REPETITIONS);
+        final long[] times = new long[REPETITIONS];
+        for (int i = 0; i < REPETITIONS; i++)
+        {
+            times[i] = future.getResult(i);
+        }
+        assertIntervals(times);
+        executor.shutdown();
+    }
+
+    private void assertIntervals(final long[] times)
+    {
+        final long rateInNanos = TimeUnit.MILLISECONDS.toNanos(RATE);
+        long shortest = Long.MAX_VALUE;
+        long longest = 0L;
+        for (int i = 1; i < times.length; i++)
+        {
+            final long interval = times[i] - times[i - 1];
+            shortest = Math.min(shortest, interval);
+            longest = Math.max(longest, interval);
+        }
+        final long average = (times[times.length - 1] - times[0]) / (times.length - 1);
+        final long expectedAverage = rateInNanos + TimeUnit.MILLISECONDS.toNanos(MAX_DELAY);
+        assertTrue("Interval too short " + shortest, shortest > rateInNanos * 95 / 100);
+        assertTrue("Intervals do not vary", longest - shortest > TimeUnit.MILLISECONDS.toNanos(2L));
+        assertTrue("Average too far from expected " + average,
+                Math.abs(average - expectedAverage) < TimeUnit.MILLISECONDS.toNanos(MAX_DELAY) / 3);
+    }
+}
@@ -0,0 +1,177 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.mattunderscore.executor.stubs.TestThreadFactory;
+
+/**
+ * Test suite for the keep alive of the thread of a rated executor.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+public final class KeepAliveTest
+{
+    private static final long RATE = 20L;
+    private static final long KEEP_ALIVE = RATE * 25;
+
+    private final TestThreadFactory threadFactory = new TestThreadFactory();
+    private IRatedExecutor executor;
+
+    private final Callable<Long> timestamp = new Callable<Long>()
+    {
+        @Override
+        public Long call()
+        {
+            return System.nanoTime();
+        }
+    };
+
+    @After
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testTicklessBurstsShareThread() throws Exception
+    {
+        executor = RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS).tickless()
+                .keepAlive(KEEP_ALIVE, TimeUnit.MILLISECONDS).threadFactory(threadFactory).build();
+        assertBurstsShareThread();
+    }
+
+    @Test
+    public void testBurstsShareThread() throws Exception
+    {
+        executor = RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS)
+                .keepAlive(KEEP_ALIVE, TimeUnit.MILLISECONDS).threadFactory(threadFactory).build();
+        assertBurstsShareThread();
+    }
+
+    @Test
+    public void testThreadPerBurstWithoutKeepAlive() throws Exception
+    {
+        executor = RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS).tickless().interruptable()
+                .threadFactory(threadFactory).build();
+        for (int i = 0; i < 3; i++)
+        {
+            executor.submit(timestamp).get();
+            Thread.sleep(RATE * 3);
+        }
+        assertEquals(3, threadFactory.getThreads().size());
+    }
+
+    @Test
+    public void testWakesPromptly() throws Exception
+    {
+        executor = RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS).tickless()
+                .keepAlive(KEEP_ALIVE, TimeUnit.MILLISECONDS).threadFactory(threadFactory).build();
+        executor.submit(timestamp).get();
+        Thread.sleep(RATE * 3);
+        final long submitted = System.nanoTime();
+        final long started = executor.submit(timestamp).get();
+        // The period since the last execution has passed so the task starts immediately
+        assertTrue(started - submitted < TimeUnit.MILLISECONDS.toNanos(RATE / 2));
+    }
+
+    @Test
+    public void testRateKeptAfterWaking() throws Exception
+    {
+        executor = RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS).tickless()
+                .keepAlive(KEEP_ALIVE, TimeUnit.MILLISECONDS).threadFactory(threadFactory).build();
+        final long first = executor.submit(timestamp).get();
+        // Wakes the kept alive thread within the period of the last execution
+        final long second = executor.submit(timestamp).get();
+        assertTrue(second - first >= TimeUnit.MILLISECONDS.toNanos(RATE) - 1000000L);
+    }
+
+    @Test
+    public void testThreadExitsAfterKeepAlive() throws Exception
+    {
+        executor = RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS).tickless()
+                .keepAlive(RATE * 2, TimeUnit.MILLISECONDS).threadFactory(threadFactory).build();
+        executor.submit(timestamp).get();
+        Thread.sleep(RATE * 6);
+        assertFalse(threadFactory.getThreads().get(0).isAlive());
+        executor.submit(timestamp).get();
+        assertEquals(2, threadFactory.getThreads().size());
+    }
+
+    @Test
+    public void testShutdownWhileKeptAlive() throws Exception
+    {
+        executor = RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS).tickless()
+                .keepAlive(KEEP_ALIVE, TimeUnit.MILLISECONDS).threadFactory(threadFactory).build();
+        executor.submit(timestamp).get();
+        Thread.sleep(RATE * 2);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(RATE * 5, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testShutdownWithoutThread() throws Exception
+    {
+        executor = RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS).interruptable()
+                .keepAlive(KEEP_ALIVE, TimeUnit.MILLISECONDS).threadFactory(threadFactory).build();
+        executor.shutdown();
+        // Nothing is queued so no thread is started to drain the queue
+        assertTrue(executor.isTerminated());
+        assertEquals(0, threadFactory.getThreads().size());
+    }
+
+    @Test
+    public void testShutdownNowWithoutThread() throws Exception
+    {
+        executor = RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS).interruptable()
+                .keepAlive(KEEP_ALIVE, TimeUnit.MILLISECONDS).threadFactory(threadFactory).build();
+        executor.shutdownNow();
+        assertTrue(executor.isTerminated());
+        assertEquals(0, threadFactory.getThreads().size());
+    }
+
+    private void assertBurstsShareThread() throws Exception
+    {
+        for (int i = 0; i < 3; i++)
+        {
+            executor.submit(timestamp).get();
+            executor.submit(timestamp).get();
+            // Long enough for the executor to stop without a keep alive
+            Thread.sleep(RATE * 4);
+        }
+        assertEquals(1, threadFactory.getThreads().size());
+    }
+}
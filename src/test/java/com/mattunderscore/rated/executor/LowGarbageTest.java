@@ -0,0 +1,161 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.mattunderscore.executor.stubs.CountingTask;
+import com.mattunderscore.executor.stubs.ExceptionCallable;
+import com.mattunderscore.executor.stubs.NumberCallable;
+import com.mattunderscore.executor.stubs.TestException;
+import com.mattunderscore.executors.IUniversalExecutor;
+
+/**
+ * Test suite for executors created with {@link RatedExecutorBuilder#lowGarbage()}.
+ * <P>
+ * Compares the memory allocated by the submitting thread with that of the standard executor where
+ * the JVM supports measuring it.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+public final class LowGarbageTest
+{
+    private static final int TASKS = 2000;
+
+    @Test
+    public void testResults() throws Exception
+    {
+        final IRatedExecutor executor = RatedExecutors.builder(1L, TimeUnit.MILLISECONDS)
+                .lowGarbage().build();
+        final CountingTask task = new CountingTask();
+        final Future<Integer> future0 = executor.submit(new NumberCallable(5));
+        final Future<?> future1 = executor.submit(task);
+        final Future<Object> future2 = executor.submit(new ExceptionCallable());
+        assertEquals(Integer.valueOf(5), future0.get());
+        future1.get();
+        assertEquals(1, task.count);
+        try
+        {
+            future2.get();
+            fail();
+        }
+        catch (ExecutionException e)
+        {
+            assertTrue(e.getCause() instanceof TestException);
+        }
+    }
+
+    @Test
+    public void testCancel() throws Exception
+    {
+        final IRatedExecutor executor = RatedExecutors.builder(100L, TimeUnit.MILLISECONDS)
+                .lowGarbage().build();
+        final Future<Integer> future0 = executor.submit(new NumberCallable(5));
+        final Future<Integer> future1 = executor.submit(new NumberCallable(6));
+        assertTrue(future1.cancel(false));
+        assertTrue(future1.isCancelled());
+        assertEquals(Integer.valueOf(5), future0.get());
+    }
+
+    @Test
+    public void testExecute() throws Exception
+    {
+        final IUniversalExecutor executor = RatedExecutors.builder(1L, TimeUnit.MILLISECONDS)
+                .lowGarbage().buildSimple();
+        final CountDownLatch latch = new CountDownLatch(TASKS / 10);
+        final Runnable task = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                latch.countDown();
+            }
+        };
+        for (int i = 0; i < TASKS / 10; i++)
+        {
+            executor.execute(task);
+        }
+        assertTrue(latch.await(5L, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testAllocation() throws Exception
+    {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        // Warm up both paths first
+        allocatedPerTask(threadBean, RatedExecutors.builder(1L, TimeUnit.NANOSECONDS));
+        allocatedPerTask(threadBean, RatedExecutors.builder(1L, TimeUnit.NANOSECONDS).lowGarbage());
+
+        final long standard = allocatedPerTask(threadBean,
+                RatedExecutors.builder(1L, TimeUnit.NANOSECONDS));
+        final long lowGarbage = allocatedPerTask(threadBean,
+                RatedExecutors.builder(1L, TimeUnit.NANOSECONDS).lowGarbage());
+        System.out.println("Bytes allocated per submitted task: standard " + standard
+                + ", low garbage " + lowGarbage);
+        // The returned future cannot be recycled so only the wrapping is saved
+        assertTrue("Low garbage " + lowGarbage + " bytes is not under 70% of standard " + standard
+                + " bytes", lowGarbage * 10 <= standard * 7);
+    }
+
+    private long allocatedPerTask(final com.sun.management.ThreadMXBean threadBean,
+            final RatedExecutorBuilder builder) throws Exception
+    {
+        final IRatedExecutor executor = builder.build();
+        final NumberCallable task = new NumberCallable(5);
+        final List<Future<Integer>> futures = new ArrayList<Future<Integer>>(TASKS);
+        final long threadId = Thread.currentThread().getId();
+        final long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < TASKS; i++)
+        {
+            futures.add(executor.submit(task));
+        }
+        final long after = threadBean.getThreadAllocatedBytes(threadId);
+        for (final Future<Integer> future : futures)
+        {
+            future.get();
+        }
+        return (after - before) / TASKS;
+    }
+}
@@ -0,0 +1,219 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Test suite for pausing and resuming rated executors.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+@RunWith(Parameterized.class)
+public final class PauseTest
+{
+    private static final long RATE = 20L;
+    private static final long RATE_NANOS = TimeUnit.MILLISECONDS.toNanos(RATE);
+    private static final long PAUSE = RATE * 10;
+    private static final long TOLERANCE = TimeUnit.MILLISECONDS.toNanos(1L);
+
+    private final boolean interruptable;
+    private final boolean tickless;
+    private IRatedExecutor executor;
+    private List<Long> starts;
+
+    public PauseTest(final boolean interruptable, final boolean tickless)
+    {
+        this.interruptable = interruptable;
+        this.tickless = tickless;
+    }
+
+    /**
+     * Provide the interruptable and tickless options to the JUnit runner to pass to the
+     * constructor.
+     * @return The collection of options
+     */
+    @Parameters
+    public static Collection<Object[]> data()
+    {
+        final Object[][] list = {
+            {false, false},
+            {true, false},
+            {false, true},
+            {true, true}
+        };
+        return Arrays.asList(list);
+    }
+
+    @Before
+    public void setUp()
+    {
+        RatedExecutorBuilder builder = RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS);
+        if (interruptable)
+        {
+            builder = builder.interruptable();
+        }
+        if (tickless)
+        {
+            builder = builder.tickless();
+        }
+        executor = builder.build();
+        starts = new CopyOnWriteArrayList<Long>();
+    }
+
+    @After
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testPauseFor() throws Exception
+    {
+        final long start = System.nanoTime();
+        executor.pauseFor(PAUSE, TimeUnit.MILLISECONDS);
+        final List<Future<?>> futures = submit(3);
+        Thread.sleep(PAUSE / 2);
+        assertTrue(starts.isEmpty());
+        awaitAll(futures);
+        assertTrue(starts.get(0) - start >= TimeUnit.MILLISECONDS.toNanos(PAUSE) - TOLERANCE);
+    }
+
+    @Test
+    public void testNoBurstAfterPause() throws Exception
+    {
+        // Executing before the pause lets a catching up executor fall behind its schedule
+        awaitAll(submit(1));
+        executor.pauseFor(PAUSE, TimeUnit.MILLISECONDS);
+        final List<Future<?>> futures = submit(5);
+        awaitAll(futures);
+        // Late executions are caught up a little but the missed executions are not burst
+        for (int i = 1; i < starts.size(); i++)
+        {
+            assertTrue(starts.get(i) - starts.get(i - 1) >= RATE_NANOS / 2);
+        }
+    }
+
+    @Test
+    public void testPauseAndResume() throws Exception
+    {
+        executor.pause();
+        final List<Future<?>> futures = submit(2);
+        Thread.sleep(PAUSE / 2);
+        assertTrue(starts.isEmpty());
+        final long resumed = System.nanoTime();
+        executor.resume();
+        awaitAll(futures);
+        // Executed as soon as the rate allows, not at the end of a timed pause
+        assertTrue(starts.get(0) - resumed < RATE_NANOS * 5);
+    }
+
+    @Test
+    public void testPauseUntil() throws Exception
+    {
+        final long start = System.nanoTime();
+        executor.pauseUntil(new Date(System.currentTimeMillis() + PAUSE));
+        awaitAll(submit(1));
+        assertTrue(starts.get(0) - start >= TimeUnit.MILLISECONDS.toNanos(PAUSE - 10L));
+    }
+
+    @Test
+    public void testLaterPauseKept() throws Exception
+    {
+        final long start = System.nanoTime();
+        executor.pauseFor(PAUSE, TimeUnit.MILLISECONDS);
+        executor.pauseFor(RATE, TimeUnit.MILLISECONDS);
+        awaitAll(submit(1));
+        assertTrue(starts.get(0) - start >= TimeUnit.MILLISECONDS.toNanos(PAUSE) - TOLERANCE);
+    }
+
+    @Test
+    public void testEstimatedWait()
+    {
+        executor.pauseFor(PAUSE, TimeUnit.MILLISECONDS);
+        assertTrue(executor.estimatedWait(TimeUnit.MILLISECONDS) >= PAUSE - RATE);
+        assertEquals(null, executor.trySubmit(new RecordingTask(), RATE, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testShutdownNowWhilePaused() throws Exception
+    {
+        executor.pause();
+        submit(2);
+        assertEquals(2, executor.shutdownNow().size());
+        assertTrue(executor.awaitTermination(PAUSE, TimeUnit.MILLISECONDS));
+        assertTrue(starts.isEmpty());
+    }
+
+    private List<Future<?>> submit(final int tasks)
+    {
+        final List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int i = 0; i < tasks; i++)
+        {
+            futures.add(executor.submit(new RecordingTask()));
+        }
+        return futures;
+    }
+
+    private static void awaitAll(final List<Future<?>> futures) throws Exception
+    {
+        for (final Future<?> future : futures)
+        {
+            future.get(PAUSE * 5, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Task that records when it starts.
+     */
+    private final class RecordingTask implements Runnable
+    {
+        @Override
+        public void run()
+        {
+            starts.add(System.nanoTime());
+        }
+    }
+}
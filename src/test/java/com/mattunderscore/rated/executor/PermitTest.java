@@ -0,0 +1,229 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Test suite for acquiring permits from a rated executor.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+@RunWith(Parameterized.class)
+public final class PermitTest
+{
+    private static final long RATE = 50L;
+    private static final long RATE_NANOS = TimeUnit.MILLISECONDS.toNanos(RATE);
+    // Allowance for the time taken to hand a permit to the waiting thread
+    private static final long ALLOWANCE = RATE_NANOS / 10;
+
+    private final boolean interruptable;
+    private IRatedExecutor executor;
+
+    private final Callable<Long> timestamp = new Callable<Long>()
+    {
+        @Override
+        public Long call()
+        {
+            return System.nanoTime();
+        }
+    };
+
+    public PermitTest(final boolean interruptable)
+    {
+        this.interruptable = interruptable;
+    }
+
+    /**
+     * Provide the internal executors to the JUnit runner to pass to the constructor.
+     * @return The collection of parameters
+     */
+    @Parameters
+    public static Collection<Object[]> data()
+    {
+        final Object[][] list = {
+            {Boolean.FALSE},
+            {Boolean.TRUE}
+        };
+        return Arrays.asList(list);
+    }
+
+    @Before
+    public void setUp()
+    {
+        // Late executions are not caught up so that the spacing is not reduced after one
+        final RatedExecutorBuilder builder = RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS)
+                .catchUpPolicy(CatchUpPolicy.reset());
+        executor = interruptable ? builder.interruptable().build() : builder.build();
+    }
+
+    @After
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testTryAcquire()
+    {
+        assertTrue(executor.tryAcquire());
+        assertFalse(executor.tryAcquire());
+    }
+
+    @Test
+    public void testTaskAfterPermit() throws Exception
+    {
+        executor.acquire();
+        final long acquired = System.nanoTime();
+        final long started = executor.submit(timestamp).get();
+        // The permit took an execution of the executor
+        assertTrue(started - acquired >= RATE_NANOS - ALLOWANCE);
+    }
+
+    @Test
+    public void testPermitAfterTask() throws Exception
+    {
+        final long started = executor.submit(timestamp).get();
+        assertFalse(executor.tryAcquire());
+        executor.acquire();
+        assertTrue(System.nanoTime() - started >= RATE_NANOS - ALLOWANCE);
+    }
+
+    @Test
+    public void testAcquireTimeout() throws InterruptedException
+    {
+        assertTrue(executor.acquire(0L, TimeUnit.MILLISECONDS));
+        final long start = System.nanoTime();
+        // The next permit is not expected within the timeout, fail without waiting
+        assertFalse(executor.acquire(RATE / 5, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start < RATE_NANOS / 5);
+        assertTrue(executor.acquire(RATE * 2, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start >= RATE_NANOS - ALLOWANCE);
+    }
+
+    @Test
+    public void testWeightedAcquire() throws Exception
+    {
+        final long start = System.nanoTime();
+        // The permits are granted at the time of the first
+        executor.acquire(3);
+        assertTrue(System.nanoTime() - start < RATE_NANOS);
+        // The next task waits for all of them
+        final long started = executor.submit(timestamp).get();
+        assertTrue(started - start >= 3 * RATE_NANOS - ALLOWANCE);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWeightedAcquireNone() throws InterruptedException
+    {
+        executor.acquire(0);
+    }
+
+    @Test
+    public void testInterruptedPermitRemoved() throws Exception
+    {
+        executor.acquire();
+        final long acquired = System.nanoTime();
+        Thread.currentThread().interrupt();
+        try
+        {
+            executor.acquire();
+            fail("Should have been interrupted");
+        }
+        catch (final InterruptedException e)
+        {
+        }
+        // The interrupted permit does not take the next execution
+        final long started = executor.submit(timestamp).get();
+        assertTrue(started - acquired < 2 * RATE_NANOS);
+    }
+
+    @Test
+    public void testPaused()
+    {
+        executor.pause();
+        assertFalse(executor.tryAcquire());
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void testShutdown() throws InterruptedException
+    {
+        executor.shutdown();
+        executor.acquire();
+    }
+
+    @Test
+    public void testShutdownNowRejectsWaiting() throws Exception
+    {
+        executor.acquire();
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<Throwable> thrown = new AtomicReference<Throwable>();
+        final Thread waiter = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    executor.acquire();
+                }
+                catch (final Throwable t)
+                {
+                    thrown.set(t);
+                }
+                finally
+                {
+                    done.countDown();
+                }
+            }
+        });
+        waiter.start();
+        Thread.sleep(RATE / 5);
+        // The queued permit is not returned as a task
+        assertEquals(0, executor.shutdownNow().size());
+        assertTrue(done.await(RATE, TimeUnit.MILLISECONDS));
+        assertTrue(thrown.get() instanceof RejectedExecutionException);
+    }
+}
@@ -0,0 +1,168 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+/**
+ * Test suite for the {@link RateLimiter}.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+public final class RateLimiterTest
+{
+    private static final long RATE = 50L;
+    private static final long RATE_NANOS = TimeUnit.MILLISECONDS.toNanos(RATE);
+
+    @Test
+    public void testTryAcquire()
+    {
+        final IRateLimiter limiter = RatedExecutors.rateLimiter(RATE, TimeUnit.MILLISECONDS);
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+    }
+
+    @Test
+    public void testTryAcquireAfterPeriod() throws InterruptedException
+    {
+        final IRateLimiter limiter = RatedExecutors.rateLimiter(RATE, TimeUnit.MILLISECONDS);
+        assertTrue(limiter.tryAcquire());
+        Thread.sleep(RATE + RATE / 5);
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    public void testAcquireSpacing() throws InterruptedException
+    {
+        final IRateLimiter limiter = RatedExecutors.rateLimiter(RATE, TimeUnit.MILLISECONDS);
+        final long start = System.nanoTime();
+        limiter.acquire();
+        for (int i = 1; i < 5; i++)
+        {
+            limiter.acquire();
+            // Each permit is at least a period after the previous permit
+            assertTrue(System.nanoTime() - start >= i * RATE_NANOS);
+        }
+    }
+
+    @Test
+    public void testWeightedAcquire() throws InterruptedException
+    {
+        final IRateLimiter limiter = RatedExecutors.rateLimiter(RATE / 5, TimeUnit.MILLISECONDS);
+        final long start = System.nanoTime();
+        // The permits are granted at the time of the first
+        limiter.acquire(5);
+        assertTrue(System.nanoTime() - start < RATE_NANOS);
+        // The next permit waits for all of them
+        limiter.acquire();
+        assertTrue(System.nanoTime() - start >= RATE_NANOS - TimeUnit.MILLISECONDS.toNanos(1L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWeightedAcquireNone() throws InterruptedException
+    {
+        RatedExecutors.rateLimiter(RATE, TimeUnit.MILLISECONDS).acquire(0);
+    }
+
+    @Test
+    public void testAcquireTimeout() throws InterruptedException
+    {
+        final IRateLimiter limiter = RatedExecutors.rateLimiter(RATE, TimeUnit.MILLISECONDS);
+        assertTrue(limiter.acquire(0L, TimeUnit.MILLISECONDS));
+        final long start = System.nanoTime();
+        // The next permit is not available within the timeout, fail without waiting
+        assertFalse(limiter.acquire(RATE / 5, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start < RATE_NANOS / 5);
+        assertTrue(limiter.acquire(RATE * 2, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start >= RATE_NANOS - TimeUnit.MILLISECONDS.toNanos(1L));
+    }
+
+    @Test
+    public void testConcurrentAcquire() throws InterruptedException
+    {
+        final IRateLimiter limiter = RatedExecutors.rateLimiter(RATE / 5, TimeUnit.MILLISECONDS);
+        final int threads = 4;
+        final int permits = 5;
+        final CountDownLatch done = new CountDownLatch(threads);
+        final AtomicBoolean failed = new AtomicBoolean(false);
+        final long start = System.nanoTime();
+        for (int i = 0; i < threads; i++)
+        {
+            new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        for (int j = 0; j < permits; j++)
+                        {
+                            limiter.acquire();
+                        }
+                    }
+                    catch (final InterruptedException e)
+                    {
+                        failed.set(true);
+                    }
+                    finally
+                    {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        assertTrue(done.await(5L, TimeUnit.SECONDS));
+        assertFalse(failed.get());
+        // The first permit is immediate, the rest are spaced by the period
+        final long minimum = (threads * permits - 1) * TimeUnit.MILLISECONDS.toNanos(RATE / 5);
+        assertTrue(System.nanoTime() - start >= minimum - TimeUnit.MILLISECONDS.toNanos(1L));
+    }
+
+    @Test
+    public void testInterrupted() throws InterruptedException
+    {
+        final IRateLimiter limiter = RatedExecutors.rateLimiter(RATE, TimeUnit.MILLISECONDS);
+        limiter.acquire();
+        Thread.currentThread().interrupt();
+        try
+        {
+            limiter.acquire();
+            fail("Should have been interrupted");
+        }
+        catch (final InterruptedException e)
+        {
+        }
+    }
+}
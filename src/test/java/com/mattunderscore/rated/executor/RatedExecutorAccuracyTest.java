@@ -27,6 +27,8 @@ package com.mattunderscore.rated.executor;
 
 import static org.junit.Assert.*;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.concurrent.Future;
@@ -37,55 +39,88 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameters;
 
-import com.mattunderscore.executor.stubs.CountingTask;
+import com.mattunderscore.executor.stubs.TimingTask;
 
 @RunWith(Parameterized.class)
 public final class RatedExecutorAccuracyTest
 {
     private static final long RUN = 10000L;
-    private static final long RATE = 10L;
+    private static final long SPIN = 50L;
 
     private final IRatedExecutor executor;
+    private final long rate;
+    private final TimeUnit unit;
+    private final boolean threaded;
 
-    public RatedExecutorAccuracyTest(final IRatedExecutor executor)
+    public RatedExecutorAccuracyTest(final IRatedExecutor executor, final long rate, final TimeUnit unit,
+            final boolean threaded)
     {
         this.executor = executor;
+        this.rate = rate;
+        this.unit = unit;
+        this.threaded = threaded;
     }
 
     @Parameters
     public static Collection<Object[]> data()
     {
         final Object[][] list = {
-            {RatedExecutors.ratedExecutor(RATE, TimeUnit.MILLISECONDS)}, // 0
-            {RatedExecutors.interruptableRatedExecutor(RATE, TimeUnit.MILLISECONDS)} // 1
+            {RatedExecutors.ratedExecutor(10L, TimeUnit.MILLISECONDS), 10L, TimeUnit.MILLISECONDS, false}, // 0
+            {RatedExecutors.interruptableRatedExecutor(10L, TimeUnit.MILLISECONDS), 10L, TimeUnit.MILLISECONDS, true}, // 1
+            {RatedExecutors.interruptableRatedExecutor(1L, TimeUnit.MILLISECONDS), 1L, TimeUnit.MILLISECONDS, true}, // 2
+            {RatedExecutors.preciseRatedExecutor(1L, TimeUnit.MILLISECONDS, SPIN, TimeUnit.MICROSECONDS), 1L, TimeUnit.MILLISECONDS, true}, // 3
+            {RatedExecutors.interruptableRatedExecutor(100L, TimeUnit.MICROSECONDS), 100L, TimeUnit.MICROSECONDS, true}, // 4
+            {RatedExecutors.preciseRatedExecutor(100L, TimeUnit.MICROSECONDS, SPIN, TimeUnit.MICROSECONDS), 100L, TimeUnit.MICROSECONDS, true} // 5
         };
         return Arrays.asList(list);
     }
 
     /**
-     * Test to ensure that there is not too much overhead or inaccuracy in the rate.
+     * Test to ensure that there is not too much overhead or inaccuracy in the rate. Reports the
+     * mean error of the interval between executions and the CPU time used by the executor.
      * 
      * @throws InterruptedException
      */
     @Test
     public void testAccuracy() throws InterruptedException
     {
-        final CountingTask task = new CountingTask();
+        final long rateInNanos = unit.toNanos(rate);
+        final TimingTask task = new TimingTask(rateInNanos);
         final Future<?> future = executor.schedule(task);
         final long start = System.nanoTime();
         TimeUnit.MILLISECONDS.sleep(RUN);
         final long end = System.nanoTime();
-        future.cancel(false);
+        final long cpuTime = cpuTime(task.thread);
+        while (!future.cancel(false))
+        {
+            Thread.yield();
+        }
+        final int count = task.count;
         final long timeSpent = end - start;
-        final long expectedNumber = (millisFromNanos(timeSpent) / RATE) + 1;
+        final long expectedNumber = (timeSpent / rateInNanos) + 1;
+        final long tolerance = Math.max(2L, expectedNumber / 1000L);
+        System.out.println("Period: " + rate + " " + unit);
         System.out.println("Expected: " + expectedNumber);
-        System.out.println("Actual: " + task.count);
-        assertTrue(task.count > (expectedNumber - 2));
-        assertTrue(task.count < (expectedNumber + 2));
+        System.out.println("Actual: " + count);
+        System.out.println("Mean interval error (ns): " + task.meanError());
+        System.out.println("CPU usage (%): " + (cpuTime * 100L / timeSpent));
+        assertTrue(count > (expectedNumber - tolerance));
+        assertTrue(count < (expectedNumber + tolerance));
+        if (threaded)
+        {
+            // Nothing is left to execute so the thread stops instead of waking each period
+            task.thread.join(100L);
+            assertFalse("Executor still running after cancel", task.thread.isAlive());
+        }
     }
 
-    private long millisFromNanos(final long nanos)
+    private long cpuTime(final Thread thread)
     {
-        return Math.round(nanos / 1000000.0);
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (thread == null || !bean.isThreadCpuTimeSupported())
+        {
+            return 0L;
+        }
+        return Math.max(0L, bean.getThreadCpuTime(thread.getId()));
     }
 }
@@ -0,0 +1,162 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mattunderscore.executor.stubs.CountingTask;
+import com.mattunderscore.executors.IRepeatingFuture;
+import com.mattunderscore.executors.IUniversalExecutor;
+
+/**
+ * Test suite for the {@link RatedExecutorGroup}.
+ * <P>
+ * Integration tests. Nothing is mocked.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+public final class RatedExecutorGroupTest
+{
+    private static final int THREADS = 2;
+    private static final int EXECUTORS = 6;
+    private static final long RATE = 50L;
+
+    private final AtomicInteger threadsCreated = new AtomicInteger();
+    private IRatedExecutorGroup group;
+
+    @Before
+    public void setUp()
+    {
+        group = RatedExecutors.ratedExecutorGroup(THREADS, new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                threadsCreated.incrementAndGet();
+                return new Thread(r);
+            }
+        });
+    }
+
+    @After
+    public void tearDown()
+    {
+        group.shutdown();
+    }
+
+    @Test
+    public void testSharedThreads() throws InterruptedException, ExecutionException
+    {
+        final List<IRatedExecutor> executors = new ArrayList<IRatedExecutor>();
+        for (int i = 0; i < EXECUTORS; i++)
+        {
+            executors.add(group.ratedExecutor(RATE, TimeUnit.MILLISECONDS));
+        }
+
+        for (int burst = 0; burst < 3; burst++)
+        {
+            final List<Future<?>> futures = new ArrayList<Future<?>>();
+            final CountingTask task = new CountingTask();
+            for (final IRatedExecutor executor : executors)
+            {
+                futures.add(executor.submit(task));
+            }
+            for (final Future<?> future : futures)
+            {
+                future.get();
+            }
+            assertEquals(EXECUTORS, task.count);
+            // Let the executors become idle
+            TimeUnit.MILLISECONDS.sleep(RATE * 3);
+        }
+        assertTrue("Too many threads created " + threadsCreated.get(),
+                threadsCreated.get() <= THREADS);
+    }
+
+    @Test
+    public void testIndependentRates() throws InterruptedException, ExecutionException
+    {
+        final IRatedExecutor executor0 = group.ratedExecutor(RATE, TimeUnit.MILLISECONDS);
+        final IRatedExecutor executor1 = group.ratedExecutor(RATE, TimeUnit.MILLISECONDS);
+        final CountingTask task0 = new CountingTask();
+        final CountingTask task1 = new CountingTask();
+
+        final long start = System.nanoTime();
+        final IRepeatingFuture<?> future0 = executor0.schedule(task0, 4);
+        final IRepeatingFuture<?> future1 = executor1.schedule(task1, 4);
+        future0.getResult(3);
+        future1.getResult(3);
+        final long elapsed = System.nanoTime() - start;
+
+        assertEquals(4, task0.count);
+        assertEquals(4, task1.count);
+        // Both executors run at their own rate at the same time, not one after another
+        assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(RATE * 3));
+        assertTrue(elapsed < TimeUnit.MILLISECONDS.toNanos(RATE * 6));
+    }
+
+    @Test
+    public void testSubmitAfterShutdown() throws InterruptedException
+    {
+        final IRatedExecutor executor = group.ratedExecutor(RATE, TimeUnit.MILLISECONDS);
+        group.shutdown();
+        try
+        {
+            executor.submit(new CountingTask());
+            fail("Task should be rejected");
+        }
+        catch (RejectedExecutionException e)
+        {
+        }
+        // The rejected task is not left in the queue to stop the executor terminating
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(RATE, TimeUnit.MILLISECONDS));
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void testSimpleExecuteAfterShutdown()
+    {
+        final IUniversalExecutor executor = group.simpleRatedExecutor(RATE, TimeUnit.MILLISECONDS);
+        group.shutdown();
+        executor.execute(new CountingTask());
+    }
+}
@@ -0,0 +1,224 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.mattunderscore.executor.stubs.TestException;
+import com.mattunderscore.executors.ICloseableIterator;
+import com.mattunderscore.executors.IMapper;
+import com.mattunderscore.executors.MappingException;
+
+/**
+ * Test suite for the {@link RatedMappingIterator}.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+public final class RatedMappingIteratorTest
+{
+    private static final int ITEMS = 20;
+    private static final int WINDOW = 4;
+
+    private final IMapper<Integer, Integer> doubler = new IMapper<Integer, Integer>()
+    {
+        @Override
+        public Integer map(Integer input)
+        {
+            return input * 2;
+        }
+    };
+
+    @Test
+    public void testOrdered()
+    {
+        final Iterator<Integer> results = RatedExecutors.map(new CountingIterator(ITEMS), doubler,
+                1L, TimeUnit.MILLISECONDS, WINDOW);
+        for (int i = 0; i < ITEMS; i++)
+        {
+            assertTrue(results.hasNext());
+            assertEquals(Integer.valueOf(i * 2), results.next());
+        }
+        assertFalse(results.hasNext());
+    }
+
+    @Test
+    public void testUnordered()
+    {
+        final Iterator<Integer> results = RatedExecutors.map(new CountingIterator(ITEMS), doubler,
+                RatedExecutors.ratedExecutor(1L, TimeUnit.MILLISECONDS), WINDOW, false);
+        final Set<Integer> seen = new HashSet<Integer>();
+        while (results.hasNext())
+        {
+            seen.add(results.next());
+        }
+        assertEquals(ITEMS, seen.size());
+        for (int i = 0; i < ITEMS; i++)
+        {
+            assertTrue(seen.contains(i * 2));
+        }
+    }
+
+    @Test
+    public void testWindow()
+    {
+        final CountingIterator source = new CountingIterator(ITEMS);
+        final Iterator<Integer> results = RatedExecutors.map(source, doubler, 1L,
+                TimeUnit.MILLISECONDS, WINDOW);
+        assertEquals(0, source.taken);
+        assertTrue(results.hasNext());
+        assertEquals(WINDOW, source.taken);
+        for (int i = 0; i < ITEMS / 2; i++)
+        {
+            results.next();
+            assertTrue(source.taken <= i + 1 + WINDOW);
+        }
+    }
+
+    @Test
+    public void testRate()
+    {
+        final long rate = 10L;
+        final Iterator<Integer> results = RatedExecutors.map(new CountingIterator(5), doubler,
+                rate, TimeUnit.MILLISECONDS, WINDOW);
+        final long start = System.nanoTime();
+        while (results.hasNext())
+        {
+            results.next();
+        }
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(rate * 4));
+    }
+
+    @Test
+    public void testMappingFails()
+    {
+        final Iterator<Integer> results = RatedExecutors.map(new CountingIterator(ITEMS),
+                new IMapper<Integer, Integer>()
+                {
+                    @Override
+                    public Integer map(Integer input)
+                    {
+                        if (input == 1)
+                        {
+                            throw new TestException();
+                        }
+                        return input;
+                    }
+                }, 1L, TimeUnit.MILLISECONDS, WINDOW);
+        assertEquals(Integer.valueOf(0), results.next());
+        try
+        {
+            results.next();
+            fail();
+        }
+        catch (MappingException e)
+        {
+            assertTrue(e.getCause() instanceof TestException);
+        }
+        assertEquals(Integer.valueOf(2), results.next());
+    }
+
+    @Test
+    public void testCloseShutsDownOwnedExecutor() throws InterruptedException
+    {
+        final long rate = 50L;
+        final IRatedExecutor executor = RatedExecutors.ratedExecutor(rate, TimeUnit.MILLISECONDS);
+        final CountingIterator source = new CountingIterator(ITEMS);
+        final ICloseableIterator<Integer> results = new RatedMappingIterator<Integer, Integer>(
+                source, doubler, executor, WINDOW, true, true);
+        assertEquals(Integer.valueOf(0), results.next());
+        results.close();
+        assertFalse(results.hasNext());
+        assertEquals(WINDOW + 1, source.taken);
+        // The items not yet mapped are cancelled so the executor terminates without mapping them
+        assertTrue(executor.awaitTermination(rate * 2, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testCloseUnordered()
+    {
+        final IRatedExecutor executor = RatedExecutors.ratedExecutor(50L, TimeUnit.MILLISECONDS);
+        final CountingIterator source = new CountingIterator(ITEMS);
+        final ICloseableIterator<Integer> results = RatedExecutors.map(source, doubler, executor,
+                WINDOW, false);
+        results.next();
+        results.close();
+        results.close();
+        assertFalse(results.hasNext());
+        assertEquals(WINDOW + 1, source.taken);
+        // The executor is not owned by the iterator
+        assertFalse(executor.isShutdown());
+        executor.shutdownNow();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyWindow()
+    {
+        RatedExecutors.map(new CountingIterator(ITEMS), doubler, 1L, TimeUnit.MILLISECONDS, 0);
+    }
+
+    /**
+     * Iterates over the integers from zero, counting the number taken.
+     */
+    private static final class CountingIterator implements Iterator<Integer>
+    {
+        private final int size;
+        private volatile int taken = 0;
+
+        public CountingIterator(final int size)
+        {
+            this.size = size;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return taken < size;
+        }
+
+        @Override
+        public Integer next()
+        {
+            return taken++;
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,282 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.mattunderscore.executor.stubs.TestException;
+import com.mattunderscore.executors.IMapper;
+import com.mattunderscore.executors.IProcessor;
+import com.mattunderscore.executors.IPublisher;
+import com.mattunderscore.executors.ISubscriber;
+import com.mattunderscore.executors.ISubscription;
+
+/**
+ * Test suite for the {@link RatedProcessor}.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+public final class RatedProcessorTest
+{
+    private static final long RATE = 20L;
+
+    private final IMapper<Integer, Integer> doubler = new IMapper<Integer, Integer>()
+    {
+        @Override
+        public Integer map(Integer input)
+        {
+            return input * 2;
+        }
+    };
+
+    @Test
+    public void testDemand() throws Exception
+    {
+        final ListPublisher upstream = new ListPublisher(1, 2, 3, 4);
+        final IProcessor<Integer, Integer> processor = RatedExecutors.ratedProcessor(1L,
+                TimeUnit.MILLISECONDS, doubler);
+        final RecordingSubscriber downstream = new RecordingSubscriber();
+        upstream.subscribe(processor);
+        processor.subscribe(downstream);
+
+        downstream.subscription.request(2L);
+        TimeUnit.MILLISECONDS.sleep(RATE * 2);
+        assertEquals(Arrays.asList(2, 4), downstream.items);
+        assertEquals(2L, upstream.requested.get());
+        assertFalse(downstream.done.await(0L, TimeUnit.MILLISECONDS));
+
+        downstream.subscription.request(10L);
+        assertTrue(downstream.done.await(1L, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(2, 4, 6, 8), downstream.items);
+        assertNull(downstream.error);
+    }
+
+    @Test
+    public void testRate() throws Exception
+    {
+        final ListPublisher upstream = new ListPublisher(1, 2, 3, 4, 5);
+        final IProcessor<Integer, Integer> processor = RatedExecutors.ratedProcessor(RATE,
+                TimeUnit.MILLISECONDS, doubler);
+        final RecordingSubscriber downstream = new RecordingSubscriber();
+        upstream.subscribe(processor);
+        processor.subscribe(downstream);
+
+        final long start = System.nanoTime();
+        downstream.subscription.request(Long.MAX_VALUE);
+        assertTrue(downstream.done.await(1L, TimeUnit.SECONDS));
+        final long elapsed = System.nanoTime() - start;
+        assertEquals(5, downstream.items.size());
+        assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(RATE * 4));
+    }
+
+    @Test
+    public void testMapperFails() throws Exception
+    {
+        final ListPublisher upstream = new ListPublisher(1, 2, 3);
+        final IProcessor<Integer, Integer> processor = RatedExecutors.ratedProcessor(1L,
+                TimeUnit.MILLISECONDS, new IMapper<Integer, Integer>()
+                {
+                    @Override
+                    public Integer map(Integer input)
+                    {
+                        if (input == 2)
+                        {
+                            throw new TestException();
+                        }
+                        return input;
+                    }
+                });
+        final RecordingSubscriber downstream = new RecordingSubscriber();
+        upstream.subscribe(processor);
+        processor.subscribe(downstream);
+
+        downstream.subscription.request(10L);
+        assertTrue(downstream.done.await(1L, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(1), downstream.items);
+        assertTrue(downstream.error instanceof TestException);
+        assertTrue(upstream.cancelled);
+    }
+
+    @Test
+    public void testUpstreamFails() throws Exception
+    {
+        final IProcessor<Integer, Integer> processor = RatedExecutors.ratedProcessor(1L,
+                TimeUnit.MILLISECONDS, doubler);
+        final RecordingSubscriber downstream = new RecordingSubscriber();
+        processor.subscribe(downstream);
+        processor.onSubscribe(new ListPublisher().new ListSubscription(processor));
+        processor.onError(new TestException());
+        assertTrue(downstream.done.await(1L, TimeUnit.SECONDS));
+        assertTrue(downstream.error instanceof TestException);
+    }
+
+    @Test
+    public void testOwnedExecutorShutDownOnComplete() throws Exception
+    {
+        final IRatedExecutor executor = RatedExecutors.ratedExecutor(1L, TimeUnit.MILLISECONDS);
+        final IProcessor<Integer, Integer> processor = new RatedProcessor<Integer, Integer>(
+                executor, doubler, true);
+        final ListPublisher upstream = new ListPublisher(1, 2);
+        final RecordingSubscriber downstream = new RecordingSubscriber();
+        upstream.subscribe(processor);
+        processor.subscribe(downstream);
+
+        downstream.subscription.request(Long.MAX_VALUE);
+        assertTrue(downstream.done.await(1L, TimeUnit.SECONDS));
+        assertTrue(executor.awaitTermination(1L, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testOwnedExecutorShutDownOnCancel() throws Exception
+    {
+        final IRatedExecutor executor = RatedExecutors.ratedExecutor(1L, TimeUnit.MILLISECONDS);
+        final IProcessor<Integer, Integer> processor = new RatedProcessor<Integer, Integer>(
+                executor, doubler, true);
+        final ListPublisher upstream = new ListPublisher(1, 2, 3);
+        final RecordingSubscriber downstream = new RecordingSubscriber();
+        upstream.subscribe(processor);
+        processor.subscribe(downstream);
+
+        downstream.subscription.request(1L);
+        downstream.subscription.cancel();
+        assertTrue(executor.awaitTermination(1L, TimeUnit.SECONDS));
+        assertTrue(upstream.cancelled);
+    }
+
+    @Test
+    public void testSecondSubscriber() throws Exception
+    {
+        final IProcessor<Integer, Integer> processor = RatedExecutors.ratedProcessor(1L,
+                TimeUnit.MILLISECONDS, doubler);
+        processor.subscribe(new RecordingSubscriber());
+        final RecordingSubscriber second = new RecordingSubscriber();
+        processor.subscribe(second);
+        assertTrue(second.done.await(0L, TimeUnit.MILLISECONDS));
+        assertTrue(second.error instanceof IllegalStateException);
+    }
+
+    /**
+     * Publishes the items of a list as they are requested.
+     */
+    private static final class ListPublisher implements IPublisher<Integer>
+    {
+        private final List<Integer> items;
+        private final AtomicLong requested = new AtomicLong();
+        private volatile boolean cancelled;
+
+        public ListPublisher(final Integer... items)
+        {
+            this.items = Arrays.asList(items);
+        }
+
+        @Override
+        public void subscribe(ISubscriber<? super Integer> subscriber)
+        {
+            subscriber.onSubscribe(new ListSubscription(subscriber));
+        }
+
+        private final class ListSubscription implements ISubscription
+        {
+            private final ISubscriber<? super Integer> subscriber;
+            private int index = 0;
+
+            public ListSubscription(final ISubscriber<? super Integer> subscriber)
+            {
+                this.subscriber = subscriber;
+            }
+
+            @Override
+            public synchronized void request(long n)
+            {
+                requested.addAndGet(n);
+                for (long i = 0; i < n && index < items.size(); i++)
+                {
+                    subscriber.onNext(items.get(index));
+                    index++;
+                }
+                if (index == items.size())
+                {
+                    subscriber.onComplete();
+                }
+            }
+
+            @Override
+            public void cancel()
+            {
+                cancelled = true;
+            }
+        }
+    }
+
+    /**
+     * Records the items received.
+     */
+    private static final class RecordingSubscriber implements ISubscriber<Integer>
+    {
+        private final List<Integer> items = new CopyOnWriteArrayList<Integer>();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile ISubscription subscription;
+        private volatile Throwable error;
+
+        @Override
+        public void onSubscribe(ISubscription subscription)
+        {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(Integer item)
+        {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable t)
+        {
+            error = t;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete()
+        {
+            done.countDown();
+        }
+    }
+}
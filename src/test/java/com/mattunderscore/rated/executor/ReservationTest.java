@@ -0,0 +1,248 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.mattunderscore.executor.stubs.NumberCallable;
+
+/**
+ * Test suite for reserving slots from a {@link RateLimiter} and a {@link RatedExecutor}.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+public final class ReservationTest
+{
+    private static final long RATE = 50L;
+    private static final long RATE_NANOS = TimeUnit.MILLISECONDS.toNanos(RATE);
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testReserveNone()
+    {
+        RatedExecutors.rateLimiter(RATE, TimeUnit.MILLISECONDS).reserve(0);
+    }
+
+    @Test
+    public void testSlotTimes()
+    {
+        final IRateLimiter limiter = RatedExecutors.rateLimiter(RATE, TimeUnit.MILLISECONDS);
+        final IReservation reservation = limiter.reserve(3);
+        assertEquals(3, reservation.size());
+        assertTrue(reservation.getDelay(0, TimeUnit.NANOSECONDS) <= 0L);
+        final long first = reservation.getDelay(0, TimeUnit.NANOSECONDS);
+        assertEquals(first + RATE_NANOS, reservation.getDelay(1, TimeUnit.NANOSECONDS), 1000000L);
+        assertEquals(first + 2 * RATE_NANOS, reservation.getDelay(2, TimeUnit.NANOSECONDS),
+                1000000L);
+        // The reserved slots are not available to other callers
+        assertFalse(limiter.tryAcquire());
+    }
+
+    @Test
+    public void testAwait() throws InterruptedException
+    {
+        final IRateLimiter limiter = RatedExecutors.rateLimiter(RATE, TimeUnit.MILLISECONDS);
+        final long start = System.nanoTime();
+        final IReservation reservation = limiter.reserve(2);
+        reservation.await(0);
+        reservation.await(1);
+        assertTrue(System.nanoTime() - start >= RATE_NANOS);
+        try
+        {
+            reservation.await(1);
+            fail("Slot should already be used");
+        }
+        catch (final IllegalStateException e)
+        {
+        }
+        assertFalse(reservation.release(1));
+    }
+
+    @Test
+    public void testBind() throws Exception
+    {
+        final ScheduledExecutorService service = Executors.newSingleThreadScheduledExecutor();
+        try
+        {
+            final IRateLimiter limiter = RatedExecutors.rateLimiter(RATE, TimeUnit.MILLISECONDS);
+            final long start = System.nanoTime();
+            final IReservation reservation = limiter.reserve(2);
+            final ScheduledFuture<Integer> future = reservation.bind(1, new NumberCallable(4),
+                    service);
+            assertEquals(Integer.valueOf(4), future.get(RATE * 4, TimeUnit.MILLISECONDS));
+            assertTrue(System.nanoTime() - start >= RATE_NANOS);
+        }
+        finally
+        {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    public void testReleasedSlotReused() throws InterruptedException
+    {
+        final IRateLimiter limiter = RatedExecutors.rateLimiter(RATE, TimeUnit.MILLISECONDS);
+        final IReservation reservation = limiter.reserve(4);
+        assertTrue(reservation.release(1));
+        assertFalse(reservation.release(1));
+        final long start = System.nanoTime();
+        // The released slot is a period away, the next free permit is four periods away
+        assertTrue(limiter.acquire(RATE * 2, TimeUnit.MILLISECONDS));
+        final long waited = System.nanoTime() - start;
+        assertTrue(waited < 2 * RATE_NANOS);
+        // The released slot has been taken
+        assertFalse(limiter.acquire(RATE * 2, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testReleaseAll()
+    {
+        final IRateLimiter limiter = RatedExecutors.rateLimiter(RATE, TimeUnit.MILLISECONDS);
+        final IReservation reservation = limiter.reserve(3);
+        assertTrue(reservation.release(2));
+        assertEquals(2, reservation.releaseAll());
+        assertEquals(0, reservation.releaseAll());
+        // The first slot was due now and is taken by the next caller
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    public void testExecutorSlotsTakeExecutions() throws Exception
+    {
+        final IRatedExecutor executor = RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS)
+                .catchUpPolicy(CatchUpPolicy.reset()).build();
+        try
+        {
+            final long start = System.nanoTime();
+            final IReservation reservation = executor.reserve(2);
+            assertEquals(2, reservation.size());
+            assertEquals(reservation.getDelay(0, TimeUnit.NANOSECONDS) + RATE_NANOS,
+                    reservation.getDelay(1, TimeUnit.NANOSECONDS), 1000000L);
+            // The reserved slots are not available to permits or tasks
+            assertFalse(executor.tryAcquire());
+            final Integer result = executor.submit(new NumberCallable(3)).get();
+            assertEquals(Integer.valueOf(3), result);
+            assertTrue(System.nanoTime() - start >= 2 * RATE_NANOS);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testExecutorAwait() throws InterruptedException
+    {
+        final IRatedExecutor executor = RatedExecutors.ratedExecutor(RATE, TimeUnit.MILLISECONDS);
+        try
+        {
+            final long start = System.nanoTime();
+            final IReservation reservation = executor.reserve(2);
+            reservation.await(0);
+            reservation.await(1);
+            assertTrue(System.nanoTime() - start >= RATE_NANOS - 1000000L);
+            // Once reached the time of a slot is fixed
+            assertTrue(reservation.getDelay(1, TimeUnit.NANOSECONDS) <= 0L);
+            assertFalse(reservation.release(1));
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testExecutorBind() throws Exception
+    {
+        final IRatedExecutor executor = RatedExecutors.ratedExecutor(RATE, TimeUnit.MILLISECONDS);
+        final ScheduledExecutorService service = Executors.newSingleThreadScheduledExecutor();
+        try
+        {
+            final long start = System.nanoTime();
+            final IReservation reservation = executor.reserve(2);
+            final ScheduledFuture<Integer> future = reservation.bind(1, new NumberCallable(4),
+                    service);
+            assertEquals(Integer.valueOf(4), future.get(RATE * 4, TimeUnit.MILLISECONDS));
+            assertTrue(System.nanoTime() - start >= RATE_NANOS - 1000000L);
+        }
+        finally
+        {
+            service.shutdown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testExecutorReleaseMovesTasksUp() throws Exception
+    {
+        final IRatedExecutor executor = RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS)
+                .catchUpPolicy(CatchUpPolicy.reset()).build();
+        try
+        {
+            final long start = System.nanoTime();
+            final IReservation reservation = executor.reserve(4);
+            assertEquals(4, reservation.releaseAll());
+            assertEquals(0, reservation.releaseAll());
+            // The released slots do not hold up the task
+            executor.submit(new NumberCallable(1)).get();
+            assertTrue(System.nanoTime() - start < 2 * RATE_NANOS);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testExecutorShutdownNowCancelsBound() throws Exception
+    {
+        final IRatedExecutor executor = RatedExecutors.ratedExecutor(RATE, TimeUnit.MILLISECONDS);
+        final ScheduledExecutorService service = Executors.newSingleThreadScheduledExecutor();
+        try
+        {
+            final IReservation reservation = executor.reserve(3);
+            final ScheduledFuture<Integer> future = reservation.bind(2, new NumberCallable(4),
+                    service);
+            // The slots are not returned as tasks
+            assertEquals(0, executor.shutdownNow().size());
+            assertTrue(future.isCancelled());
+        }
+        finally
+        {
+            service.shutdown();
+        }
+    }
+}
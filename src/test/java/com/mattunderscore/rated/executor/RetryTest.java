@@ -0,0 +1,278 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test suite for tasks submitted with a {@link RetryPolicy}.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+public final class RetryTest
+{
+    private static final long RATE = 20L;
+
+    private IRatedExecutor executor;
+
+    @Before
+    public void setUp()
+    {
+        executor = RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS)
+                .catchUpPolicy(CatchUpPolicy.reset()).build();
+    }
+
+    @After
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testSucceedsAfterRetries() throws Exception
+    {
+        final FailingTask task = new FailingTask("a", 2, new IOException());
+        final Future<String> future = executor.submit(task, RetryPolicy.maxAttempts(3));
+        assertEquals("a", future.get(RATE * 10, TimeUnit.MILLISECONDS));
+        assertEquals(3, task.attempts.get());
+    }
+
+    @Test
+    public void testAttemptsExhausted() throws Exception
+    {
+        final IOException exception = new IOException();
+        final FailingTask task = new FailingTask("a", 5, exception);
+        final Future<String> future = executor.submit(task, RetryPolicy.maxAttempts(3));
+        try
+        {
+            future.get(RATE * 10, TimeUnit.MILLISECONDS);
+            fail("Should have failed");
+        }
+        catch (final ExecutionException e)
+        {
+            assertSame(exception, e.getCause());
+        }
+        assertEquals(3, task.attempts.get());
+    }
+
+    @Test
+    public void testNotRetryable() throws Exception
+    {
+        final FailingTask task = new FailingTask("a", 5, new IllegalStateException());
+        final Future<String> future = executor.submit(task,
+                RetryPolicy.maxAttempts(3).retryOn(IOException.class));
+        try
+        {
+            future.get(RATE * 10, TimeUnit.MILLISECONDS);
+            fail("Should have failed");
+        }
+        catch (final ExecutionException e)
+        {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(1, task.attempts.get());
+    }
+
+    @Test
+    public void testRetriedAheadOfQueue() throws Exception
+    {
+        final List<String> executions = new CopyOnWriteArrayList<String>();
+        final Future<String> future = executor.submit(new FailingTask("a", 1, new IOException(),
+                executions), RetryPolicy.maxAttempts(2));
+        final Future<String> b = executor.submit(new FailingTask("b", 0, null, executions));
+        final Future<String> c = executor.submit(new FailingTask("c", 0, null, executions));
+        future.get(RATE * 10, TimeUnit.MILLISECONDS);
+        b.get(RATE * 10, TimeUnit.MILLISECONDS);
+        c.get(RATE * 10, TimeUnit.MILLISECONDS);
+        // The retry takes the next execution instead of waiting behind the queued tasks
+        assertEquals(Arrays.asList("a", "a", "b", "c"), executions);
+    }
+
+    @Test
+    public void testBackoff() throws Exception
+    {
+        final List<String> executions = new CopyOnWriteArrayList<String>();
+        final long backoff = RATE * 5;
+        final FailingTask task = new FailingTask("a", 1, new IOException(), executions);
+        final Future<String> future = executor.submit(task,
+                RetryPolicy.maxAttempts(2).backoff(backoff, backoff, TimeUnit.MILLISECONDS));
+        final Future<String> b = executor.submit(new FailingTask("b", 0, null, executions));
+        final Future<String> c = executor.submit(new FailingTask("c", 0, null, executions));
+        future.get(RATE * 20, TimeUnit.MILLISECONDS);
+        // The queued tasks take the executions during the backoff
+        assertEquals(Arrays.asList("a", "b", "c", "a"), executions);
+        assertTrue(b.isDone() && c.isDone());
+        assertTrue(task.lastAttempt - task.firstAttempt >= TimeUnit.MILLISECONDS.toNanos(backoff));
+    }
+
+    @Test
+    public void testCancelledDuringBackoff() throws Exception
+    {
+        final FailingTask task = new FailingTask("a", 5, new IOException());
+        final Future<String> future = executor.submit(task,
+                RetryPolicy.maxAttempts(3).backoff(RATE * 5, RATE * 5, TimeUnit.MILLISECONDS));
+        Thread.sleep(RATE * 2);
+        assertTrue(future.cancel(false));
+        Thread.sleep(RATE * 8);
+        assertEquals(1, task.attempts.get());
+    }
+
+    @Test
+    public void testRetryRefusedAfterShutdown() throws Exception
+    {
+        final IOException exception = new IOException();
+        final AtomicInteger attempts = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch shutdown = new CountDownLatch(1);
+        final Future<String> future = executor.submit(new Callable<String>()
+        {
+            @Override
+            public String call() throws Exception
+            {
+                attempts.incrementAndGet();
+                started.countDown();
+                // Fail only once the executor has been shut down
+                shutdown.await();
+                throw exception;
+            }
+        }, RetryPolicy.maxAttempts(3).backoff(RATE, RATE, TimeUnit.MILLISECONDS));
+        assertTrue(started.await(RATE * 10, TimeUnit.MILLISECONDS));
+        executor.shutdown();
+        shutdown.countDown();
+        try
+        {
+            future.get(RATE * 10, TimeUnit.MILLISECONDS);
+            fail("Should have failed");
+        }
+        catch (final ExecutionException e)
+        {
+            assertSame(exception, e.getCause());
+        }
+        assertEquals(1, attempts.get());
+        assertTrue(executor.awaitTermination(RATE * 10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testDelay()
+    {
+        final RetryPolicy policy = RetryPolicy.maxAttempts(5).backoff(10L, 50L,
+                TimeUnit.NANOSECONDS);
+        assertEquals(10L, policy.delay(1));
+        assertEquals(20L, policy.delay(2));
+        assertEquals(40L, policy.delay(3));
+        assertEquals(50L, policy.delay(4));
+        assertEquals(0L, RetryPolicy.maxAttempts(5).delay(3));
+    }
+
+    @Test
+    public void testRetryOnTypes()
+    {
+        final RetryPolicy policy = RetryPolicy.maxAttempts(3).retryOn(
+                Arrays.asList(IOException.class, IllegalStateException.class));
+        assertTrue(policy.shouldRetry(1, new FileNotFoundException()));
+        assertTrue(policy.shouldRetry(1, new IllegalStateException()));
+        assertFalse(policy.shouldRetry(1, new IllegalArgumentException()));
+        assertFalse(policy.shouldRetry(3, new IOException()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoRetryableTypes()
+    {
+        RetryPolicy.maxAttempts(3).retryOn(Collections.<Class<? extends Throwable>>emptyList());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoAttempts()
+    {
+        RetryPolicy.maxAttempts(0);
+    }
+
+    /**
+     * Task that fails a number of times before returning a value.
+     */
+    private static final class FailingTask implements Callable<String>
+    {
+        private final String value;
+        private final int failures;
+        private final Exception exception;
+        private final List<String> executions;
+        private final AtomicInteger attempts = new AtomicInteger();
+        private volatile long firstAttempt;
+        private volatile long lastAttempt;
+
+        public FailingTask(final String value, final int failures, final Exception exception)
+        {
+            this(value, failures, exception, new CopyOnWriteArrayList<String>());
+        }
+
+        public FailingTask(final String value, final int failures, final Exception exception,
+                final List<String> executions)
+        {
+            this.value = value;
+            this.failures = failures;
+            this.exception = exception;
+            this.executions = executions;
+        }
+
+        @Override
+        public String call() throws Exception
+        {
+            lastAttempt = System.nanoTime();
+            if (attempts.getAndIncrement() == 0)
+            {
+                firstAttempt = lastAttempt;
+            }
+            executions.add(value);
+            if (attempts.get() <= failures)
+            {
+                throw exception;
+            }
+            return value;
+        }
+    }
+}
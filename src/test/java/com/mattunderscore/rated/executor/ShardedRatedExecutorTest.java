@@ -0,0 +1,292 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test suite for the {@link ShardedRatedExecutor}.
+ * <P>
+ * Integration tests. Nothing is mocked.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+public final class ShardedRatedExecutorTest
+{
+    private static final int LANES = 4;
+    private static final long RATE = 10L;
+    private static final int TASKS = 40;
+
+    private IShardedRatedExecutor executor;
+
+    @Before
+    public void setUp()
+    {
+        executor = RatedExecutors.shardedRatedExecutor(RATE, TimeUnit.MILLISECONDS, LANES);
+    }
+
+    @After
+    public void tearDown()
+    {
+        executor.shutdown();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoLanes()
+    {
+        RatedExecutors.shardedRatedExecutor(RATE, TimeUnit.MILLISECONDS, 0);
+    }
+
+    @Test
+    public void testLanes()
+    {
+        assertEquals(LANES, executor.lanes());
+    }
+
+    @Test
+    public void testAggregateRate() throws InterruptedException
+    {
+        final CountDownLatch latch = new CountDownLatch(TASKS);
+        final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+        final long start = System.nanoTime();
+        for (int i = 0; i < TASKS; i++)
+        {
+            executor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    threads.add(Thread.currentThread());
+                    latch.countDown();
+                }
+            });
+        }
+        assertTrue(latch.await(TASKS * RATE * 4, TimeUnit.MILLISECONDS));
+        final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        // Each lane executes a quarter of the tasks at four times the rate
+        assertTrue("Too fast: " + elapsed, elapsed >= (TASKS / LANES - 1) * RATE * LANES - RATE);
+        assertEquals(LANES, threads.size());
+    }
+
+    @Test
+    public void testStaggeredLanes() throws InterruptedException
+    {
+        final CountDownLatch latch = new CountDownLatch(LANES);
+        final List<Long> times = Collections.synchronizedList(new ArrayList<Long>());
+        final long start = System.nanoTime();
+        for (int i = 0; i < LANES; i++)
+        {
+            executor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    times.add(System.nanoTime());
+                    latch.countDown();
+                }
+            });
+        }
+        assertTrue(latch.await(RATE * LANES * 4, TimeUnit.MILLISECONDS));
+        // The first executions of the lanes are spread across the period of a lane
+        final long period = TimeUnit.MILLISECONDS.toNanos(RATE);
+        Collections.sort(times);
+        for (int i = 1; i < LANES; i++)
+        {
+            final long offset = times.get(i) - start;
+            assertTrue("Lane " + i + " too early: " + offset, offset > i * period * 9 / 10);
+        }
+    }
+
+    @Test
+    public void testTicklessLanes() throws InterruptedException
+    {
+        final IShardedRatedExecutor tickless = RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS)
+                .tickless().keepAlive(TASKS * RATE * LANES, TimeUnit.MILLISECONDS)
+                .buildSharded(LANES);
+        try
+        {
+            final CountDownLatch latch = new CountDownLatch(TASKS);
+            final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+            for (int i = 0; i < TASKS; i++)
+            {
+                tickless.execute(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        threads.add(Thread.currentThread());
+                        latch.countDown();
+                    }
+                });
+            }
+            assertTrue(latch.await(TASKS * RATE * 4, TimeUnit.MILLISECONDS));
+            // The keep alive outlasts the gaps so each lane keeps its thread
+            assertEquals(LANES, threads.size());
+        }
+        finally
+        {
+            tickless.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNoCircuitBreaker()
+    {
+        RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS)
+                .circuitBreaker(CircuitBreaker.failureRate(0.5, 4, RATE, TimeUnit.MILLISECONDS))
+                .buildSharded(LANES);
+    }
+
+    @Test
+    public void testKeyOrder() throws InterruptedException
+    {
+        final CountDownLatch latch = new CountDownLatch(TASKS / 2);
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+        final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+        for (int i = 0; i < TASKS / 2; i++)
+        {
+            final int index = i;
+            executor.execute("key", new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    order.add(index);
+                    threads.add(Thread.currentThread());
+                    latch.countDown();
+                }
+            });
+        }
+        assertTrue(latch.await(TASKS * RATE * LANES, TimeUnit.MILLISECONDS));
+        for (int i = 0; i < TASKS / 2; i++)
+        {
+            assertEquals(Integer.valueOf(i), order.get(i));
+        }
+        assertEquals(1, threads.size());
+    }
+
+    @Test
+    public void testStealFromBlockedLane() throws InterruptedException
+    {
+        final CountDownLatch blocking = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        executor.execute("key", new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                blocking.countDown();
+                try
+                {
+                    release.await();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        assertTrue(blocking.await(RATE * 10, TimeUnit.MILLISECONDS));
+        // Some of the tasks are dealt to the blocked lane
+        final CountDownLatch latch = new CountDownLatch(LANES * 2);
+        for (int i = 0; i < LANES * 2; i++)
+        {
+            executor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    latch.countDown();
+                }
+            });
+        }
+        try
+        {
+            assertTrue(latch.await(TASKS * RATE * LANES, TimeUnit.MILLISECONDS));
+        }
+        finally
+        {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testShutdown() throws InterruptedException
+    {
+        final CountDownLatch latch = new CountDownLatch(LANES * 2);
+        for (int i = 0; i < LANES * 2; i++)
+        {
+            executor.execute(i, new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    latch.countDown();
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(TASKS * RATE * LANES, TimeUnit.MILLISECONDS));
+        assertTrue(executor.isTerminated());
+        assertEquals(0L, latch.getCount());
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void testRejectedAfterShutdown()
+    {
+        executor.shutdown();
+        executor.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+            }
+        });
+    }
+
+    @Test
+    public void testNotTerminatedBeforeShutdown() throws InterruptedException
+    {
+        assertFalse(executor.isTerminated());
+        assertFalse(executor.awaitTermination(RATE, TimeUnit.MILLISECONDS));
+    }
+}
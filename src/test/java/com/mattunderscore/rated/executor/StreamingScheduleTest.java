@@ -0,0 +1,285 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.mattunderscore.executor.stubs.CountingCallable;
+import com.mattunderscore.executor.stubs.ExceptionCallable;
+import com.mattunderscore.executor.stubs.TestException;
+import com.mattunderscore.executors.IPublisher;
+import com.mattunderscore.executors.IResultConsumer;
+import com.mattunderscore.executors.ISubscriber;
+import com.mattunderscore.executors.ISubscription;
+
+/**
+ * Test suite for scheduling a {@link java.util.concurrent.Callable} with an
+ * {@link IResultConsumer} or an {@link ISubscriber}.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+public final class StreamingScheduleTest
+{
+    private static final long RATE = 10L;
+
+    @Test
+    public void testResultsStreamed() throws Exception
+    {
+        final IRatedExecutor executor = RatedExecutors.ratedExecutor(RATE, TimeUnit.MILLISECONDS);
+        final RecordingConsumer consumer = new RecordingConsumer(5);
+        final Future<?> future = executor.schedule(new CountingCallable(), consumer);
+        assertTrue(consumer.latch.await(1L, TimeUnit.SECONDS));
+        assertFalse(future.isDone());
+        while (!future.cancel(false))
+        {
+        }
+        assertTrue(future.isDone());
+        for (int i = 0; i < 5; i++)
+        {
+            assertEquals(Integer.valueOf(i + 1), consumer.results.get(i));
+        }
+    }
+
+    @Test
+    public void testExceptionsStreamed() throws Exception
+    {
+        final IRatedExecutor executor = RatedExecutors.ratedExecutor(RATE, TimeUnit.MILLISECONDS);
+        final RecordingConsumer consumer = new RecordingConsumer(2);
+        final Future<?> future = executor.schedule(new ExceptionCallable(), consumer);
+        assertTrue(consumer.latch.await(1L, TimeUnit.SECONDS));
+        assertFalse(future.isDone());
+        while (!future.cancel(false))
+        {
+        }
+        assertTrue(consumer.results.get(0) instanceof TestException);
+    }
+
+    @Test
+    public void testConsumerEndsStream() throws Exception
+    {
+        final IRatedExecutor executor = RatedExecutors.ratedExecutor(RATE, TimeUnit.MILLISECONDS);
+        final CountingCallable task = new CountingCallable();
+        final Future<?> future = executor.schedule(task, new IResultConsumer<Integer>()
+        {
+            @Override
+            public void onResult(Integer result)
+            {
+                if (result == 3)
+                {
+                    throw new TestException();
+                }
+            }
+
+            @Override
+            public void onThrowable(Throwable t)
+            {
+            }
+        });
+        try
+        {
+            future.get(1L, TimeUnit.SECONDS);
+            fail();
+        }
+        catch (ExecutionException e)
+        {
+            assertTrue(e.getCause() instanceof TestException);
+        }
+        assertTrue(future.isDone());
+        TimeUnit.MILLISECONDS.sleep(RATE * 3);
+        assertEquals(3, task.count);
+    }
+
+    @Test
+    public void testSlowConsumer() throws Exception
+    {
+        final IRatedExecutor executor = RatedExecutors.ratedExecutor(1L, TimeUnit.MILLISECONDS);
+        final CountingCallable task = new CountingCallable();
+        final Future<?> future = executor.schedule(task, new IResultConsumer<Integer>()
+        {
+            @Override
+            public void onResult(Integer result)
+            {
+                try
+                {
+                    TimeUnit.MILLISECONDS.sleep(RATE);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void onThrowable(Throwable t)
+            {
+            }
+        });
+        TimeUnit.MILLISECONDS.sleep(RATE * 10);
+        final int count = task.count;
+        future.cancel(true);
+        // The consumer limits the rate to one every ten milliseconds
+        assertTrue(count <= 12);
+    }
+
+    @Test
+    public void testPublishedOnDemand() throws Exception
+    {
+        final IRatedExecutor executor = RatedExecutors.ratedExecutor(RATE, TimeUnit.MILLISECONDS);
+        final CountingCallable task = new CountingCallable();
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        executor.schedule(task).subscribe(subscriber);
+        // Nothing is executed before the first request
+        TimeUnit.MILLISECONDS.sleep(RATE * 3);
+        assertEquals(0, task.count);
+        subscriber.subscription.request(3L);
+        TimeUnit.MILLISECONDS.sleep(RATE * 6);
+        // The task stops running while there is no outstanding demand
+        assertEquals(3, task.count);
+        assertEquals(3, subscriber.results.size());
+        subscriber.subscription.request(2L);
+        TimeUnit.MILLISECONDS.sleep(RATE * 5);
+        assertEquals(5, task.count);
+        for (int i = 0; i < 5; i++)
+        {
+            assertEquals(Integer.valueOf(i + 1), subscriber.results.get(i));
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    public void testPublisherCancelled() throws Exception
+    {
+        final IRatedExecutor executor = RatedExecutors.ratedExecutor(RATE, TimeUnit.MILLISECONDS);
+        final CountingCallable task = new CountingCallable();
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        executor.schedule(task).subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        TimeUnit.MILLISECONDS.sleep(RATE * 3);
+        subscriber.subscription.cancel();
+        final int count = task.count;
+        TimeUnit.MILLISECONDS.sleep(RATE * 3);
+        // At most an execution in progress when cancelled completes
+        assertTrue(task.count <= count + 1);
+        assertTrue(subscriber.error == null);
+        executor.shutdown();
+    }
+
+    @Test
+    public void testPublisherFails() throws Exception
+    {
+        final IRatedExecutor executor = RatedExecutors.ratedExecutor(RATE, TimeUnit.MILLISECONDS);
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        executor.schedule(new ExceptionCallable()).subscribe(subscriber);
+        subscriber.subscription.request(5L);
+        assertTrue(subscriber.terminated.await(1L, TimeUnit.SECONDS));
+        assertTrue(subscriber.error instanceof TestException);
+        assertEquals(0, subscriber.results.size());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testPublisherSingleSubscriber() throws Exception
+    {
+        final IRatedExecutor executor = RatedExecutors.ratedExecutor(RATE, TimeUnit.MILLISECONDS);
+        final IPublisher<Integer> publisher = executor.schedule(new CountingCallable());
+        publisher.subscribe(new RecordingSubscriber());
+        final RecordingSubscriber second = new RecordingSubscriber();
+        publisher.subscribe(second);
+        assertTrue(second.error instanceof IllegalStateException);
+        executor.shutdown();
+    }
+
+    private static final class RecordingSubscriber implements ISubscriber<Object>
+    {
+        private final List<Object> results = new CopyOnWriteArrayList<Object>();
+        private final CountDownLatch terminated = new CountDownLatch(1);
+        private volatile ISubscription subscription;
+        private volatile Throwable error;
+
+        @Override
+        public void onSubscribe(ISubscription newSubscription)
+        {
+            subscription = newSubscription;
+        }
+
+        @Override
+        public void onNext(Object item)
+        {
+            results.add(item);
+        }
+
+        @Override
+        public void onError(Throwable t)
+        {
+            error = t;
+            terminated.countDown();
+        }
+
+        @Override
+        public void onComplete()
+        {
+            terminated.countDown();
+        }
+    }
+
+    private static final class RecordingConsumer implements IResultConsumer<Object>
+    {
+        private final List<Object> results = new CopyOnWriteArrayList<Object>();
+        private final CountDownLatch latch;
+
+        public RecordingConsumer(final int count)
+        {
+            latch = new CountDownLatch(count);
+        }
+
+        @Override
+        public void onResult(Object result)
+        {
+            results.add(result);
+            latch.countDown();
+        }
+
+        @Override
+        public void onThrowable(Throwable t)
+        {
+            results.add(t);
+            latch.countDown();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test suite for the throttled streams and channels.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+public final class ThrottleTest
+{
+    // Ten bytes a millisecond
+    private static final long RATE = 100L;
+    private static final int CHUNK = 100;
+    private static final int LENGTH = 1000;
+    // The permits of the last chunk are paid for by the next transfer
+    private static final long MINIMUM = TimeUnit.MICROSECONDS.toNanos(RATE * (LENGTH - CHUNK))
+            - TimeUnit.MILLISECONDS.toNanos(1L);
+
+    private final byte[] data = new byte[LENGTH];
+    private IRateLimiter limiter;
+
+    @Before
+    public void setUp()
+    {
+        for (int i = 0; i < LENGTH; i++)
+        {
+            data[i] = (byte) i;
+        }
+        limiter = RatedExecutors.rateLimiter(RATE, TimeUnit.MICROSECONDS);
+    }
+
+    @Test
+    public void testInputStream() throws IOException
+    {
+        final InputStream in = RatedExecutors.throttle(new ByteArrayInputStream(data), limiter,
+                CHUNK);
+        final byte[] buffer = new byte[LENGTH];
+        final long start = System.nanoTime();
+        int read = 0;
+        while (read < LENGTH)
+        {
+            final int bytes = in.read(buffer, read, LENGTH - read);
+            // Each read is limited to a chunk
+            assertTrue(bytes > 0 && bytes <= CHUNK);
+            read = read + bytes;
+        }
+        assertTrue(System.nanoTime() - start >= MINIMUM);
+        assertEquals(-1, in.read(buffer, 0, LENGTH));
+        assertArrayEquals(data, buffer);
+    }
+
+    @Test
+    public void testOutputStream() throws IOException
+    {
+        final ByteArrayOutputStream target = new ByteArrayOutputStream();
+        final OutputStream out = RatedExecutors.throttle(target, limiter, CHUNK);
+        final long start = System.nanoTime();
+        out.write(data);
+        assertTrue(System.nanoTime() - start >= MINIMUM);
+        assertArrayEquals(data, target.toByteArray());
+    }
+
+    @Test
+    public void testReadableChannel() throws IOException
+    {
+        final ReadableByteChannel channel = RatedExecutors.throttle(
+                Channels.newChannel(new ByteArrayInputStream(data)), limiter, CHUNK);
+        final ByteBuffer buffer = ByteBuffer.allocate(LENGTH);
+        final long start = System.nanoTime();
+        while (buffer.hasRemaining())
+        {
+            final int bytes = channel.read(buffer);
+            assertTrue(bytes > 0 && bytes <= CHUNK);
+            // The limit of the buffer is restored
+            assertEquals(LENGTH, buffer.limit());
+        }
+        assertTrue(System.nanoTime() - start >= MINIMUM);
+        assertArrayEquals(data, buffer.array());
+    }
+
+    @Test
+    public void testWritableChannel() throws IOException
+    {
+        final ByteArrayOutputStream target = new ByteArrayOutputStream();
+        final WritableByteChannel channel = RatedExecutors.throttle(Channels.newChannel(target),
+                limiter, CHUNK);
+        final long start = System.nanoTime();
+        // The whole buffer is written by one call
+        assertEquals(LENGTH, channel.write(ByteBuffer.wrap(data)));
+        assertTrue(System.nanoTime() - start >= MINIMUM);
+        assertArrayEquals(data, target.toByteArray());
+    }
+
+    @Test
+    public void testBytesPerUnitOutputStream() throws IOException
+    {
+        final ByteArrayOutputStream target = new ByteArrayOutputStream();
+        // Ten bytes a millisecond
+        final OutputStream out = RatedExecutors.throttle(target, 10000L, TimeUnit.SECONDS, CHUNK);
+        final long start = System.nanoTime();
+        out.write(data);
+        assertTrue(System.nanoTime() - start >= MINIMUM);
+        assertArrayEquals(data, target.toByteArray());
+    }
+
+    @Test
+    public void testBytesPerUnitHighRate() throws IOException
+    {
+        // Two bytes a microsecond, each permit pays for more than one byte
+        final long bytes = 2000000L;
+        final int length = 200000;
+        final int chunk = 1000;
+        final ByteArrayOutputStream target = new ByteArrayOutputStream();
+        final WritableByteChannel channel = RatedExecutors.throttle(Channels.newChannel(target),
+                bytes, TimeUnit.SECONDS, chunk);
+        final long start = System.nanoTime();
+        assertEquals(length, channel.write(ByteBuffer.allocate(length)));
+        final long minimum = TimeUnit.SECONDS.toNanos(length - chunk) / bytes
+                - TimeUnit.MILLISECONDS.toNanos(1L);
+        assertTrue(System.nanoTime() - start >= minimum);
+        assertEquals(length, target.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidByteRate()
+    {
+        RatedExecutors.throttle(new ByteArrayOutputStream(), 0L, TimeUnit.SECONDS, CHUNK);
+    }
+
+    @Test
+    public void testInterruptedWrite() throws IOException
+    {
+        final ByteArrayOutputStream target = new ByteArrayOutputStream();
+        final OutputStream out = RatedExecutors.throttle(target, limiter, CHUNK);
+        // Use the permits available now so the first chunk waits
+        out.write(data, 0, CHUNK);
+        Thread.currentThread().interrupt();
+        try
+        {
+            out.write(data);
+            fail("Should have been interrupted");
+        }
+        catch (final InterruptedIOException e)
+        {
+            assertEquals(CHUNK, e.bytesTransferred);
+            assertEquals(CHUNK * 2, target.size());
+            assertTrue(Thread.interrupted());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidChunkSize()
+    {
+        RatedExecutors.throttle(new ByteArrayOutputStream(), limiter, 0);
+    }
+}
@@ -0,0 +1,154 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.mattunderscore.executor.stubs.CountingTask;
+import com.mattunderscore.executors.IRepeatingFuture;
+import com.mattunderscore.executors.TaskWrapperFactory;
+
+/**
+ * Test suite for the tickless modes of the internal executors.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+public final class TicklessTest
+{
+    private static final long RATE = 50L;
+    private static final long EXTRA = 15L;
+
+    private final Callable<Long> timestamp = new Callable<Long>()
+    {
+        @Override
+        public Long call()
+        {
+            return System.nanoTime();
+        }
+    };
+
+    @Test
+    public void testScheduledIdle() throws Exception
+    {
+        final ScheduledThreadPoolExecutor service = new ScheduledThreadPoolExecutor(1);
+        final TaskQueue queue = new TaskQueue();
+        final IRatedExecutor executor = new RatedExecutor(queue, new ScheduledInternalExecutor(queue,
+                RATE, TimeUnit.MILLISECONDS, service, CatchUpPolicy.catchUp(), Jitter.none(),
+                WarmUp.none(), true, false),
+                new TaskWrapperFactory());
+
+        executor.submit(new CountingTask()).get();
+        TimeUnit.MILLISECONDS.sleep(EXTRA);
+        // Nothing is left scheduled once the queue is empty
+        assertTrue(service.getQueue().isEmpty());
+        assertPrompt(executor);
+        service.shutdown();
+    }
+
+    @Test
+    public void testThreadedIdle() throws Exception
+    {
+        final List<Thread> threads = new ArrayList<Thread>();
+        final ThreadFactory factory = new ThreadFactory()
+        {
+            @Override
+            public synchronized Thread newThread(final Runnable r)
+            {
+                final Thread thread = new Thread(r);
+                threads.add(thread);
+                return thread;
+            }
+        };
+        final IRatedExecutor executor = RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS)
+                .interruptable().tickless().threadFactory(factory).build();
+
+        executor.submit(new CountingTask()).get();
+        TimeUnit.MILLISECONDS.sleep(EXTRA);
+        synchronized (factory)
+        {
+            assertEquals(1, threads.size());
+            // The thread stops once the queue is empty
+            assertFalse(threads.get(0).isAlive());
+        }
+        assertPrompt(executor);
+    }
+
+    @Test
+    public void testScheduledRate() throws Exception
+    {
+        assertRate(RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS)
+                .catchUpPolicy(CatchUpPolicy.reset()).tickless().build());
+    }
+
+    @Test
+    public void testThreadedRate() throws Exception
+    {
+        assertRate(RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS).interruptable()
+                .catchUpPolicy(CatchUpPolicy.reset()).tickless().build());
+    }
+
+    /**
+     * The first task after the executor has been idle for a period runs immediately.
+     */
+    private void assertPrompt(final IRatedExecutor executor) throws Exception
+    {
+        TimeUnit.MILLISECONDS.sleep(RATE);
+        final long beforeSubmit = System.nanoTime();
+        final long started = executor.submit(timestamp).get();
+        assertTrue(started - beforeSubmit < TimeUnit.MILLISECONDS.toNanos(EXTRA));
+    }
+
+    /**
+     * Repeated tasks and tasks submitted just after the executor goes idle keep to the rate. Late
+     * executions are not caught up so that a delayed start does not shorten the next interval.
+     */
+    private void assertRate(final IRatedExecutor executor) throws Exception
+    {
+        final IRepeatingFuture<Long> future = executor.schedule(timestamp, 3);
+        final long first = future.getResult(0);
+        final long second = future.getResult(1);
+        final long third = future.getResult(2);
+        final Future<Long> after = executor.submit(timestamp);
+        final long fourth = after.get();
+        final long minimum = TimeUnit.MILLISECONDS.toNanos(RATE) * 9 / 10;
+        assertTrue(second - first > minimum);
+        assertTrue(third - second > minimum);
+        assertTrue(fourth - third > minimum);
+    }
+}
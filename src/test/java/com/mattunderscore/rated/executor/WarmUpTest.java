@@ -0,0 +1,171 @@
+/* Copyright © 2014 Matthew Champion
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+ * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer in the
+      documentation and/or other materials provided with the distribution.
+ * Neither the name of mattunderscore.com nor the
+      names of its contributors may be used to endorse or promote products
+      derived from this software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL MATTHEW CHAMPION BE LIABLE FOR ANY
+DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE. */
+
+package com.mattunderscore.rated.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.mattunderscore.executors.IRepeatingFuture;
+
+/**
+ * Test suite for the {@link WarmUp}.
+ *
+ * @author Matt Champion
+ * @since 0.1.2
+ */
+public final class WarmUpTest
+{
+    private static final long RATE = 10L;
+    private static final long COLD_RATE = 50L;
+    private static final long DURATION = 200L;
+    private static final int EXECUTIONS = 30;
+    private static final long RATE_NANOS = TimeUnit.MILLISECONDS.toNanos(RATE);
+    private static final long COLD_RATE_NANOS = TimeUnit.MILLISECONDS.toNanos(COLD_RATE);
+
+    @Test
+    public void testNone()
+    {
+        assertEquals(RATE_NANOS, WarmUp.none().interval(RATE_NANOS, 0L));
+        assertFalse(WarmUp.none().isCold(RATE_NANOS, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testLinearInterval()
+    {
+        final WarmUp warmUp = WarmUp.linear(COLD_RATE, DURATION, TimeUnit.MILLISECONDS);
+        final long duration = TimeUnit.MILLISECONDS.toNanos(DURATION);
+        assertEquals(COLD_RATE_NANOS, warmUp.interval(RATE_NANOS, 0L));
+        assertEquals((COLD_RATE_NANOS + RATE_NANOS) / 2, warmUp.interval(RATE_NANOS, duration / 2));
+        assertEquals(RATE_NANOS, warmUp.interval(RATE_NANOS, duration));
+        assertEquals(RATE_NANOS, warmUp.interval(RATE_NANOS, duration * 2));
+        // A cold rate faster than the executor rate has no effect
+        assertEquals(COLD_RATE_NANOS * 2, warmUp.interval(COLD_RATE_NANOS * 2, 0L));
+    }
+
+    @Test
+    public void testCold()
+    {
+        final WarmUp warmUp = WarmUp.linear(COLD_RATE, DURATION, TimeUnit.MILLISECONDS);
+        assertFalse(warmUp.isCold(RATE_NANOS, RATE_NANOS));
+        assertTrue(warmUp.isCold(RATE_NANOS, RATE_NANOS * 2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeColdRate()
+    {
+        WarmUp.linear(-1L, DURATION, TimeUnit.MILLISECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeDuration()
+    {
+        WarmUp.linear(COLD_RATE, -1L, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void testScheduledRamp() throws Exception
+    {
+        assertRamp(RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS)
+                .catchUpPolicy(CatchUpPolicy.reset())
+                .warmUp(WarmUp.linear(COLD_RATE, DURATION, TimeUnit.MILLISECONDS)).build());
+    }
+
+    @Test
+    public void testThreadedRamp() throws Exception
+    {
+        assertRamp(RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS).interruptable()
+                .catchUpPolicy(CatchUpPolicy.reset())
+                .warmUp(WarmUp.linear(COLD_RATE, DURATION, TimeUnit.MILLISECONDS)).build());
+    }
+
+    @Test
+    public void testScheduledRestartCold() throws Exception
+    {
+        assertRestartCold(RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS).tickless()
+                .catchUpPolicy(CatchUpPolicy.reset())
+                .warmUp(WarmUp.linear(COLD_RATE, DURATION, TimeUnit.MILLISECONDS)).build());
+    }
+
+    @Test
+    public void testThreadedRestartCold() throws Exception
+    {
+        assertRestartCold(RatedExecutors.builder(RATE, TimeUnit.MILLISECONDS).interruptable()
+                .catchUpPolicy(CatchUpPolicy.reset())
+                .warmUp(WarmUp.linear(COLD_RATE, DURATION, TimeUnit.MILLISECONDS)).build());
+    }
+
+    /**
+     * The executions take about as long as the warm up predicts, the intervals shorten and after
+     * the warm up they are closer to the rate than the cold rate. Single intervals are not
+     * checked as they depend on when the thread is scheduled.
+     */
+    private void assertRamp(final IRatedExecutor executor) throws Exception
+    {
+        final WarmUp warmUp = WarmUp.linear(COLD_RATE, DURATION, TimeUnit.MILLISECONDS);
+        final IRepeatingFuture<Long> future = executor.schedule(new TimeCallable(), EXECUTIONS);
+        long expected = 0L;
+        for (int i = 1; i < EXECUTIONS; i++)
+        {
+            expected += warmUp.interval(RATE_NANOS, expected);
+        }
+        final long elapsed = future.getResult(EXECUTIONS - 1) - future.getResult(0);
+        assertTrue("Ramp too short " + elapsed, elapsed > expected * 9 / 10);
+        final long early = (future.getResult(5) - future.getResult(0)) / 5;
+        final long late = (future.getResult(EXECUTIONS - 1) - future.getResult(EXECUTIONS - 6)) / 5;
+        assertTrue("Intervals did not shorten " + early + " " + late, early > late * 2);
+        assertTrue("Late intervals still cold " + late,
+                late < (RATE_NANOS + COLD_RATE_NANOS) / 2);
+        executor.shutdown();
+    }
+
+    /**
+     * After warming up and being idle the executor warms up again.
+     */
+    private void assertRestartCold(final IRatedExecutor executor) throws Exception
+    {
+        executor.schedule(new TimeCallable(), 30).getResult(29);
+        Thread.sleep(RATE * 5);
+        final IRepeatingFuture<Long> future = executor.schedule(new TimeCallable(), 2);
+        final long first = future.getResult(1) - future.getResult(0);
+        assertTrue("First interval too short " + first, first > COLD_RATE_NANOS * 9 / 10);
+        executor.shutdown();
+    }
+
+    private static final class TimeCallable implements Callable<Long>
+    {
+        @Override
+        public Long call()
+        {
+            return System.nanoTime();
+        }
+    }
+}